@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.benchmark;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+/**
+ * Generates input data for benchmarks.
+ */
+final class BenchmarkData {
+
+    static final String HEADER = "id,name,age,born,location";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Write a CSV file of people with a {@link #HEADER} and a given number of rows. The data is always the same for the
+     * same number of rows.
+     *
+     * @param file to write.
+     * @param rows number of rows.
+     */
+    static void writePeople(File file, int rows) {
+        Random random = new Random(42);
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8")))) {
+            writer.write(HEADER);
+            writer.write("\n");
+
+            for (int i = 1; i <= rows; i++) {
+                writer.write(i + ",\"Person " + i + ", the " + random.nextInt(1000) + "th\"," + (18 + random.nextInt(80)) + ","
+                        + (1 + random.nextInt(28)) + "/" + (1 + random.nextInt(12)) + "/" + (1930 + random.nextInt(80)) + "," + random.nextInt(1000) + "\n");
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Delete a file or a directory with all its contents.
+     *
+     * @param file to delete.
+     */
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.benchmark;
+
+import com.graphaware.importer.data.access.CsvDataReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the conversions of {@link com.graphaware.importer.data.access.BaseTabularDataReader}, applied
+ * repeatedly to a single parsed record, so that parsing isn't measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConversionBenchmark {
+
+    private File file;
+    private CsvDataReader reader;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("benchmark", ".csv");
+        BenchmarkData.writePeople(file, 1);
+
+        reader = new CsvDataReader(',', '"', Charset.forName("UTF-8"));
+        reader.initialize();
+        reader.read(file.getAbsolutePath(), "benchmark");
+        reader.readRecord();
+    }
+
+    @TearDown
+    public void tearDown() {
+        reader.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public Long readLong() {
+        return reader.readLong("id");
+    }
+
+    @Benchmark
+    public Integer readInt() {
+        return reader.readInt("age");
+    }
+
+    @Benchmark
+    public Long readDate() {
+        return reader.readDate("born");
+    }
+
+    @Benchmark
+    public String readObject() {
+        return reader.readObject("name");
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.benchmark;
+
+import com.graphaware.importer.data.access.CsvDataReader;
+import com.graphaware.importer.data.access.MappedCsvDataReader;
+import com.graphaware.importer.data.access.TabularDataReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of CSV parsing throughput, in rows per second, reading every column of every row as a string.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(CsvDataReaderBenchmark.ROWS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CsvDataReaderBenchmark {
+
+    static final int ROWS = 100_000;
+
+    private static final String[] COLUMNS = BenchmarkData.HEADER.split(",");
+
+    @Param({"csv", "mapped"})
+    public String reader;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("benchmark", ".csv");
+        BenchmarkData.writePeople(file, ROWS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        TabularDataReader dataReader = "mapped".equals(reader)
+                ? new MappedCsvDataReader(',', '"', Charset.forName("UTF-8"))
+                : new CsvDataReader(',', '"', Charset.forName("UTF-8"));
+
+        dataReader.initialize();
+        dataReader.read(file.getAbsolutePath(), "benchmark");
+
+        while (dataReader.readRecord()) {
+            for (String column : COLUMNS) {
+                blackhole.consume(dataReader.readObject(column));
+            }
+        }
+
+        dataReader.close();
+    }
+}
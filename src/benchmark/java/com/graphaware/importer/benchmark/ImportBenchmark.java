@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.benchmark;
+
+import com.graphaware.importer.FileBatchImporter;
+import com.graphaware.importer.cache.Cache;
+import com.graphaware.importer.cache.Caches;
+import com.graphaware.importer.cache.InjectCache;
+import com.graphaware.importer.data.Data;
+import com.graphaware.importer.data.DynamicData;
+import com.graphaware.importer.data.access.TabularDataReader;
+import com.graphaware.importer.domain.Neo4jProperty;
+import com.graphaware.importer.domain.Neo4jPropertyContainer;
+import com.graphaware.importer.importer.Importer;
+import com.graphaware.importer.importer.TabularImporter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.neo4j.graphdb.DynamicLabel.label;
+
+/**
+ * End-to-end benchmark of a whole import of people from a CSV file into a fresh temporary store, in rows per second.
+ * Each invocation includes bootstrapping and shutting down the batch inserter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ImportBenchmark.ROWS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportBenchmark {
+
+    static final int ROWS = 500_000;
+
+    private File dir;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = File.createTempFile("benchmark", "");
+        dir.delete();
+        new File(dir, "input").mkdirs();
+
+        BenchmarkData.writePeople(new File(dir, "input/people.csv"), ROWS);
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanStore() {
+        BenchmarkData.delete(new File(dir, "graph.db"));
+        BenchmarkData.delete(new File(dir, "output"));
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkData.delete(dir);
+    }
+
+    @Benchmark
+    public void importPeople() {
+        new PeopleBatchImporter().run(new String[]{
+                "-g", dir.getAbsolutePath() + "/graph.db",
+                "-i", dir.getAbsolutePath() + "/input",
+                "-o", dir.getAbsolutePath() + "/output",
+                "-r", "neo4j.properties",
+                "-c", dir.getAbsolutePath() + "/output/cache"});
+    }
+
+    private static class PeopleBatchImporter extends FileBatchImporter {
+
+        @Override
+        protected Set<Importer> createImporters() {
+            return Collections.<Importer>singleton(new PeopleImporter());
+        }
+    }
+
+    private static class PeopleImporter extends TabularImporter<Person> {
+
+        @InjectCache(name = "people", creator = true)
+        private Cache<Long, Long> personCache;
+
+        @Override
+        public Data inputData() {
+            return DynamicData.withName("people");
+        }
+
+        @Override
+        public Person produceObject(TabularDataReader record) {
+            return new Person(record.readLong("id"), record.readObject("name"), record.readInt("age"), record.readDate("born"));
+        }
+
+        @Override
+        public void processObject(Person person) {
+            personCache.put(person.id, context.inserter().createNode(person.getProperties(), label("Person")));
+        }
+
+        @Override
+        protected void createCache(Caches caches, String name) {
+            caches.createCache(name, Long.class, Long.class);
+        }
+    }
+
+    public static class Person extends Neo4jPropertyContainer {
+
+        @Neo4jProperty
+        private final Long id;
+        @Neo4jProperty
+        private final String name;
+        @Neo4jProperty
+        private final Integer age;
+        @Neo4jProperty
+        private final Long born;
+
+        public Person(Long id, String name, Integer age, Long born) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+            this.born = born;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.benchmark;
+
+import com.graphaware.importer.cache.Cache;
+import com.graphaware.importer.cache.MapDBCaches;
+import com.graphaware.importer.config.CsvImportConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of gets and puts of {@link com.graphaware.importer.cache.MapDBCache}s, keyed by longs (like custom IDs)
+ * and by strings (like natural keys), both mapping to longs (Neo4j node IDs).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MapDBCacheBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    private File dir;
+    private MapDBCaches caches;
+    private Cache<Long, Long> longCache;
+    private Cache<String, Long> stringCache;
+    private String[] keys;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws IOException {
+        dir = File.createTempFile("benchmark", "");
+        dir.delete();
+        dir.mkdirs();
+
+        caches = new MapDBCaches(new CsvImportConfig(dir.getAbsolutePath() + "/graph.db", dir.getAbsolutePath(), "neo4j.properties", dir.getAbsolutePath() + "/cache", dir.getAbsolutePath()));
+        caches.createCache("long", Long.class, Long.class);
+        caches.createCache("string", String.class, Long.class);
+        longCache = caches.getCache("long");
+        stringCache = caches.getCache("string");
+
+        keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key-" + i;
+            longCache.put((long) i, (long) i);
+            stringCache.put(keys[i], (long) i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        caches.destroy();
+        BenchmarkData.delete(dir);
+    }
+
+    @Benchmark
+    public Long getLong() {
+        return longCache.get((long) ThreadLocalRandom.current().nextInt(size));
+    }
+
+    @Benchmark
+    public void putLong() {
+        long key = ThreadLocalRandom.current().nextInt(size);
+        longCache.put(key, key);
+    }
+
+    @Benchmark
+    public Long getString() {
+        return stringCache.get(keys[ThreadLocalRandom.current().nextInt(size)]);
+    }
+
+    @Benchmark
+    public void putString() {
+        int key = ThreadLocalRandom.current().nextInt(size);
+        stringCache.put(keys[key], (long) key);
+    }
+}
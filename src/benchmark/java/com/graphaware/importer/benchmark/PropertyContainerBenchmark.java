@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.benchmark;
+
+import com.graphaware.importer.domain.Neo4jProperty;
+import com.graphaware.importer.domain.Neo4jPropertyContainer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link com.graphaware.importer.domain.Neo4jPropertyContainer#getProperties()}, called for every DTO
+ * turned into a node or relationship.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PropertyContainerBenchmark {
+
+    private final Person person = new Person(42L, "Michal Bachman", 30, "MD at GraphAware", 1281654000000L, null);
+    private final Map<String, Object> reused = new HashMap<>();
+
+    @Benchmark
+    public Map<String, Object> getProperties() {
+        return person.getProperties();
+    }
+
+    @Benchmark
+    public Map<String, Object> getPropertiesIntoReusedMap() {
+        return person.getProperties(reused);
+    }
+
+    public static class Person extends Neo4jPropertyContainer {
+
+        @Neo4jProperty
+        private final Long id;
+        @Neo4jProperty
+        private final String name;
+        @Neo4jProperty
+        private final Integer age;
+        @Neo4jProperty(name = "position")
+        private final String role;
+        @Neo4jProperty
+        private final long since;
+        @Neo4jProperty
+        private final String nickname;
+
+        private final Long location = 1L;
+
+        public Person(Long id, String name, Integer age, String role, long since, String nickname) {
+            this.id = id;
+            this.name = name;
+            this.age = age;
+            this.role = role;
+            this.since = since;
+            this.nickname = nickname;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.benchmark;
+
+import com.graphaware.importer.stats.Counter;
+import com.graphaware.importer.stats.LoggingStatisticsCollector;
+import com.graphaware.importer.stats.StatisticsCollector;
+import com.graphaware.importer.stats.Timer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link com.graphaware.importer.stats.LoggingStatisticsCollector} updated by many threads at once, as it
+ * is by importers' workers for every row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(4)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StatisticsCollectorBenchmark {
+
+    private StatisticsCollector collector;
+    private Counter counter;
+    private Timer timer;
+
+    @Setup
+    public void setUp() {
+        collector = new LoggingStatisticsCollector("benchmark");
+        counter = collector.counter("Import Statistics", "Processed");
+        timer = collector.timer("processObject");
+    }
+
+    @Benchmark
+    public void incrementsStats() {
+        collector.incrementsStats("Import Statistics", "Processed");
+    }
+
+    @Benchmark
+    public void incrementCounter() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void recordTimer() {
+        timer.record(1234);
+    }
+}
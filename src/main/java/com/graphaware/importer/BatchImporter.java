@@ -16,7 +16,9 @@
 package com.graphaware.importer;
 
 import com.graphaware.importer.cache.Caches;
-import com.graphaware.importer.cache.MapDBCaches;
+import com.graphaware.importer.cache.PersistentCaches;
+import com.graphaware.importer.cache.TieredCache;
+import com.graphaware.importer.cache.TieredCaches;
 import com.graphaware.importer.cli.CommandLineParser;
 import com.graphaware.importer.config.ImportConfig;
 import com.graphaware.importer.context.ImportContext;
@@ -25,13 +27,14 @@ import com.graphaware.importer.data.Data;
 import com.graphaware.importer.data.location.DataLocator;
 import com.graphaware.importer.data.location.FileLocator;
 import com.graphaware.importer.importer.Importer;
-import com.graphaware.importer.plan.DefaultExecutionPlan;
-import com.graphaware.importer.plan.ExecutionPlan;
+import com.graphaware.importer.plan.*;
+import com.graphaware.importer.stats.Gauge;
 import com.graphaware.importer.stats.LoggingStatisticsCollector;
 import com.graphaware.importer.stats.StatisticsCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
@@ -53,7 +56,7 @@ public abstract class BatchImporter<T extends ImportConfig> {
 
     private static final Logger LOG = LoggerFactory.getLogger(BatchImporter.class);
 
-    private final Object monitor = new Object();
+    public static final long DEFAULT_CACHE_MEMORY_BUDGET = 64 * 1024 * 1024;
 
     private Set<Importer> importers;
 
@@ -63,6 +66,9 @@ public abstract class BatchImporter<T extends ImportConfig> {
      * @param args command-line arguments.
      */
     public void run(String[] args) {
+        ImportContext context = null;
+        boolean bootstrapped = false;
+
         try {
             LOG.info("Creating import config...");
 
@@ -73,11 +79,12 @@ public abstract class BatchImporter<T extends ImportConfig> {
 
             LOG.info("Creating import context...");
 
-            ImportContext context = createContext(config);
+            context = createContext(config);
 
             LOG.info("Fully bootstrapping context...");
 
             context.fullBootstrap();
+            bootstrapped = true;
 
             LOG.info("Checking context...");
 
@@ -98,7 +105,7 @@ public abstract class BatchImporter<T extends ImportConfig> {
 
             LOG.info("Performing import...");
 
-            performImport(context, plan);
+            performImport(context, plan, costEstimator(config));
 
             LOG.info("Creating indices...");
 
@@ -115,10 +122,31 @@ public abstract class BatchImporter<T extends ImportConfig> {
             LOG.info("IMPORT SUCCESSFUL");
         } catch (Throwable throwable) {
             LOG.error("An exception occurred: ", throwable);
+
+            if (bootstrapped) {
+                shutdownAfterFailure(context);
+            }
+
             LOG.info("IMPORT FAILED");
         }
     }
 
+    /**
+     * Cleanly shut down the context of a failed import, so that all data inserted by finished importers is flushed to
+     * disk and the import can be resumed.
+     *
+     * @param context context of the failed import.
+     */
+    private void shutdownAfterFailure(ImportContext context) {
+        try {
+            LOG.info("Shutting down context, so that the import can be resumed...");
+            context.shutdownAfterFailure();
+            LOG.info("Context shut down. Run the import again with the resume option to only run unfinished importers.");
+        } catch (Throwable throwable) {
+            LOG.error("Could not shut down context, the import can not be resumed: ", throwable);
+        }
+    }
+
     /**
      * Create a command-line parser.
      *
@@ -142,7 +170,36 @@ public abstract class BatchImporter<T extends ImportConfig> {
      * @return caches.
      */
     protected Caches createCaches(T config) {
-        return new MapDBCaches(config);
+        if (persistentCaches() || config.isResume()) {
+            return new PersistentCaches(config, createInputDataLocator(config));
+        }
+
+        return new TieredCaches(config, cacheMemoryBudget());
+    }
+
+    /**
+     * Should caches be kept on disk between runs, so that importers with unchanged input can reuse them (see
+     * {@link com.graphaware.importer.importer.BaseImporter#reusableCaches()}), and so that a failed import can be resumed
+     * even when importers creating caches have finished before the failure? Defaults to <code>false</code>, in which case
+     * {@link TieredCaches} are used, unless the import is being resumed.
+     *
+     * @return <code>true</code> for {@link PersistentCaches}.
+     */
+    protected boolean persistentCaches() {
+        return false;
+    }
+
+    /**
+     * Get the maximum number of bytes in heap used by the in-heap tier of {@link TieredCaches}, i.e., by copies of
+     * frequently looked up cache entries kept on top of the memory-mapped cache files. The budget doesn't cover the
+     * memory-mapped files themselves, which hold all the entries off heap, nor {@link com.graphaware.importer.cache.LongCache}s,
+     * which aren't tiered. Defaults to {@link #DEFAULT_CACHE_MEMORY_BUDGET}, or a sixteenth of the maximum heap size if
+     * that's less. Override to trade more heap for fewer cache file lookups; 0 disables the in-heap tier.
+     *
+     * @return memory budget for the in-heap tier of caches, in bytes.
+     */
+    protected long cacheMemoryBudget() {
+        return Math.min(DEFAULT_CACHE_MEMORY_BUDGET, Runtime.getRuntime().maxMemory() / 16);
     }
 
     /**
@@ -202,59 +259,83 @@ public abstract class BatchImporter<T extends ImportConfig> {
      */
     protected abstract Set<Importer> createImporters();
 
+    /**
+     * Create an estimator of importer costs, used to start importers on the longest dependency chain first. By default,
+     * importers are estimated by their input file size on the first run and by their duration recorded in the output
+     * directory on subsequent runs.
+     *
+     * @param config import config.
+     * @return cost estimator.
+     */
+    protected CostEstimator costEstimator(T config) {
+        return new HistoricalCostEstimator(new File(config.getOutputDir(), "importer-history.properties"), new InputSizeCostEstimator(createInputDataLocator(config)));
+    }
+
+    /**
+     * Get the maximum number of importers running at the same time. Returns the number of available processors by default.
+     *
+     * @return number of threads running importers.
+     */
+    protected int importerThreads() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * Perform a multi-threaded import.
      *
      * @param context       import context.
      * @param executionPlan import execution plan.
+     * @param costEstimator estimator of importer costs.
      */
-    private void performImport(ImportContext context, final ExecutionPlan executionPlan) {
+    private void performImport(ImportContext context, ExecutionPlan executionPlan, CostEstimator costEstimator) {
         for (Importer importer : executionPlan.getOrderedImporters()) {
             LOG.info("Preparing " + importer.name() + "...");
             importer.prepare(context);
         }
 
-        for (final Importer importer : executionPlan.getOrderedImporters()) {
-            new Thread(new Runnable() {
-                @Override
-                public void run() {
-                    while (!executionPlan.canRun(importer)) {
-                        synchronized (monitor) {
-                            try {
-                                monitor.wait();
-                            } catch (InterruptedException e) {
-                                //ok
-                            }
-                        }
-                    }
-
-                    try {
-                        importer.performImport();
-                    } finally {
-                        synchronized (monitor) {
-                            executionPlan.clearCaches();
-                            monitor.notifyAll();
-                        }
-                    }
-                }
-            }, "IMPORTER - " + importer.name()).start();
+        registerCacheMetrics(context);
+
+        try {
+            new ImportScheduler(executionPlan, importerThreads(), costEstimator).execute();
+        } finally {
+            LOG.info("Destroying caches...");
+
+            context.caches().destroy();
+
+            LOG.info("Caches destroyed.");
         }
+    }
 
-        while (!executionPlan.allFinished()) {
-            synchronized (monitor) {
-                try {
-                    monitor.wait(10000);
-                } catch (InterruptedException e) {
-                    //ok
-                }
-            }
+    /**
+     * Register live metrics of caches created by importers. Reports hit rates and heap usage of {@link TieredCache}s.
+     *
+     * @param context import context, whose importers have all been prepared.
+     */
+    protected void registerCacheMetrics(ImportContext context) {
+        if (!(context.caches() instanceof TieredCaches)) {
+            return;
         }
 
-        LOG.info("Destroying caches...");
+        StatisticsCollector stats = context.createStatistics("Caches");
 
-        context.caches().destroy();
+        for (final TieredCache cache : ((TieredCaches) context.caches()).getTieredCaches()) {
+            stats.gauge("Caches", cache.getName() + " Hit Rate (%)", new Gauge() {
+                @Override
+                public long get() {
+                    long hits = cache.getHits();
+                    long total = hits + cache.getMisses();
+                    return total == 0 ? 0 : hits * 100 / total;
+                }
+            });
+            stats.gauge("Caches", cache.getName() + " Heap Used (MB)", new Gauge() {
+                @Override
+                public long get() {
+                    return cache.getMemoryUsage() >> 20;
+                }
+            });
+        }
 
-        LOG.info("Caches destroyed.");
+        context.metrics().register("Caches", stats);
     }
 
     private void createIndices(ExecutionPlan executionPlan) {
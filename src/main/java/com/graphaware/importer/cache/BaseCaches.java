@@ -91,6 +91,36 @@ public abstract class BaseCaches implements Caches {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @return <code>false</code> by default, caches are not kept between runs.
+     */
+    @Override
+    public boolean canReuse(Importer creator) {
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * No-op by default, intended to be overridden.
+     */
+    @Override
+    public void populating(Importer creator) {
+        //no-op
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * No-op by default, intended to be overridden.
+     */
+    @Override
+    public void populated(Importer creator) {
+        //no-op
+    }
+
     /**
      * {@inheritDoc}
      */
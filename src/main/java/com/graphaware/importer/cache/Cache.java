@@ -15,8 +15,11 @@
 
 package com.graphaware.importer.cache;
 
+import org.springframework.util.Assert;
+
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * A cache, like a {@link java.util.Map} with {@link #get(Object)} and {@link #containsKey(Object)} supporting <code>null</code> keys,
@@ -39,6 +42,69 @@ public interface Cache<K, V> {
 
     void put(K key, V value);
 
+    /**
+     * Atomically put a value into the cache, unless the key is already present.
+     * <p/>
+     * Defaults to synchronizing on the cache, so that all updates made through this method and
+     * {@link #computeIfAbsent(Object, Function)} are serialized. Implementations should override both with finer-grained locking.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value. Must not be <code>null</code>.
+     * @return the value already present, <code>null</code> if the given value has been put.
+     */
+    default V putIfAbsent(K key, V value) {
+        Assert.notNull(key);
+        Assert.notNull(value);
+
+        synchronized (this) {
+            V existing = get(key);
+            if (existing != null) {
+                return existing;
+            }
+
+            put(key, value);
+            return null;
+        }
+    }
+
+    /**
+     * Get the value for a key, atomically computing and putting it into the cache if the key isn't present. For a given
+     * key, the function is called at most once, even when called concurrently from many threads, which makes this
+     * method suitable for find-or-create of nodes by a natural key.
+     * <p/>
+     * Only atomic with respect to other calls of this method and {@link #putIfAbsent(Object, Object)}, not to plain
+     * {@link #put(Object, Object)}s of the same key.
+     * <p/>
+     * Defaults to synchronizing on the cache when the key isn't present, see {@link #putIfAbsent(Object, Object)}.
+     *
+     * @param key      key. Must not be <code>null</code>.
+     * @param function computing the value for a key that isn't present. May return <code>null</code>, in which case
+     *                 nothing is put into the cache.
+     * @return the value present or computed, <code>null</code> if the function returned <code>null</code>.
+     */
+    default V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        Assert.notNull(key);
+        Assert.notNull(function);
+
+        V existing = get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        synchronized (this) {
+            existing = get(key);
+            if (existing != null) {
+                return existing;
+            }
+
+            V value = function.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+            return value;
+        }
+    }
+
     void clear();
 
     Set<Map.Entry<K, V>> entrySet();
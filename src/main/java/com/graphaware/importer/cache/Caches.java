@@ -71,6 +71,30 @@ public interface Caches {
      */
     void inject(Importer importer);
 
+    /**
+     * Check whether the caches created by the given importer have been kept from a previous run, in which they were
+     * populated from the same input, so that the importer does not need to populate them again. If so, the caches
+     * become read-only.
+     *
+     * @param creator importer creating caches. Must not be <code>null</code>.
+     * @return <code>true</code> iff all caches created by the importer can be reused.
+     */
+    boolean canReuse(Importer creator);
+
+    /**
+     * Notify the caches that the given importer is about to populate the caches it creates.
+     *
+     * @param creator importer creating caches. Must not be <code>null</code>.
+     */
+    void populating(Importer creator);
+
+    /**
+     * Notify the caches that the given importer has successfully populated the caches it creates.
+     *
+     * @param creator importer creating caches. Must not be <code>null</code>.
+     */
+    void populated(Importer creator);
+
     /**
      * Cleanup caches that will no longer be used.
      *
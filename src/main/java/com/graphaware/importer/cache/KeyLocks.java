@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import org.springframework.util.Assert;
+
+import java.util.function.Function;
+
+/**
+ * Striped locks implementing atomic {@link Cache#putIfAbsent(Object, Object)} and {@link Cache#computeIfAbsent(Object, java.util.function.Function)}
+ * on top of a cache's plain reads and writes. Keys are spread over a fixed number of locks, so that updates of different
+ * keys rarely wait for each other, while updates of the same key are serialized.
+ * <p/>
+ * Only atomic with respect to other updates going through the same instance, not to plain {@link Cache#put(Object, Object)}s.
+ */
+final class KeyLocks {
+
+    private static final int STRIPES = 64;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    KeyLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    <K, V> V putIfAbsent(Cache<K, V> cache, K key, V value) {
+        Assert.notNull(key);
+        Assert.notNull(value);
+
+        synchronized (lockFor(key)) {
+            V existing = cache.get(key);
+            if (existing != null) {
+                return existing;
+            }
+
+            cache.put(key, value);
+            return null;
+        }
+    }
+
+    <K, V> V computeIfAbsent(Cache<K, V> cache, K key, Function<? super K, ? extends V> function) {
+        Assert.notNull(key);
+        Assert.notNull(function);
+
+        V existing = cache.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        synchronized (lockFor(key)) {
+            existing = cache.get(key);
+            if (existing != null) {
+                return existing;
+            }
+
+            V value = function.apply(key);
+            if (value != null) {
+                cache.put(key, value);
+            }
+            return value;
+        }
+    }
+
+    private Object lockFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return locks[hash & (STRIPES - 1)];
+    }
+}
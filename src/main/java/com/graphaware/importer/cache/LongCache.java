@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+/**
+ * A {@link Cache} of primitive longs (typically custom IDs to Neo4j node IDs) that, apart from the boxed {@link Cache}
+ * methods, offers unboxed access for hot paths.
+ * <p/>
+ * {@link #NO_VALUE} is reserved for signalling the absence of a value and can thus not be stored in the cache.
+ */
+public interface LongCache extends Cache<Long, Long> {
+
+    /**
+     * Value returned by {@link #getLong(long)} for keys that aren't present in the cache.
+     */
+    long NO_VALUE = Long.MIN_VALUE;
+
+    /**
+     * Check whether the cache contains the given key.
+     *
+     * @param key to check.
+     * @return <code>true</code> iff the key is present.
+     */
+    boolean containsLong(long key);
+
+    /**
+     * Get a value from the cache.
+     *
+     * @param key key.
+     * @return value, {@link #NO_VALUE} if there is no value for the given key.
+     */
+    long getLong(long key);
+
+    /**
+     * Put a value into the cache.
+     *
+     * @param key   key.
+     * @param value value. Must not be {@link #NO_VALUE}.
+     */
+    void putLong(long key, long value);
+}
@@ -20,6 +20,7 @@ import org.mapdb.Serializer;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * {@link com.graphaware.importer.cache.Cache} backed by {@link org.mapdb.DB}.
@@ -30,9 +31,24 @@ import java.util.Set;
 public class MapDBCache<K, V> implements Cache<K, V> {
 
     private final Map<K, V> map;
+    private final KeyLocks locks = new KeyLocks();
 
     public MapDBCache(DB db, String name, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        map = db.hashMap(name).keySerializer(keySerializer).valueSerializer(valueSerializer).create();
+        this(db, name, keySerializer, valueSerializer, false);
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param db              backing the cache.
+     * @param name            name of the map in the db.
+     * @param keySerializer   serializer of keys.
+     * @param valueSerializer serializer of values.
+     * @param open            <code>true</code> to open the map if it already exists in the db, <code>false</code> to always create a new one.
+     */
+    public MapDBCache(DB db, String name, Serializer<K> keySerializer, Serializer<V> valueSerializer, boolean open) {
+        DB.HashMapMaker<K, V> maker = db.hashMap(name).keySerializer(keySerializer).valueSerializer(valueSerializer);
+        map = open ? maker.createOrOpen() : maker.create();
     }
 
     @Override
@@ -60,6 +76,16 @@ public class MapDBCache<K, V> implements Cache<K, V> {
         map.put(key, value);
     }
 
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return locks.putIfAbsent(this, key, value);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        return locks.computeIfAbsent(this, key, function);
+    }
+
     @Override
     public void clear() {
         map.clear();
@@ -19,6 +19,8 @@ import com.graphaware.importer.config.ImportConfig;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
 import org.mapdb.Serializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
 /**
@@ -26,18 +28,35 @@ import org.springframework.util.Assert;
  */
 public class MapDBCaches extends BaseCaches {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MapDBCaches.class);
+
     private final DB db;
+    private final SerializerRegistry serializers = new SerializerRegistry();
 
     public MapDBCaches(ImportConfig config) {
-        db = DBMaker
+        this(config, false);
+    }
+
+    /**
+     * Create new caches.
+     *
+     * @param config     import config.
+     * @param persistent <code>true</code> to keep the cache file after the caches are destroyed, <code>false</code> to delete it.
+     */
+    protected MapDBCaches(ImportConfig config, boolean persistent) {
+        DBMaker.Maker maker = DBMaker
                 .fileDB(config.getCacheFile())
                 .fileMmapEnable()
                 .fileMmapEnableIfSupported()
                 .fileMmapPreclearDisable()
                 .cleanerHackEnable()
-                .fileDeleteAfterClose()
-                .closeOnJvmShutdown()
-                .make();
+                .closeOnJvmShutdown();
+
+        if (!persistent) {
+            maker = maker.fileDeleteAfterClose();
+        }
+
+        db = maker.make();
     }
 
     /**
@@ -57,10 +76,31 @@ public class MapDBCaches extends BaseCaches {
      * @param valueType Java type of the value stored in the cache. Typically a {@link java.lang.Long}.
      * @return cache.
      */
-    protected MapDBCache doCreateCache(DB db, String cacheName, Class<?> keyType, Class<?> valueType) {
+    protected Cache doCreateCache(DB db, String cacheName, Class<?> keyType, Class<?> valueType) {
         return new MapDBCache(db, cacheName, getSerializer(keyType), getSerializer(valueType));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Reclaims space in the cache file taken by cleared caches.
+     */
+    @Override
+    protected void compact() {
+        try {
+            db.getStore().compact();
+        } catch (UnsupportedOperationException e) {
+            LOG.warn("Cache store does not support compaction");
+        }
+    }
+
+    /**
+     * Commit the cache file, i.e., make sure everything written to the caches so far has been written to disk.
+     */
+    protected void commit() {
+        db.commit();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -90,11 +130,28 @@ public class MapDBCaches extends BaseCaches {
             return Serializer.INTEGER;
         }
 
+        Serializer<?> registered = serializers.find(type);
+        if (registered != null) {
+            return registered;
+        }
+
         return defaultSerializer(type);
     }
 
+    /**
+     * Register a serializer for a key or value type. Must be called before caches using the type are created.
+     *
+     * @param type       type. Must not be <code>null</code>.
+     * @param serializer serializer. Must not be <code>null</code>.
+     * @param <T>        type.
+     */
+    public <T> void registerSerializer(Class<T> type, Serializer<T> serializer) {
+        serializers.register(type, serializer);
+    }
+
     /**
      * Get a serializer for a type, for which a serializer hasn't been resolved by {@link #getSerializer(Class)}.
+     * Java serialization by default, which is slow and verbose, so a warning is logged.
      *
      * @param type type. Never <code>null</code>.
      * @return serializer for the given type.
@@ -102,6 +159,8 @@ public class MapDBCaches extends BaseCaches {
     protected Serializer<?> defaultSerializer(Class<?> type) {
         Assert.notNull(type);
 
+        LOG.warn("No serializer registered for " + type.getName() + ", falling back to Java serialization");
+
         return Serializer.JAVA;
     }
 }
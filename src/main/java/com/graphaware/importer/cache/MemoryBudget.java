@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Amount of heap memory that can be used by in-heap tiers of {@link TieredCache}s. The same budget can be shared by
+ * multiple caches, in order to enforce a global limit.
+ * <p/>
+ * When the budget is exceeded, {@link #reclaim()} makes the {@link Reclaimable}s registered with it release memory,
+ * the one using the most first, so that the cache that has just grown doesn't pay for all the others.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class MemoryBudget {
+
+    private final long limit;
+    private final AtomicLong used = new AtomicLong();
+    private final List<Reclaimable> reclaimables = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a new budget.
+     *
+     * @param limit maximum number of bytes. Must not be negative.
+     */
+    public MemoryBudget(long limit) {
+        Assert.isTrue(limit >= 0);
+
+        this.limit = limit;
+    }
+
+    /**
+     * Record that memory has been taken.
+     *
+     * @param bytes number of bytes taken.
+     */
+    public void take(long bytes) {
+        used.addAndGet(bytes);
+    }
+
+    /**
+     * Record that memory has been released.
+     *
+     * @param bytes number of bytes released.
+     */
+    public void release(long bytes) {
+        used.addAndGet(-bytes);
+    }
+
+    /**
+     * Register a user of the budget that can be asked to release memory when the budget is exceeded.
+     *
+     * @param reclaimable to register. Must not be <code>null</code>.
+     */
+    public void register(Reclaimable reclaimable) {
+        Assert.notNull(reclaimable);
+
+        reclaimables.add(reclaimable);
+    }
+
+    /**
+     * Release memory from the registered {@link Reclaimable}s, largest first, until the budget is no longer exceeded
+     * or nothing more can be released. Must not be called while holding a lock of any of the registered reclaimables.
+     */
+    public synchronized void reclaim() {
+        while (isExceeded()) {
+            Reclaimable largest = null;
+            long largestUsage = 0;
+            for (Reclaimable reclaimable : reclaimables) {
+                long usage = reclaimable.usage();
+                if (usage > largestUsage) {
+                    largest = reclaimable;
+                    largestUsage = usage;
+                }
+            }
+
+            if (largest == null || largest.reclaim(used.get() - limit) <= 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> iff more memory is used than the budget allows.
+     */
+    public boolean isExceeded() {
+        return used.get() > limit;
+    }
+
+    /**
+     * @return maximum number of bytes.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return number of bytes currently used.
+     */
+    public long getUsed() {
+        return used.get();
+    }
+
+    /**
+     * User of a {@link MemoryBudget} that can release memory on demand.
+     */
+    public interface Reclaimable {
+
+        /**
+         * @return number of bytes currently used.
+         */
+        long usage();
+
+        /**
+         * Release memory, also releasing it from the budget.
+         *
+         * @param bytes number of bytes to release at least, if possible.
+         * @return number of bytes actually released.
+         */
+        long reclaim(long bytes);
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import com.graphaware.importer.config.ImportConfig;
+import org.mapdb.DB;
+
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * {@link MapDBCaches} that create an {@link OffHeapLongCache} for caches with {@link Long} keys and {@link Long} values,
+ * which is by far the most common case (custom IDs to Neo4j node IDs). Such caches avoid boxing and serialization
+ * altogether. Caches of other types are created by {@link MapDBCaches}.
+ */
+public class OffHeapCaches extends MapDBCaches {
+
+    private final String cacheFile;
+    private final List<OffHeapLongCache> longCaches = new LinkedList<>();
+
+    public OffHeapCaches(ImportConfig config) {
+        super(config);
+        this.cacheFile = config.getCacheFile();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Cache doCreateCache(DB db, String cacheName, Class<?> keyType, Class<?> valueType) {
+        if (Long.class.equals(keyType) && Long.class.equals(valueType)) {
+            OffHeapLongCache cache = new OffHeapLongCache(new File(cacheFile + "-" + cacheName), initialCapacity(cacheName));
+            longCaches.add(cache);
+            return cache;
+        }
+
+        return super.doCreateCache(db, cacheName, keyType, valueType);
+    }
+
+    /**
+     * Get the initial number of slots of a {@link OffHeapLongCache}. Caches grow automatically, but specifying the
+     * expected number of entries avoids re-hashing. Defaults to {@link OffHeapLongCache#DEFAULT_CAPACITY}, intended to
+     * be overridden.
+     *
+     * @param cacheName name of the cache.
+     * @return initial capacity.
+     */
+    protected long initialCapacity(String cacheName) {
+        return OffHeapLongCache.DEFAULT_CAPACITY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        for (OffHeapLongCache cache : longCaches) {
+            cache.close();
+        }
+        longCaches.clear();
+
+        super.destroy();
+    }
+}
@@ -0,0 +1,535 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import com.graphaware.importer.util.MappedBuffers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * {@link LongCache} implemented as an open-addressing (linear probing) hash table of primitive longs, stored off-heap
+ * in a memory-mapped file. The file is grown (by re-hashing into a file twice the size) when the table gets too full.
+ * <p/>
+ * Each slot takes 16 bytes: the key, followed by the value XOR-ed with {@link #NO_VALUE}, so that a zeroed (fresh) slot
+ * is an empty slot. Tables larger than 1 GB are mapped in multiple segments.
+ * <p/>
+ * Outgrown tables are unmapped (and their files deleted) as soon as the table has been re-hashed, so growing only
+ * temporarily needs the space of both tables.
+ * <p/>
+ * This class is thread-safe. The table is guarded by {@link #STRIPES} locks, each covering a contiguous range of slots,
+ * which are taken one at a time while probing. Reads and writes of different keys thus rarely contend, reads of the same
+ * range proceed concurrently and only growing (or clearing) the table takes all the locks.
+ */
+public class OffHeapLongCache implements LongCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapLongCache.class);
+
+    public static final long DEFAULT_CAPACITY = 1 << 20;
+
+    private static final int SLOT_SHIFT = 4;
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final long EMPTY = 0L;
+    private static final double MAX_LOAD = 0.6;
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    private final File file;
+    private final long initialCapacity;
+    private final StampedLock[] stripes = new StampedLock[STRIPES];
+    private final AtomicLong size = new AtomicLong();
+    private final KeyLocks locks = new KeyLocks();
+
+    private volatile Table table;
+    private int generation;
+
+    /**
+     * Create a new cache.
+     *
+     * @param file            base name of the backing file(s). Must not be <code>null</code>.
+     * @param initialCapacity initial number of slots, rounded up to the nearest power of two. Must be positive.
+     */
+    public OffHeapLongCache(File file, long initialCapacity) {
+        Assert.notNull(file);
+        Assert.isTrue(initialCapacity > 0);
+
+        this.file = file;
+        this.initialCapacity = Math.max(1, Long.highestOneBit(initialCapacity - 1) << 1);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new StampedLock();
+        }
+        this.table = newTable(this.initialCapacity);
+    }
+
+    /**
+     * Create a new cache with {@link #DEFAULT_CAPACITY}.
+     *
+     * @param file base name of the backing file(s). Must not be <code>null</code>.
+     */
+    public OffHeapLongCache(File file) {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsLong(long key) {
+        return getLong(key) != NO_VALUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLong(long key) {
+        retry:
+        while (true) {
+            Table current = table;
+            long slot = hash(key) & current.mask;
+            int stripe = current.stripe(slot);
+            long stamp = stripes[stripe].readLock();
+
+            try {
+                while (true) {
+                    if (current != table) {
+                        continue retry; //grown or cleared in the meantime
+                    }
+
+                    if (!current.occupied(slot)) {
+                        return NO_VALUE;
+                    }
+
+                    if (current.key(slot) == key) {
+                        return current.value(slot);
+                    }
+
+                    slot = (slot + 1) & current.mask;
+
+                    if (current.stripe(slot) != stripe) {
+                        stripes[stripe].unlockRead(stamp);
+                        stripe = current.stripe(slot);
+                        stamp = stripes[stripe].readLock();
+                    }
+                }
+            } finally {
+                stripes[stripe].unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void putLong(long key, long value) {
+        if (value == NO_VALUE) {
+            throw new IllegalArgumentException(NO_VALUE + " can not be stored in " + getClass().getSimpleName());
+        }
+
+        if (insert(key, value)) {
+            growIfFull();
+        }
+    }
+
+    /**
+     * @return <code>true</code> iff a new key has been inserted, <code>false</code> if an existing value was replaced.
+     */
+    private boolean insert(long key, long value) {
+        retry:
+        while (true) {
+            Table current = table;
+            long slot = hash(key) & current.mask;
+            int stripe = current.stripe(slot);
+            long stamp = stripes[stripe].writeLock();
+
+            try {
+                while (true) {
+                    if (current != table) {
+                        continue retry; //grown or cleared in the meantime
+                    }
+
+                    if (!current.occupied(slot)) {
+                        current.write(slot, key, value);
+                        size.incrementAndGet();
+                        return true;
+                    }
+
+                    if (current.key(slot) == key) {
+                        current.write(slot, key, value);
+                        return false;
+                    }
+
+                    slot = (slot + 1) & current.mask;
+
+                    if (current.stripe(slot) != stripe) {
+                        stripes[stripe].unlockWrite(stamp);
+                        stripe = current.stripe(slot);
+                        stamp = stripes[stripe].writeLock();
+                    }
+                }
+            } finally {
+                stripes[stripe].unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(size.get(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(Long key) {
+        return key != null && containsLong(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long get(Long key) {
+        if (key == null) {
+            return null;
+        }
+
+        long value = getLong(key);
+        return value == NO_VALUE ? null : value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(Long key, Long value) {
+        Assert.notNull(key);
+        Assert.notNull(value);
+
+        putLong(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long putIfAbsent(Long key, Long value) {
+        return locks.putIfAbsent(this, key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long computeIfAbsent(Long key, Function<? super Long, ? extends Long> function) {
+        return locks.computeIfAbsent(this, key, function);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        long[] stamps = lockAll();
+        try {
+            table.release();
+            table = newTable(initialCapacity);
+            size.set(0);
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The returned set is a read-only view, intended to be iterated over once the cache has been populated.
+     */
+    @Override
+    public Set<Map.Entry<Long, Long>> entrySet() {
+        return new AbstractSet<Map.Entry<Long, Long>>() {
+            @Override
+            public Iterator<Map.Entry<Long, Long>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return OffHeapLongCache.this.size();
+            }
+        };
+    }
+
+    /**
+     * Unmap the off-heap memory and delete the backing file. The cache must not be used afterwards.
+     */
+    public void close() {
+        long[] stamps = lockAll();
+        try {
+            table.release();
+            size.set(0);
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    private void growIfFull() {
+        if (size.get() <= table.capacity * MAX_LOAD) {
+            return;
+        }
+
+        long[] stamps = lockAll();
+        try {
+            if (size.get() > table.capacity * MAX_LOAD) {
+                grow();
+            }
+        } finally {
+            unlockAll(stamps);
+        }
+    }
+
+    private long[] lockAll() {
+        long[] stamps = new long[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stamps[i] = stripes[i].writeLock();
+        }
+        return stamps;
+    }
+
+    private void unlockAll(long[] stamps) {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            stripes[i].unlockWrite(stamps[i]);
+        }
+    }
+
+    private void grow() {
+        Table bigger = newTable(table.capacity << 1);
+
+        for (long slot = 0; slot < table.capacity; slot++) {
+            if (table.occupied(slot)) {
+                bigger.put(table.key(slot), table.value(slot));
+            }
+        }
+
+        LOG.debug("Grew " + file.getName() + " to " + bigger.capacity + " slots");
+
+        table.release();
+        table = bigger;
+    }
+
+    private Table newTable(long capacity) {
+        return new Table(new File(file.getAbsolutePath() + "." + (generation++)), capacity);
+    }
+
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * A fixed-capacity table of slots in a memory-mapped file.
+     */
+    private static final class Table {
+
+        private final File file;
+        private final long capacity;
+        private final long mask;
+        private final int stripeShift;
+        private final MappedByteBuffer[] segments;
+        private volatile boolean released;
+
+        private Table(File file, long capacity) {
+            this.file = file;
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.stripeShift = Math.max(0, Long.numberOfTrailingZeros(capacity) - STRIPE_BITS);
+
+            long bytes = capacity << SLOT_SHIFT;
+            long segmentBytes = Math.min(bytes, (SEGMENT_MASK + 1) << SLOT_SHIFT);
+            this.segments = new MappedByteBuffer[(int) (bytes / segmentBytes)];
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(0);
+                raf.setLength(bytes);
+                FileChannel channel = raf.getChannel();
+                for (int i = 0; i < segments.length; i++) {
+                    segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, segmentBytes);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Could not map " + file.getAbsolutePath(), e);
+            }
+        }
+
+        /**
+         * @return <code>true</code> iff a new key has been inserted, <code>false</code> if an existing value was replaced.
+         */
+        private boolean put(long key, long value) {
+            long slot = hash(key) & mask;
+            while (occupied(slot)) {
+                if (key(slot) == key) {
+                    segment(slot).putLong(offset(slot) + 8, value ^ NO_VALUE);
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            write(slot, key, value);
+            return true;
+        }
+
+        private void write(long slot, long key, long value) {
+            MappedByteBuffer segment = segment(slot);
+            int offset = offset(slot);
+            segment.putLong(offset, key);
+            segment.putLong(offset + 8, value ^ NO_VALUE);
+        }
+
+        private int stripe(long slot) {
+            return (int) (slot >>> stripeShift);
+        }
+
+        private boolean occupied(long slot) {
+            return segment(slot).getLong(offset(slot) + 8) != EMPTY;
+        }
+
+        private long key(long slot) {
+            return segment(slot).getLong(offset(slot));
+        }
+
+        private long value(long slot) {
+            return segment(slot).getLong(offset(slot) + 8) ^ NO_VALUE;
+        }
+
+        private MappedByteBuffer segment(long slot) {
+            return segments[(int) (slot >>> SEGMENT_SHIFT)];
+        }
+
+        private int offset(long slot) {
+            return (int) (slot & SEGMENT_MASK) << SLOT_SHIFT;
+        }
+
+        private void release() {
+            released = true;
+            for (MappedByteBuffer segment : segments) {
+                MappedBuffers.unmap(segment);
+            }
+            Arrays.fill(segments, null);
+            if (!file.delete()) {
+                LOG.warn("Could not delete " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Iterator over occupied slots of the table that was current when the iterator was created. Fails with
+     * {@link ConcurrentModificationException} if that table has been released (grown or cleared) in the meantime.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<Long, Long>> {
+
+        private final Table iterated;
+        private long next = -1;
+
+        private EntryIterator() {
+            iterated = table;
+            advance();
+        }
+
+        private void advance() {
+            next++;
+
+            while (next < iterated.capacity) {
+                int stripe = iterated.stripe(next);
+                long stamp = stripes[stripe].readLock();
+                try {
+                    if (iterated.released) {
+                        throw new ConcurrentModificationException();
+                    }
+
+                    while (next < iterated.capacity && iterated.stripe(next) == stripe) {
+                        if (iterated.occupied(next)) {
+                            return;
+                        }
+                        next++;
+                    }
+                } finally {
+                    stripes[stripe].unlockRead(stamp);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < iterated.capacity;
+        }
+
+        @Override
+        public Map.Entry<Long, Long> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Map.Entry<Long, Long> entry;
+
+            int stripe = iterated.stripe(next);
+            long stamp = stripes[stripe].readLock();
+            try {
+                if (iterated.released) {
+                    throw new ConcurrentModificationException();
+                }
+
+                entry = new AbstractMap.SimpleImmutableEntry<>(iterated.key(next), iterated.value(next));
+            } finally {
+                stripes[stripe].unlockRead(stamp);
+            }
+
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
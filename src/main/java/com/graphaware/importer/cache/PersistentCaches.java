@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import com.graphaware.importer.config.ImportConfig;
+import com.graphaware.importer.data.Data;
+import com.graphaware.importer.data.location.DataLocator;
+import com.graphaware.importer.importer.Importer;
+import org.mapdb.DB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * {@link MapDBCaches} that are kept on disk between runs, so that caches populated from input that hasn't changed since
+ * the previous run don't have to be populated again.
+ * <p/>
+ * Next to the cache file, a manifest records the key and value types of every cache and, for every importer that has
+ * successfully populated its caches, a fingerprint of its input (location, size and last modification time of the
+ * input file; just the location for input that isn't a file, such as an SQL query). When the caches of an importer
+ * have been kept with the same types and its input fingerprint is unchanged, {@link #canReuse(Importer)} returns
+ * <code>true</code> and the caches become read-only. Otherwise, the caches are cleared before the importer populates
+ * them. Fingerprints are only recorded once the cache file has been committed, and the manifest is replaced atomically,
+ * so that a crash never leaves a manifest vouching for caches that haven't been fully written.
+ * <p/>
+ * Caches are never cleared when they are no longer needed during an import. Caches whose types have changed are
+ * re-created under a new name, leaving the old data in the file, so delete the cache file and manifest from time to
+ * time to reclaim space.
+ */
+public class PersistentCaches extends MapDBCaches {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistentCaches.class);
+
+    private static final String CACHE = "cache.";
+    private static final String CREATOR = "creator.";
+    private static final String TYPES = ".types";
+    private static final String VERSION = ".version";
+    private static final String FINGERPRINT = ".fingerprint";
+
+    private final File manifestFile;
+    private final DataLocator inputLocator;
+    private final Properties manifest = new Properties();
+    private final Map<String, ReusableCache> reusableCaches = new HashMap<>();
+    private final Set<String> reopened = new HashSet<>();
+
+    /**
+     * Create new caches.
+     *
+     * @param config       import config.
+     * @param inputLocator locator of import input data, used to fingerprint the input of importers. Must not be <code>null</code>.
+     */
+    public PersistentCaches(ImportConfig config, DataLocator inputLocator) {
+        super(config, true);
+
+        Assert.notNull(inputLocator);
+
+        this.inputLocator = inputLocator;
+        this.manifestFile = new File(config.getCacheFile() + ".manifest");
+
+        if (manifestFile.isFile()) {
+            try (InputStream in = new FileInputStream(manifestFile)) {
+                manifest.load(in);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not load cache manifest " + manifestFile.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected synchronized Cache doCreateCache(DB db, String cacheName, Class<?> keyType, Class<?> valueType) {
+        String types = keyType.getName() + "," + valueType.getName();
+        String previousTypes = manifest.getProperty(CACHE + cacheName + TYPES);
+        int version = Integer.parseInt(manifest.getProperty(CACHE + cacheName + VERSION, "0"));
+
+        if (types.equals(previousTypes)) {
+            reopened.add(cacheName);
+        } else if (previousTypes != null) {
+            LOG.info("Types of cache " + cacheName + " changed from " + previousTypes + " to " + types + ", creating a new one");
+            version++;
+        }
+
+        manifest.setProperty(CACHE + cacheName + TYPES, types);
+        manifest.setProperty(CACHE + cacheName + VERSION, String.valueOf(version));
+        storeManifest();
+
+        ReusableCache cache = new ReusableCache<>(cacheName, new MapDBCache<>(db, cacheName + "." + version, getSerializer(keyType), getSerializer(valueType), true));
+        reusableCaches.put(cacheName, cache);
+        return cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean canReuse(Importer creator) {
+        String fingerprint = manifest.getProperty(CREATOR + creator.name() + FINGERPRINT);
+
+        if (fingerprint == null || !fingerprint.equals(fingerprint(creator))) {
+            return false;
+        }
+
+        for (String cacheName : createdCaches(creator)) {
+            if (!reopened.contains(cacheName)) {
+                return false;
+            }
+        }
+
+        for (String cacheName : createdCaches(creator)) {
+            reusableCaches.get(cacheName).readOnly = true;
+            LOG.info("Reusing cache " + cacheName + " with " + getCache(cacheName).size() + " entries");
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Clears the caches created by the importer and forgets its input fingerprint.
+     */
+    @Override
+    public synchronized void populating(Importer creator) {
+        manifest.remove(CREATOR + creator.name() + FINGERPRINT);
+        storeManifest();
+
+        for (String cacheName : createdCaches(creator)) {
+            getCache(cacheName).clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Commits the cache file and then records the input fingerprint of the importer, so that the manifest never
+     * claims caches that haven't made it to disk.
+     */
+    @Override
+    public synchronized void populated(Importer creator) {
+        commit();
+
+        manifest.setProperty(CREATOR + creator.name() + FINGERPRINT, fingerprint(creator));
+        storeManifest();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Caches are kept for the next run, so they are not cleared.
+     */
+    @Override
+    public void cleanup(Collection<Importer> unfinished) {
+        //no-op
+    }
+
+    /**
+     * Compute a fingerprint of an importer's input, which changes when the input changes.
+     *
+     * @param importer importer.
+     * @return fingerprint.
+     */
+    protected String fingerprint(Importer importer) {
+        Data data = importer.inputData();
+
+        if (!inputLocator.canLocate(data)) {
+            return data.name();
+        }
+
+        String location = inputLocator.locate(data);
+        File file = new File(location);
+
+        if (!file.isFile()) {
+            return location;
+        }
+
+        return location + ";" + file.length() + ";" + file.lastModified();
+    }
+
+    private void storeManifest() {
+        File temp = new File(manifestFile.getAbsolutePath() + ".tmp");
+
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                manifest.store(out, "Persistent caches");
+                out.getFD().sync();
+            }
+
+            Files.move(temp.toPath(), manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store cache manifest " + manifestFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * A cache that becomes read-only once it is known to be reused.
+     */
+    private static final class ReusableCache<K, V> implements Cache<K, V> {
+
+        private final String name;
+        private final Cache<K, V> cache;
+        private volatile boolean readOnly;
+
+        private ReusableCache(String name, Cache<K, V> cache) {
+            this.name = name;
+            this.cache = cache;
+        }
+
+        @Override
+        public int size() {
+            return cache.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return cache.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(K key) {
+            return cache.containsKey(key);
+        }
+
+        @Override
+        public V get(K key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public void put(K key, V value) {
+            checkWritable();
+            cache.put(key, value);
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            checkWritable();
+            return cache.putIfAbsent(key, value);
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+            V existing = cache.get(key);
+            if (existing != null) {
+                return existing;
+            }
+
+            checkWritable();
+            return cache.computeIfAbsent(key, function);
+        }
+
+        @Override
+        public void clear() {
+            checkWritable();
+            cache.clear();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return cache.entrySet();
+        }
+
+        private void checkWritable() {
+            if (readOnly) {
+                throw new IllegalStateException("Cache " + name + " has been reused from a previous run and is read-only");
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import org.mapdb.Serializer;
+import org.springframework.util.Assert;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of {@link Serializer}s for key and value types of {@link MapDBCache}s. Comes with compact serializers for
+ * primitive arrays, {@link String} arrays, {@link java.util.Date}s, tuples of primitives (<code>Object[]</code>) and
+ * enums, see {@link Serializers}. Serializers for other types can be registered.
+ * <p/>
+ * Serializers are looked up by the exact type, since a serializer for a supertype would deserialize values of a
+ * different class than was stored. Enums without a registered serializer are serialized by their ordinal.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class SerializerRegistry {
+
+    private final Map<Class<?>, Serializer<?>> registered = new HashMap<>();
+
+    /**
+     * Create a new registry with the built-in serializers registered.
+     */
+    public SerializerRegistry() {
+        register(long[].class, Serializer.LONG_ARRAY);
+        register(int[].class, Serializer.INT_ARRAY);
+        register(double[].class, Serializer.DOUBLE_ARRAY);
+        register(String[].class, Serializers.STRING_ARRAY);
+        register(java.util.Date.class, Serializer.DATE);
+        register(Object[].class, Serializers.TUPLE);
+    }
+
+    /**
+     * Register a serializer for the given type, replacing a previously registered one, if any.
+     *
+     * @param type       type. Must not be <code>null</code>.
+     * @param serializer serializer. Must not be <code>null</code>.
+     * @param <T>        type.
+     */
+    public synchronized <T> void register(Class<T> type, Serializer<T> serializer) {
+        Assert.notNull(type);
+        Assert.notNull(serializer);
+
+        registered.put(type, serializer);
+    }
+
+    /**
+     * Find a serializer for the given type.
+     *
+     * @param type type. Must not be <code>null</code>.
+     * @return serializer, <code>null</code> if none has been registered for the type.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized Serializer<?> find(Class<?> type) {
+        Assert.notNull(type);
+
+        Serializer<?> result = registered.get(type);
+
+        if (result == null && type.isEnum()) {
+            result = Serializers.forEnum((Class) type);
+            registered.put(type, result);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compact {@link Serializer}s for types commonly stored in {@link MapDBCache}s that MapDB has no serializer for, used
+ * instead of Java serialization. Primitive arrays and dates are handled by MapDB's own serializers, such as
+ * {@link Serializer#LONG_ARRAY} and {@link Serializer#DATE}.
+ * <p/>
+ * Integers and lengths are written as variable-length numbers, so that small values take fewer bytes. Array serializers
+ * compare and hash arrays by content, so arrays can be used as keys.
+ */
+public final class Serializers {
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_LONG = 1;
+    private static final int TAG_INTEGER = 2;
+    private static final int TAG_DOUBLE = 3;
+    private static final int TAG_BOOLEAN = 4;
+    private static final int TAG_STRING = 5;
+
+    /**
+     * Serializer for <code>String[]</code>, which may contain <code>null</code> elements.
+     */
+    public static final Serializer<String[]> STRING_ARRAY = new StringArraySerializer();
+
+    /**
+     * Serializer for tuples of primitives, i.e., <code>Object[]</code> with {@link Long}, {@link Integer}, {@link Double},
+     * {@link Boolean}, {@link String} or <code>null</code> elements.
+     */
+    public static final Serializer<Object[]> TUPLE = new TupleSerializer();
+
+    private Serializers() {
+    }
+
+    /**
+     * Create a serializer for an enum, which stores the ordinal of enum constants. Note that the values stored in a
+     * cache file become invalid when the order of the constants changes.
+     *
+     * @param type enum type. Must not be <code>null</code>.
+     * @param <E>  enum type.
+     * @return serializer.
+     */
+    public static <E extends Enum<E>> Serializer<E> forEnum(Class<E> type) {
+        Assert.notNull(type);
+
+        return new EnumSerializer<>(type);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeString(DataOutput2 out, String value) throws IOException {
+        out.packInt(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            out.packInt(value.charAt(i));
+        }
+    }
+
+    private static String readString(DataInput2 in) throws IOException {
+        char[] chars = new char[in.unpackInt()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) in.unpackInt();
+        }
+        return new String(chars);
+    }
+
+    private static final class StringArraySerializer implements Serializer<String[]> {
+
+        @Override
+        public void serialize(DataOutput2 out, String[] value) throws IOException {
+            out.packInt(value.length);
+            for (String s : value) {
+                out.writeBoolean(s != null);
+                if (s != null) {
+                    writeString(out, s);
+                }
+            }
+        }
+
+        @Override
+        public String[] deserialize(DataInput2 in, int available) throws IOException {
+            String[] result = new String[in.unpackInt()];
+            for (int i = 0; i < result.length; i++) {
+                if (in.readBoolean()) {
+                    result[i] = readString(in);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(String[] first, String[] second) {
+            return Arrays.equals(first, second);
+        }
+
+        @Override
+        public int hashCode(String[] value, int seed) {
+            return Arrays.hashCode(value) + seed;
+        }
+    }
+
+    private static final class TupleSerializer implements Serializer<Object[]> {
+
+        @Override
+        public void serialize(DataOutput2 out, Object[] value) throws IOException {
+            out.packInt(value.length);
+            for (Object o : value) {
+                if (o == null) {
+                    out.writeByte(TAG_NULL);
+                } else if (o instanceof Long) {
+                    out.writeByte(TAG_LONG);
+                    out.packLong(zigZag((Long) o));
+                } else if (o instanceof Integer) {
+                    out.writeByte(TAG_INTEGER);
+                    out.packLong(zigZag((Integer) o));
+                } else if (o instanceof Double) {
+                    out.writeByte(TAG_DOUBLE);
+                    out.writeDouble((Double) o);
+                } else if (o instanceof Boolean) {
+                    out.writeByte(TAG_BOOLEAN);
+                    out.writeBoolean((Boolean) o);
+                } else if (o instanceof String) {
+                    out.writeByte(TAG_STRING);
+                    writeString(out, (String) o);
+                } else {
+                    throw new IllegalArgumentException("Tuples can not contain " + o.getClass().getName());
+                }
+            }
+        }
+
+        @Override
+        public Object[] deserialize(DataInput2 in, int available) throws IOException {
+            Object[] result = new Object[in.unpackInt()];
+            for (int i = 0; i < result.length; i++) {
+                int type = in.readByte();
+                switch (type) {
+                    case TAG_NULL:
+                        break;
+                    case TAG_LONG:
+                        result[i] = unZigZag(in.unpackLong());
+                        break;
+                    case TAG_INTEGER:
+                        result[i] = (int) unZigZag(in.unpackLong());
+                        break;
+                    case TAG_DOUBLE:
+                        result[i] = in.readDouble();
+                        break;
+                    case TAG_BOOLEAN:
+                        result[i] = in.readBoolean();
+                        break;
+                    case TAG_STRING:
+                        result[i] = readString(in);
+                        break;
+                    default:
+                        throw new IOException("Unknown tuple element type " + type);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object[] first, Object[] second) {
+            return Arrays.equals(first, second);
+        }
+
+        @Override
+        public int hashCode(Object[] value, int seed) {
+            return Arrays.hashCode(value) + seed;
+        }
+    }
+
+    private static final class EnumSerializer<E extends Enum<E>> implements Serializer<E> {
+
+        private final E[] constants;
+
+        private EnumSerializer(Class<E> type) {
+            this.constants = type.getEnumConstants();
+        }
+
+        @Override
+        public void serialize(DataOutput2 out, E value) throws IOException {
+            out.packInt(value.ordinal());
+        }
+
+        @Override
+        public E deserialize(DataInput2 in, int available) throws IOException {
+            return constants[in.unpackInt()];
+        }
+    }
+}
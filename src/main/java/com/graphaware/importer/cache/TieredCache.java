@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import org.springframework.util.Assert;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * {@link Cache} with a small in-heap tier of recently used entries in front of a (typically memory-mapped) cold tier,
+ * which holds all the entries.
+ * <p/>
+ * Writes go straight to the cold tier and only update entries that are already in the hot tier. Entries get into the
+ * hot tier when they are read, so that the hot tier holds the working set of lookups rather than whatever has been
+ * written last. The hot tier is split into segments, each of which evicts its least recently used entries as soon as
+ * it exceeds its share of the cache's memory budget. When a global {@link MemoryBudget} shared with other caches is
+ * exceeded, least recently used entries are evicted from whichever of the caches uses the most memory, across all its
+ * segments. Memory used by entries is estimated, see {@link #estimateSize(Object)}.
+ * <p/>
+ * A value read from the cold tier is re-read under the segment's lock before it is promoted if the segment has been
+ * written to in the meantime, so that a concurrent write never leaves a stale value in the hot tier.
+ * <p/>
+ * This class is thread-safe, provided that the cold tier is.
+ *
+ * @param <K> key type.
+ * @param <V> value type.
+ */
+public class TieredCache<K, V> implements Cache<K, V>, MemoryBudget.Reclaimable {
+
+    private static final int SEGMENTS = 16;
+    private static final long ENTRY_OVERHEAD = 64;
+
+    private final String name;
+    private final Cache<K, V> cold;
+    private final MemoryBudget globalBudget;
+    private final long segmentBudget;
+    private final Segment<K, V>[] segments;
+    private final AtomicLong weight = new AtomicLong();
+    private final AtomicInteger nextReclaimed = new AtomicInteger();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final KeyLocks locks = new KeyLocks();
+
+    /**
+     * Create a new cache.
+     *
+     * @param name         name of the cache, for reporting. Must not be <code>null</code> or empty.
+     * @param cold         cold tier holding all the entries. Must not be <code>null</code>.
+     * @param budget       maximum number of bytes used by the hot tier of this cache. Must not be negative.
+     * @param globalBudget budget shared by multiple caches. Must not be <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public TieredCache(String name, Cache<K, V> cold, long budget, MemoryBudget globalBudget) {
+        Assert.hasLength(name);
+        Assert.notNull(cold);
+        Assert.isTrue(budget >= 0);
+        Assert.notNull(globalBudget);
+
+        this.name = name;
+        this.cold = cold;
+        this.globalBudget = globalBudget;
+        this.segmentBudget = budget / SEGMENTS;
+        this.segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>();
+        }
+
+        globalBudget.register(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return cold.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return cold.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(K key) {
+        if (key == null) {
+            return false;
+        }
+
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            if (segment.entries.containsKey(key)) {
+                hits.increment();
+                return true;
+            }
+        }
+
+        misses.increment();
+        return cold.containsKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V get(K key) {
+        if (key == null) {
+            return null;
+        }
+
+        Segment<K, V> segment = segment(key);
+        long writes;
+        synchronized (segment) {
+            Weighted<V> hot = segment.entries.get(key);
+            if (hot != null) {
+                hits.increment();
+                return hot.value;
+            }
+            writes = segment.writes;
+        }
+
+        misses.increment();
+
+        V value = cold.get(key);
+        if (value != null) {
+            synchronized (segment) {
+                if (segment.writes != writes) {
+                    //the value read may have been overwritten concurrently, don't promote a stale one
+                    value = cold.get(key);
+                }
+                if (value != null) {
+                    promote(segment, key, value);
+                }
+            }
+
+            reclaimIfExceeded();
+        }
+
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(K key, V value) {
+        cold.put(key, value);
+
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.writes++;
+            if (segment.entries.containsKey(key)) {
+                promote(segment, key, value);
+            }
+        }
+
+        reclaimIfExceeded();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return locks.putIfAbsent(this, key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+        return locks.computeIfAbsent(this, key, function);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                globalBudget.release(segment.weight);
+                weight.addAndGet(-segment.weight);
+                segment.entries.clear();
+                segment.weight = 0;
+            }
+        }
+
+        cold.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return cold.entrySet();
+    }
+
+    /**
+     * @return name of the cache.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the cold tier.
+     */
+    public Cache<K, V> getCold() {
+        return cold;
+    }
+
+    /**
+     * @return number of lookups answered by the hot tier.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of lookups that had to go to the cold tier.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of entries evicted from the hot tier.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return estimated number of bytes used by the hot tier.
+     */
+    public long getMemoryUsage() {
+        return weight.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long usage() {
+        return weight.get();
+    }
+
+    /**
+     * Evict least recently used entries from the hot tier, one segment at a time, starting with a different segment
+     * each time so that no segment pays for all the others.
+     *
+     * @param bytes number of bytes to release at least, if possible.
+     * @return number of bytes released.
+     */
+    @Override
+    public long reclaim(long bytes) {
+        long released = 0;
+        int first = nextReclaimed.getAndIncrement();
+
+        for (int i = 0; i < SEGMENTS && released < bytes; i++) {
+            Segment<K, V> segment = segments[(first + i) & (SEGMENTS - 1)];
+            synchronized (segment) {
+                released += evict(segment, bytes - released);
+            }
+        }
+
+        return released;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+
+        return name + ": " + hits + " hits, " + (lookups - hits) + " misses (" + (lookups == 0 ? 0 : hits * 100 / lookups) + "% hit rate), "
+                + getEvictions() + " evictions, " + getMemoryUsage() / 1024 + " KB in heap";
+    }
+
+    /**
+     * Put an entry into the hot tier and evict least recently used entries from the segment while over its budget. Must
+     * be called while holding the segment's lock.
+     *
+     * @param segment segment of the key.
+     * @param key     key.
+     * @param value   value.
+     */
+    private void promote(Segment<K, V> segment, K key, V value) {
+        Weighted<V> hot = new Weighted<>(value, ENTRY_OVERHEAD + estimateSize(key) + estimateSize(value));
+        Weighted<V> previous = segment.entries.put(key, hot);
+
+        long delta = hot.weight - (previous == null ? 0 : previous.weight);
+        segment.weight += delta;
+        weight.addAndGet(delta);
+        globalBudget.take(delta);
+
+        evict(segment, segment.weight - segmentBudget);
+    }
+
+    /**
+     * Evict least recently used entries from a segment. Must be called while holding the segment's lock.
+     *
+     * @param segment to evict from.
+     * @param bytes   number of bytes to release at least, if possible.
+     * @return number of bytes released.
+     */
+    private long evict(Segment<K, V> segment, long bytes) {
+        long released = 0;
+
+        Iterator<Weighted<V>> iterator = segment.entries.values().iterator();
+        while (iterator.hasNext() && released < bytes) {
+            released += iterator.next().weight;
+            iterator.remove();
+            evictions.increment();
+        }
+
+        segment.weight -= released;
+        weight.addAndGet(-released);
+        globalBudget.release(released);
+
+        return released;
+    }
+
+    /**
+     * Make the caches sharing the global budget release memory if it is exceeded. Must not be called while holding
+     * the lock of a segment, so that caches never wait for each other's locks while holding their own.
+     */
+    private void reclaimIfExceeded() {
+        if (globalBudget.isExceeded()) {
+            globalBudget.reclaim();
+        }
+    }
+
+    private Segment<K, V> segment(K key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Estimate the number of bytes taken by an object on the heap. Accurate for boxed primitives, strings and arrays
+     * of those, a rough guess for anything else.
+     *
+     * @param object to estimate.
+     * @return number of bytes.
+     */
+    protected static long estimateSize(Object object) {
+        if (object == null) {
+            return 0;
+        }
+        if (object instanceof String) {
+            return 40 + 2 * ((String) object).length();
+        }
+        if (object instanceof Long || object instanceof Double) {
+            return 24;
+        }
+        if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            return 16;
+        }
+        if (object instanceof long[]) {
+            return 16 + 8 * ((long[]) object).length;
+        }
+        if (object instanceof int[]) {
+            return 16 + 4 * ((int[]) object).length;
+        }
+        if (object instanceof Object[]) {
+            long result = 16 + 4 * ((Object[]) object).length;
+            for (Object element : (Object[]) object) {
+                result += estimateSize(element);
+            }
+            return result;
+        }
+        return 64;
+    }
+
+    /**
+     * A segment of the hot tier, ordered from the least to the most recently used entry.
+     */
+    private static final class Segment<K, V> {
+
+        private final LinkedHashMap<K, Weighted<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+        private long writes;
+    }
+
+    /**
+     * A value in the hot tier with the estimated size of its entry.
+     */
+    private static final class Weighted<V> {
+
+        private final V value;
+        private final long weight;
+
+        private Weighted(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import com.graphaware.importer.config.ImportConfig;
+import com.graphaware.importer.importer.Importer;
+import org.mapdb.DB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * {@link OffHeapCaches} that put a {@link TieredCache} in front of every {@link MapDBCache}, so that frequently looked up
+ * entries are served from the heap without deserialization, while the memory-mapped MapDB file holds all the entries.
+ * The heap used by the in-heap tiers of all caches is limited by a global budget, and the heap used by each cache by
+ * {@link #memoryBudget(String)}. The budgets don't cover the memory-mapped files, which are off heap.
+ * <p/>
+ * {@link LongCache}s are not tiered, since a lookup in their memory-mapped table is cheaper than in a map of boxed longs.
+ */
+public class TieredCaches extends OffHeapCaches {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TieredCaches.class);
+
+    private final MemoryBudget globalBudget;
+    private final List<TieredCache> tieredCaches = new LinkedList<>();
+
+    /**
+     * Create new caches.
+     *
+     * @param config       import config.
+     * @param memoryBudget maximum number of bytes in heap used by the in-heap tiers of all caches together. Must not be negative.
+     */
+    public TieredCaches(ImportConfig config, long memoryBudget) {
+        super(config);
+
+        Assert.isTrue(memoryBudget >= 0);
+
+        this.globalBudget = new MemoryBudget(memoryBudget);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Cache doCreateCache(DB db, String cacheName, Class<?> keyType, Class<?> valueType) {
+        Cache cache = super.doCreateCache(db, cacheName, keyType, valueType);
+
+        if (cache instanceof LongCache) {
+            return cache;
+        }
+
+        TieredCache tiered = new TieredCache<>(cacheName, cache, memoryBudget(cacheName), globalBudget);
+        tieredCaches.add(tiered);
+        return tiered;
+    }
+
+    /**
+     * Get the maximum number of bytes in heap used by a cache. Defaults to the global budget, i.e., caches share the
+     * global budget on a first-come, first-served basis. Intended to be overridden.
+     *
+     * @param cacheName name of the cache.
+     * @return memory budget of the cache in bytes.
+     */
+    protected long memoryBudget(String cacheName) {
+        return globalBudget.getLimit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cleanup(Collection<Importer> unfinished) {
+        super.cleanup(unfinished);
+
+        logStatistics();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy() {
+        logStatistics();
+
+        tieredCaches.clear();
+
+        super.destroy();
+    }
+
+    /**
+     * Get the tiered caches created so far.
+     *
+     * @return tiered caches.
+     */
+    public List<TieredCache> getTieredCaches() {
+        return tieredCaches;
+    }
+
+    /**
+     * @return the budget shared by all caches.
+     */
+    public MemoryBudget getGlobalBudget() {
+        return globalBudget;
+    }
+
+    private void logStatistics() {
+        for (TieredCache cache : tieredCaches) {
+            LOG.info(cache.toString());
+        }
+        LOG.info("Caches use " + globalBudget.getUsed() / 1024 + " KB of " + globalBudget.getLimit() / 1024 + " KB heap budget");
+    }
+}
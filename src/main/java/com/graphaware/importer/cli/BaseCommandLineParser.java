@@ -59,6 +59,9 @@ public abstract class BaseCommandLineParser<T extends ImportConfig> implements C
         LOG.info("\tOutput: " + outputDir);
         LOG.info("\tProps: " + props);
         LOG.info("\tCache File: " + cacheFile);
+        LOG.info("\tResume: " + isResume(line));
+        LOG.info("\tMetrics Port: " + getMetricsPort(line));
+        LOG.info("\tMetrics Interval: " + getMetricsInterval(line));
 
         return doProduceConfig(line, graphDir, outputDir, props, cacheFile);
     }
@@ -86,6 +89,9 @@ public abstract class BaseCommandLineParser<T extends ImportConfig> implements C
         options.addOption(new Option("o", "output", true, "use given directory to output auxiliary files, such as statistics"));
         options.addOption(new Option("r", "properties", true, "use given file as neo4j properties"));
         options.addOption(new Option("c", "cachefile", true, "use given file as temporary cache on disk"));
+        options.addOption(new Option("R", "resume", false, "resume a failed import, running only importers that haven't finished"));
+        options.addOption(new Option("W", "metricsport", true, "serve live metrics over HTTP on given port, not served over HTTP if not specified"));
+        options.addOption(new Option("L", "metricsinterval", true, "log a summary of live metrics every given number of seconds, 60 if not specified"));
 
         addOptions(options);
 
@@ -113,6 +119,36 @@ public abstract class BaseCommandLineParser<T extends ImportConfig> implements C
         return line.getOptionValue(opt, defaultValue);
     }
 
+    /**
+     * Check whether a previously failed import should be resumed.
+     *
+     * @param line command line.
+     * @return <code>true</code> iff the resume option is present.
+     */
+    protected final boolean isResume(CommandLine line) {
+        return line.hasOption("R");
+    }
+
+    /**
+     * Get the port on which live metrics should be served over HTTP.
+     *
+     * @param line command line.
+     * @return port, 0 if the metrics port option isn't present.
+     */
+    protected final int getMetricsPort(CommandLine line) {
+        return Integer.valueOf(getOptionalValue(line, "W", "0"));
+    }
+
+    /**
+     * Get the interval at which a summary of live metrics should be logged.
+     *
+     * @param line command line.
+     * @return interval in seconds, 60 if the metrics interval option isn't present.
+     */
+    protected final long getMetricsInterval(CommandLine line) {
+        return Long.valueOf(getOptionalValue(line, "L", "60"));
+    }
+
     /**
      * Convenience method for getting a mandatory command line value.
      *
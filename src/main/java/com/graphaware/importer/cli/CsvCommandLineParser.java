@@ -18,17 +18,47 @@ package com.graphaware.importer.cli;
 import com.graphaware.importer.config.CsvImportConfig;
 import com.graphaware.importer.config.FileImportConfig;
 import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
 
 /**
  * Implementation of {@link com.graphaware.importer.cli.CommandLineParser} for CSV imports.
  */
 public class CsvCommandLineParser extends FileCommandLineParser<FileImportConfig> {
 
+    private static final Logger LOG = LoggerFactory.getLogger(CsvCommandLineParser.class);
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected FileImportConfig doProduceConfig(CommandLine line, String graphDir, String outputDir, String props, String cacheFile, String inputDir) {
-        return new CsvImportConfig(graphDir, outputDir, props, cacheFile, inputDir);
+        Charset charset = Charset.forName(getOptionalValue(line, "e", Charset.defaultCharset().name()));
+        boolean memoryMapped = line.hasOption("M");
+        int parsers = Integer.valueOf(getOptionalValue(line, "P", "1"));
+        boolean ordered = !line.hasOption("U");
+
+        LOG.info("\tEncoding: " + charset);
+        LOG.info("\tMemory-mapped: " + memoryMapped);
+        LOG.info("\tParsers per file: " + parsers);
+        LOG.info("\tOrdered: " + ordered);
+
+        return new CsvImportConfig(graphDir, outputDir, props, cacheFile, inputDir, ',', '\"', charset, memoryMapped, parsers, ordered, isResume(line), getMetricsPort(line), getMetricsInterval(line));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void addOptions(Options options) {
+        super.addOptions(options);
+        options.addOption(new Option("e", "encoding", true, "use given charset to read input files, platform default if not specified"));
+        options.addOption(new Option("M", "mmap", false, "read input files using memory-mapped I/O"));
+        options.addOption(new Option("P", "parsers", true, "parse each input file using given number of threads, 1 if not specified"));
+        options.addOption(new Option("U", "unordered", false, "don't preserve the order of records when parsing each input file using multiple threads"));
     }
 }
@@ -27,6 +27,9 @@ public abstract class BaseImportConfig implements ImportConfig {
     private final String outputDir;
     private final String props;
     private final String cacheFile;
+    private final boolean resume;
+    private final int metricsPort;
+    private final long metricsInterval;
 
     /**
      * Construct a new config.
@@ -37,15 +40,35 @@ public abstract class BaseImportConfig implements ImportConfig {
      * @param cacheFile full path to file on disk that will be used as a cache.
      */
     protected BaseImportConfig(String graphDir, String outputDir, String props, String cacheFile) {
+        this(graphDir, outputDir, props, cacheFile, false, 0, 60);
+    }
+
+    /**
+     * Construct a new config.
+     *
+     * @param graphDir        directory where the database will be stored. Must not be <code>null</code> or empty.
+     * @param outputDir       directory where other files produced by the import will be stored. Must not be <code>null</code> or empty.
+     * @param props           path to Neo4j properties used during the import. Must not be <code>null</code> or empty.
+     * @param cacheFile       full path to file on disk that will be used as a cache.
+     * @param resume          <code>true</code> to resume a previously failed import.
+     * @param metricsPort     port to serve live metrics over HTTP on, 0 for not serving them over HTTP.
+     * @param metricsInterval interval between logged summaries of live metrics in seconds. Must be positive.
+     */
+    protected BaseImportConfig(String graphDir, String outputDir, String props, String cacheFile, boolean resume, int metricsPort, long metricsInterval) {
         Assert.hasLength(graphDir);
         Assert.hasLength(outputDir);
         Assert.hasLength(props);
         Assert.hasLength(cacheFile);
+        Assert.isTrue(metricsPort >= 0);
+        Assert.isTrue(metricsInterval > 0);
 
         this.graphDir = graphDir;
         this.outputDir = outputDir;
         this.props = props;
         this.cacheFile = cacheFile;
+        this.resume = resume;
+        this.metricsPort = metricsPort;
+        this.metricsInterval = metricsInterval;
     }
 
     /**
@@ -79,4 +102,28 @@ public abstract class BaseImportConfig implements ImportConfig {
     public String getCacheFile() {
         return cacheFile;
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMetricsInterval() {
+        return metricsInterval;
+    }
 }
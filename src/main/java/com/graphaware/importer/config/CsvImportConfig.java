@@ -17,6 +17,11 @@ package com.graphaware.importer.config;
 
 import com.graphaware.importer.data.access.CsvDataReader;
 import com.graphaware.importer.data.access.DataReader;
+import com.graphaware.importer.data.access.MappedCsvDataReader;
+import com.graphaware.importer.data.access.ParallelCsvDataReader;
+import org.springframework.util.Assert;
+
+import java.nio.charset.Charset;
 
 /**
  * {@link com.graphaware.importer.config.ImportConfig} implementation for CSV file-based import.
@@ -25,10 +30,48 @@ public class CsvImportConfig extends FileImportConfig {
 
     private final char delimiter;
     private final char quote;
+    private final Charset charset;
+    private final boolean memoryMapped;
+    private final int parsers;
+    private final boolean ordered;
 
     /**
      * Construct a new config.
      *
+     * @param graphDir        directory where the database will be stored. Must not be <code>null</code> or empty.
+     * @param outputDir       directory where other files produced by the import will be stored. Must not be <code>null</code> or empty.
+     * @param props           path to Neo4j properties used during the import. Must not be <code>null</code> or empty.
+     * @param cacheFile       full path to file on disk that will be used as a cache.
+     * @param inputDir        directory where input files will be searched. Must not be <code>null</code> or empty.
+     * @param delimiter       CSV file delimiter.
+     * @param quote           CSV file quote character.
+     * @param charset         CSV file charset. Must not be <code>null</code>.
+     * @param memoryMapped    <code>true</code> for reading files using {@link MappedCsvDataReader}, <code>false</code> for {@link CsvDataReader}.
+     * @param parsers         number of threads parsing each file. If greater than 1, files are read using {@link ParallelCsvDataReader}. Must be positive.
+     * @param ordered         <code>true</code> iff records parsed by multiple threads should be read in the order in which they appear in the file.
+     *                        Only relevant when <code>parsers</code> is greater than 1.
+     * @param resume          <code>true</code> to resume a previously failed import.
+     * @param metricsPort     port to serve live metrics over HTTP on, 0 for not serving them over HTTP.
+     * @param metricsInterval interval between logged summaries of live metrics in seconds. Must be positive.
+     */
+    public CsvImportConfig(String graphDir, String outputDir, String props, String cacheFile, String inputDir, char delimiter, char quote, Charset charset, boolean memoryMapped, int parsers, boolean ordered, boolean resume, int metricsPort, long metricsInterval) {
+        super(graphDir, outputDir, props, cacheFile, inputDir, resume, metricsPort, metricsInterval);
+
+        Assert.notNull(charset);
+        Assert.isTrue(parsers > 0);
+
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.charset = charset;
+        this.memoryMapped = memoryMapped;
+        this.parsers = parsers;
+        this.ordered = ordered;
+    }
+
+    /**
+     * Construct a new config for a fresh import, reading files in the platform's default charset using {@link CsvDataReader}
+     * and logging a summary of live metrics every minute.
+     *
      * @param graphDir  directory where the database will be stored. Must not be <code>null</code> or empty.
      * @param outputDir directory where other files produced by the import will be stored. Must not be <code>null</code> or empty.
      * @param props     path to Neo4j properties used during the import. Must not be <code>null</code> or empty.
@@ -38,9 +81,7 @@ public class CsvImportConfig extends FileImportConfig {
      * @param quote     CSV file quote character.
      */
     public CsvImportConfig(String graphDir, String outputDir, String props, String cacheFile, String inputDir, char delimiter, char quote) {
-        super(graphDir, outputDir, props, cacheFile, inputDir);
-        this.delimiter = delimiter;
-        this.quote = quote;
+        this(graphDir, outputDir, props, cacheFile, inputDir, delimiter, quote, Charset.defaultCharset(), false, 1, true, false, 0, 60);
     }
 
     /**
@@ -61,6 +102,30 @@ public class CsvImportConfig extends FileImportConfig {
      */
     @Override
     public DataReader createReader() {
-        return new CsvDataReader(delimiter, quote);
+        if (parsers > 1) {
+            return new ParallelCsvDataReader(delimiter, quote, charset, parsers, ordered);
+        }
+
+        if (memoryMapped) {
+            return new MappedCsvDataReader(delimiter, quote, charset);
+        }
+
+        return new CsvDataReader(delimiter, quote, charset);
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    public int getParsers() {
+        return parsers;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
     }
 }
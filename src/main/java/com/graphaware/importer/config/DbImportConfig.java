@@ -26,7 +26,11 @@ public abstract class DbImportConfig extends BaseImportConfig {
     private final String password;
 
     protected DbImportConfig(String graphDir, String outputDir, String props, String cacheFile, String dbHost, String dbPort, String user, String password) {
-        super(graphDir, outputDir, props, cacheFile);
+        this(graphDir, outputDir, props, cacheFile, dbHost, dbPort, user, password, false, 0, 60);
+    }
+
+    protected DbImportConfig(String graphDir, String outputDir, String props, String cacheFile, String dbHost, String dbPort, String user, String password, boolean resume, int metricsPort, long metricsInterval) {
+        super(graphDir, outputDir, props, cacheFile, resume, metricsPort, metricsInterval);
         this.dbHost = dbHost;
         this.dbPort = dbPort;
         this.user = user;
@@ -32,7 +32,23 @@ public abstract class FileImportConfig extends BaseImportConfig {
      * @param inputDir  directory where the input files will be read from.
      */
     protected FileImportConfig(String graphDir, String outputDir, String props, String cacheFile, String inputDir) {
-        super(graphDir, outputDir, props, cacheFile);
+        this(graphDir, outputDir, props, cacheFile, inputDir, false, 0, 60);
+    }
+
+    /**
+     * Construct a new config.
+     *
+     * @param graphDir        directory where the database will be stored. Must not be <code>null</code> or empty.
+     * @param outputDir       directory where other files produced by the import will be stored. Must not be <code>null</code> or empty.
+     * @param props           path to Neo4j properties used during the import. Must not be <code>null</code> or empty.
+     * @param cacheFile       full path to file on disk that will be used as a cache.
+     * @param inputDir        directory where the input files will be read from.
+     * @param resume          <code>true</code> to resume a previously failed import.
+     * @param metricsPort     port to serve live metrics over HTTP on, 0 for not serving them over HTTP.
+     * @param metricsInterval interval between logged summaries of live metrics in seconds. Must be positive.
+     */
+    protected FileImportConfig(String graphDir, String outputDir, String props, String cacheFile, String inputDir, boolean resume, int metricsPort, long metricsInterval) {
+        super(graphDir, outputDir, props, cacheFile, resume, metricsPort, metricsInterval);
         this.inputDir = inputDir;
     }
 
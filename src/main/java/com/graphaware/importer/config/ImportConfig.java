@@ -50,4 +50,29 @@ public interface ImportConfig {
      * @return path to file.
      */
     String getCacheFile();
+
+    /**
+     * Should a previously failed import be resumed, rather than starting from scratch?
+     *
+     * @return <code>true</code> iff the existing graph and caches should be reused and only unfinished importers run.
+     */
+    boolean isResume();
+
+    /**
+     * Get the port on which live metrics of the import are served over HTTP. Defaults to 0.
+     *
+     * @return port, 0 for metrics only being available over JMX and in the log.
+     */
+    default int getMetricsPort() {
+        return 0;
+    }
+
+    /**
+     * Get the interval at which a summary of live metrics of the import is logged. Defaults to 60 seconds.
+     *
+     * @return interval in seconds.
+     */
+    default long getMetricsInterval() {
+        return 60;
+    }
 }
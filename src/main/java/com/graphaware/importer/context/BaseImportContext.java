@@ -16,7 +16,13 @@
 package com.graphaware.importer.context;
 
 import com.graphaware.importer.config.ImportConfig;
+import com.graphaware.importer.index.LegacyIndexes;
+import com.graphaware.importer.inserter.SingleWriterBatchInserter;
 import com.graphaware.importer.inserter.SynchronizedBatchInserter;
+import com.graphaware.importer.inserter.TimingBatchInserter;
+import com.graphaware.importer.schema.SchemaBuilder;
+import com.graphaware.importer.stats.Gauge;
+import com.graphaware.importer.stats.ImportMetrics;
 import com.graphaware.importer.stats.LoggingStatisticsCollector;
 import com.graphaware.importer.stats.StatisticsCollector;
 import org.neo4j.index.impl.lucene.LuceneBatchInserterIndexProviderNewImpl;
@@ -30,6 +36,8 @@ import org.springframework.util.Assert;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -46,8 +54,13 @@ abstract class BaseImportContext implements ImportContext {
 
     protected final ImportConfig config;
 
+    private BatchInserter rawInserter;
     private BatchInserter inserter;
     private BatchInserterIndexProvider indexProvider;
+    private LegacyIndexes legacyIndexes;
+    private Checkpoint checkpoint;
+    private ImportMetrics metrics;
+    private SchemaBuilder schema;
 
     /**
      * Create a new import context with the given config.
@@ -76,13 +89,59 @@ abstract class BaseImportContext implements ImportContext {
         return indexProvider;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final LegacyIndexes legacyIndexes() {
+        return legacyIndexes;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final Checkpoint checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final SchemaBuilder schema() {
+        return schema;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final ImportMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return {@link ImportConfig#getOutputDir()}.
+     */
+    @Override
+    public File outputDirectory() {
+        return new File(config.getOutputDir());
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public final void essentialBootstrap() {
+        checkpoint = createCheckpoint();
+        metrics = createMetrics();
         inserter = createBatchInserter();
         indexProvider = createIndexProvider();
+        legacyIndexes = createLegacyIndexes();
+        schema = createSchemaBuilder();
     }
 
     /**
@@ -138,6 +197,24 @@ abstract class BaseImportContext implements ImportContext {
      */
     @Override
     public final void shutdown() {
+        shutdown(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final void shutdownAfterFailure() {
+        shutdown(false);
+    }
+
+    /**
+     * Shutdown the context. The checkpoint is only marked as cleanly shut down once everything else, including building
+     * the schema, has succeeded.
+     *
+     * @param buildSchema <code>true</code> iff the schema declared by importers should be built.
+     */
+    private void shutdown(boolean buildSchema) {
         ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
         executor.scheduleAtFixedRate(new Runnable() {
             @Override
@@ -146,15 +223,27 @@ abstract class BaseImportContext implements ImportContext {
             }
         }, 1, 1, TimeUnit.MINUTES);
 
-        preShutdown();
+        try {
+            preShutdown();
+
+            legacyIndexes.flush();
 
-        indexProvider().shutdown();
+            indexProvider().shutdown();
+
+            inserter().shutdown();
+
+            if (buildSchema) {
+                schema.build();
+            }
 
-        inserter().shutdown();
+            checkpoint.shutDownCleanly();
 
-        postShutdown();
+            postShutdown();
+        } finally {
+            executor.shutdownNow();
 
-        executor.shutdownNow();
+            metrics.stop();
+        }
     }
 
     /**
@@ -172,16 +261,118 @@ abstract class BaseImportContext implements ImportContext {
     }
 
     /**
-     * Create a {@link org.neo4j.unsafe.batchinsert.BatchInserter}.
+     * Create a checkpoint of this import, stored in the graph directory, so that it is discarded together with the graph.
+     *
+     * @return checkpoint.
+     * @throws IllegalStateException if the import should be resumed but can't be.
+     */
+    protected Checkpoint createCheckpoint() {
+        return new Checkpoint(new File(config.getGraphDir(), "import-checkpoint.properties"), config.isResume());
+    }
+
+    /**
+     * Create and start live metrics of the import, reporting memory usage of the JVM out of the box. Override to report
+     * additional collectors or to use a subclass of {@link ImportMetrics}. The returned metrics are stopped when the
+     * context is shut down, even if the shutdown fails.
+     *
+     * @return metrics.
+     */
+    protected ImportMetrics createMetrics() {
+        ImportMetrics result = new ImportMetrics(metricsPort(), metricsInterval());
+
+        StatisticsCollector jvm = createStatistics("JVM");
+        jvm.gauge("Memory", "Heap Used (MB)", new Gauge() {
+            @Override
+            public long get() {
+                return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+            }
+        });
+        jvm.gauge("Memory", "Heap Max (MB)", new Gauge() {
+            @Override
+            public long get() {
+                return Runtime.getRuntime().maxMemory() >> 20;
+            }
+        });
+        for (final BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            jvm.gauge("Memory", "Off-Heap " + pool.getName() + " (MB)", new Gauge() {
+                @Override
+                public long get() {
+                    return pool.getMemoryUsed() >> 20;
+                }
+            });
+        }
+        result.register("JVM", jvm);
+
+        result.start();
+
+        return result;
+    }
+
+    /**
+     * Get the port on which live metrics are served over HTTP. Defaults to {@link ImportConfig#getMetricsPort()}.
+     *
+     * @return port, 0 for not serving metrics over HTTP.
+     */
+    protected int metricsPort() {
+        return config.getMetricsPort();
+    }
+
+    /**
+     * Get the interval at which a summary of live metrics is logged. Defaults to {@link ImportConfig#getMetricsInterval()}.
+     *
+     * @return interval in seconds.
+     */
+    protected long metricsInterval() {
+        return config.getMetricsInterval();
+    }
+
+    /**
+     * Create a {@link org.neo4j.unsafe.batchinsert.BatchInserter}, which records the time spent in each of its methods
+     * in the "Inserter" live metrics.
      *
      * @return batch inserter.
      */
     protected final BatchInserter createBatchInserter() {
         try {
-            return new SynchronizedBatchInserter(BatchInserters.inserter(new File(config.getGraphDir()), new HashMap<String, String>((Map) getProperties())));
+            rawInserter = BatchInserters.inserter(new File(config.getGraphDir()), new HashMap<String, String>((Map) getProperties()));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+
+        final BatchInserter wrapped = wrapBatchInserter(rawInserter);
+
+        StatisticsCollector stats = createStatistics("Inserter");
+        if (wrapped instanceof SingleWriterBatchInserter) {
+            stats.gauge("Inserter", "Pending Operations", new Gauge() {
+                @Override
+                public long get() {
+                    return ((SingleWriterBatchInserter) wrapped).pendingOperations();
+                }
+            });
+            stats.gauge("Inserter", "Failed Operations", new Gauge() {
+                @Override
+                public long get() {
+                    return ((SingleWriterBatchInserter) wrapped).failedOperations();
+                }
+            });
+        }
+        metrics.register("Inserter", stats);
+
+        return new TimingBatchInserter(wrapped, stats);
+    }
+
+    /**
+     * Wrap the {@link org.neo4j.unsafe.batchinsert.BatchInserter} so that it can be used by multiple importers concurrently.
+     * Wraps it in a {@link com.graphaware.importer.inserter.SynchronizedBatchInserter} by default, override to use
+     * a {@link com.graphaware.importer.inserter.SingleWriterBatchInserter}, which scales better with many importers running in parallel.
+     * Note that the latter waits for a round trip to its writer thread for every relationship created, so it doesn't
+     * suit imports creating mostly relationships.
+     *
+     * @param batchInserter to wrap.
+     * @return thread-safe batch inserter.
+     */
+    protected BatchInserter wrapBatchInserter(BatchInserter batchInserter) {
+        return new SynchronizedBatchInserter(batchInserter);
     }
 
     /**
@@ -200,12 +391,52 @@ abstract class BaseImportContext implements ImportContext {
         return properties;
     }
 
+    /**
+     * Create a builder of the schema declared by importers, using the same database properties as the batch inserter.
+     *
+     * @return schema builder.
+     */
+    protected SchemaBuilder createSchemaBuilder() {
+        return new SchemaBuilder(new File(config.getGraphDir()), new HashMap<String, String>((Map) getProperties()));
+    }
+
     /**
      * Create a {@link org.neo4j.unsafe.batchinsert.BatchInserterIndexProvider}.
      *
      * @return index provider.
      */
     protected final BatchInserterIndexProvider createIndexProvider() {
-        return new LuceneBatchInserterIndexProviderNewImpl(((SynchronizedBatchInserter) inserter).getBatchInserter());
+        return new LuceneBatchInserterIndexProviderNewImpl(rawInserter);
+    }
+
+    /**
+     * Create {@link com.graphaware.importer.index.LegacyIndexes} wrapping indexes from {@link #indexProvider()}, which
+     * report their metrics under "Legacy Indexes".
+     *
+     * @return legacy indexes.
+     */
+    protected final LegacyIndexes createLegacyIndexes() {
+        StatisticsCollector stats = createStatistics("Legacy Indexes");
+        metrics.register("Legacy Indexes", stats);
+
+        return new LegacyIndexes(indexProvider, stats, legacyIndexFlushInterval(), legacyIndexCacheSize());
+    }
+
+    /**
+     * Get the maximum number of writes buffered by each legacy index before it is flushed. Defaults to 100,000.
+     *
+     * @return flush interval.
+     */
+    protected int legacyIndexFlushInterval() {
+        return 100_000;
+    }
+
+    /**
+     * Get the maximum number of lookups cached by each legacy index. Defaults to 100,000.
+     *
+     * @return cache size, 0 for no caching.
+     */
+    protected int legacyIndexCacheSize() {
+        return 100_000;
     }
 }
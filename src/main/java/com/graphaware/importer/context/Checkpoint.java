@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.context;
+
+import com.graphaware.importer.importer.Importer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Durable record of the progress of an import, at importer granularity, that allows a failed import to be resumed.
+ * <p/>
+ * It records which {@link Importer}s have started and finished, and whether the graph has been cleanly shut down since.
+ * Only a cleanly shut down graph (i.e., with all inserted data flushed to disk) can be resumed. An importer that has
+ * started but not finished may have inserted part of its data, which running it again would insert a second time.
+ * Every change is written to a temporary file, synced to disk and atomically moved over the previous version.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class Checkpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Checkpoint.class);
+
+    private static final String CLEAN = "clean";
+    private static final String STARTED = "started.";
+    private static final String FINISHED = "finished.";
+
+    private final File file;
+    private final Properties properties = new Properties();
+
+    /**
+     * Create a new checkpoint that is only kept in memory, so that the import can't be resumed.
+     */
+    public Checkpoint() {
+        this.file = null;
+    }
+
+    /**
+     * Create a new checkpoint.
+     *
+     * @param file   file holding the checkpoint. Must not be <code>null</code>.
+     * @param resume <code>true</code> to load the checkpoint of a previous import, which must exist and must have been
+     *               cleanly shut down. <code>false</code> to start with no finished importers.
+     * @throws IllegalStateException if the previous import can't be resumed.
+     */
+    public Checkpoint(File file, boolean resume) {
+        Assert.notNull(file);
+
+        this.file = file;
+
+        if (resume) {
+            if (!file.isFile()) {
+                throw new IllegalStateException("There is no checkpoint at " + file.getAbsolutePath() + ", the import can not be resumed");
+            }
+
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                throw new RuntimeException("Could not load checkpoint " + file.getAbsolutePath(), e);
+            }
+
+            if (!Boolean.parseBoolean(properties.getProperty(CLEAN))) {
+                throw new IllegalStateException("The previous import has not been shut down cleanly, the import can not be resumed");
+            }
+        }
+
+        properties.setProperty(CLEAN, "false");
+        store();
+    }
+
+    /**
+     * Check whether an importer has started, either in a previous run or in this one.
+     *
+     * @param importer to check.
+     * @return <code>true</code> iff the importer has started.
+     */
+    public synchronized boolean hasStarted(Importer importer) {
+        return properties.containsKey(STARTED + importer.name());
+    }
+
+    /**
+     * Record that an importer is about to insert data.
+     *
+     * @param importer that has started.
+     */
+    public synchronized void started(Importer importer) {
+        properties.setProperty(STARTED + importer.name(), "true");
+        store();
+    }
+
+    /**
+     * Check whether an importer has finished, either in a previous run or in this one.
+     *
+     * @param importer to check.
+     * @return <code>true</code> iff the importer has finished.
+     */
+    public synchronized boolean hasFinished(Importer importer) {
+        return properties.containsKey(FINISHED + importer.name());
+    }
+
+    /**
+     * Record that an importer has successfully finished.
+     *
+     * @param importer that has finished.
+     */
+    public synchronized void finished(Importer importer) {
+        properties.setProperty(FINISHED + importer.name(), "true");
+        store();
+    }
+
+    /**
+     * Record that the graph has been cleanly shut down, so that the import can be resumed.
+     */
+    public synchronized void shutDownCleanly() {
+        properties.setProperty(CLEAN, "true");
+        store();
+
+        if (file != null) {
+            LOG.info("Checkpoint stored in " + file.getAbsolutePath());
+        }
+    }
+
+    private void store() {
+        if (file == null) {
+            return;
+        }
+
+        File temp = new File(file.getAbsolutePath() + ".tmp");
+
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                properties.store(out, "Import checkpoint");
+                out.getFD().sync();
+            }
+
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not store checkpoint " + file.getAbsolutePath(), e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.context;
+
+import com.graphaware.importer.index.LegacyIndexes;
+import com.graphaware.importer.schema.DeferredSchemaBuilder;
+import com.graphaware.importer.schema.SchemaBuilder;
+import com.graphaware.importer.stats.ImportMetrics;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Holder of the objects returned by default methods of {@link ImportContext}, created once per context, so that
+ * contexts that don't provide their own get the same objects on every call.
+ */
+final class ContextDefaults {
+
+    private static final Map<ImportContext, ImportMetrics> METRICS = new WeakHashMap<>();
+    private static final Map<ImportContext, SchemaBuilder> SCHEMAS = new WeakHashMap<>();
+    private static final Map<ImportContext, LegacyIndexes> LEGACY_INDEXES = new WeakHashMap<>();
+    private static final Map<ImportContext, Checkpoint> CHECKPOINTS = new WeakHashMap<>();
+
+    private ContextDefaults() {
+    }
+
+    static synchronized ImportMetrics metrics(ImportContext context) {
+        ImportMetrics result = METRICS.get(context);
+        if (result == null) {
+            result = new ImportMetrics(0, 60);
+            METRICS.put(context, result);
+        }
+        return result;
+    }
+
+    static synchronized SchemaBuilder schema(ImportContext context) {
+        SchemaBuilder result = SCHEMAS.get(context);
+        if (result == null) {
+            result = new DeferredSchemaBuilder(context.inserter());
+            SCHEMAS.put(context, result);
+        }
+        return result;
+    }
+
+    static synchronized LegacyIndexes legacyIndexes(ImportContext context) {
+        LegacyIndexes result = LEGACY_INDEXES.get(context);
+        if (result == null) {
+            result = new LegacyIndexes(context.indexProvider(), context.createStatistics("Legacy Indexes"), 1, 0);
+            LEGACY_INDEXES.put(context, result);
+        }
+        return result;
+    }
+
+    static synchronized Checkpoint checkpoint(ImportContext context) {
+        Checkpoint result = CHECKPOINTS.get(context);
+        if (result == null) {
+            result = new Checkpoint();
+            CHECKPOINTS.put(context, result);
+        }
+        return result;
+    }
+}
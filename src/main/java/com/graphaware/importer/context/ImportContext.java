@@ -18,10 +18,15 @@ package com.graphaware.importer.context;
 import com.graphaware.importer.cache.Caches;
 import com.graphaware.importer.data.Data;
 import com.graphaware.importer.data.access.DataReader;
+import com.graphaware.importer.index.LegacyIndexes;
+import com.graphaware.importer.schema.SchemaBuilder;
+import com.graphaware.importer.stats.ImportMetrics;
 import com.graphaware.importer.stats.StatisticsCollector;
 import org.neo4j.unsafe.batchinsert.BatchInserter;
 import org.neo4j.unsafe.batchinsert.BatchInserterIndexProvider;
 
+import java.io.File;
+
 /**
  * Context for an import.
  */
@@ -53,6 +58,40 @@ public interface ImportContext {
      */
     StatisticsCollector createStatistics(String name);
 
+    /**
+     * Get the builder of the schema (indexes) declared by importers, which is built once the context is shut down.
+     * <p/>
+     * Defaults to a {@link com.graphaware.importer.schema.DeferredSchemaBuilder}, created once per context, which
+     * declares the schema through {@link #inserter()} straight away.
+     *
+     * @return schema builder.
+     */
+    default SchemaBuilder schema() {
+        return ContextDefaults.schema(this);
+    }
+
+    /**
+     * Get live metrics of this import, with which statistics collectors should be registered to be reported during the import.
+     * <p/>
+     * Defaults to metrics, created once per context, that are never started, i.e., collectors registered with them
+     * aren't reported.
+     *
+     * @return metrics.
+     */
+    default ImportMetrics metrics() {
+        return ContextDefaults.metrics(this);
+    }
+
+    /**
+     * Get the directory where files produced by the import, other than the graph, are stored, e.g. temporary files of
+     * importers. Defaults to the system's temporary directory.
+     *
+     * @return directory.
+     */
+    default File outputDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
     /**
      * Get caches used throughout the import.
      *
@@ -74,6 +113,30 @@ public interface ImportContext {
      */
     BatchInserterIndexProvider indexProvider();
 
+    /**
+     * Get the legacy indexes declared by importers, which wrap indexes obtained from {@link #indexProvider()}.
+     *
+     * <p/>
+     * Defaults to indexes, created once per context, that apply every write straight away and don't cache lookups,
+     * because a context that doesn't provide its own indexes doesn't flush them when it is shut down.
+     *
+     * @return legacy indexes.
+     */
+    default LegacyIndexes legacyIndexes() {
+        return ContextDefaults.legacyIndexes(this);
+    }
+
+    /**
+     * Get the checkpoint recording the progress of this import.
+     * <p/>
+     * Defaults to a checkpoint, created once per context, that is only kept in memory, i.e., the import can't be resumed.
+     *
+     * @return checkpoint.
+     */
+    default Checkpoint checkpoint() {
+        return ContextDefaults.checkpoint(this);
+    }
+
     /**
      * Create a reader for the given data.
      *
@@ -86,4 +149,13 @@ public interface ImportContext {
      * Shutdown the context after import has finished.
      */
     void shutdown();
+
+    /**
+     * Shutdown the context after import has failed, flushing all inserted data, so that the import can be resumed. Unlike
+     * {@link #shutdown()}, this doesn't build the schema, which is built once the resumed import finishes. Defaults to
+     * {@link #shutdown()}.
+     */
+    default void shutdownAfterFailure() {
+        shutdown();
+    }
 }
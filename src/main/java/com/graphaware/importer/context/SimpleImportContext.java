@@ -102,6 +102,11 @@ public class SimpleImportContext extends BaseImportContext {
     protected void preBootstrap() {
         super.preBootstrap();
 
+        if (config.isResume()) {
+            LOG.info("Resuming import in " + config.getGraphDir() + "...");
+            return;
+        }
+
         deleteGraphDirectory();
     }
 
@@ -17,10 +17,13 @@ package com.graphaware.importer.data.access;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
+import org.springframework.util.Assert;
 
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.Iterator;
 
 /**
@@ -28,22 +31,39 @@ import java.util.Iterator;
  */
 public class CsvDataReader extends BaseTabularDataReader {
 
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
     private Iterator<CSVRecord> records;
     private CSVRecord record;
     private Reader in;
 
     private final char delimiter;
     private final char quote;
+    private final Charset charset;
 
     /**
-     * Create a new reader.
+     * Create a new reader for files in the platform's default charset.
      *
      * @param delimiter delimiter.
      * @param quote     quote character.
      */
     public CsvDataReader(char delimiter, char quote) {
+        this(delimiter, quote, Charset.defaultCharset());
+    }
+
+    /**
+     * Create a new reader.
+     *
+     * @param delimiter delimiter.
+     * @param quote     quote character.
+     * @param charset   charset of the files. Must not be <code>null</code>.
+     */
+    public CsvDataReader(char delimiter, char quote, Charset charset) {
+        Assert.notNull(charset);
+
         this.delimiter = delimiter;
         this.quote = quote;
+        this.charset = charset;
     }
 
     /**
@@ -56,7 +76,7 @@ public class CsvDataReader extends BaseTabularDataReader {
         }
 
         try {
-            in = new FileReader(connectionString);
+            in = new InputStreamReader(new FileInputStream(connectionString), charset);
             records = CSVFormat.DEFAULT
                     .withDelimiter(delimiter)
                     .withQuote(quote)
@@ -92,7 +112,10 @@ public class CsvDataReader extends BaseTabularDataReader {
         String s = record.get(columnName);
 
         if (s != null) {
-            s = s.replaceAll(System.getProperty("line.separator"), "").trim();
+            if (s.indexOf(LINE_SEPARATOR) >= 0) {
+                s = s.replace(LINE_SEPARATOR, "");
+            }
+            s = s.trim();
         }
 
         return s;
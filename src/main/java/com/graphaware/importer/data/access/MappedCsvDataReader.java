@@ -0,0 +1,539 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.data.access;
+
+import com.graphaware.importer.util.MappedBuffers;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * High-throughput {@link TabularDataReader} for CSV files, an alternative to {@link CsvDataReader}.
+ * <p/>
+ * The file is memory-mapped (in windows, so that files of any size can be read) and records are tokenized into
+ * reusable arrays of field offsets, without creating any objects. Only the fields that are actually read are decoded
+ * into Strings, and {@link #readLong(String)} and {@link #readInt(String)} parse numbers straight from the bytes.
+ * <p/>
+ * The first record is expected to be a header. Empty lines are skipped. Quoted fields can contain delimiters, line breaks,
+ * and doubled quote characters. Like in {@link CsvDataReader}, line separators are removed from and whitespace is
+ * trimmed off values read.
+ * <p/>
+ * Only charsets, in which the delimiter, quote, and line break characters are encoded as single bytes that do not occur
+ * in other characters' encodings, are supported. That includes UTF-8, US-ASCII and ISO-8859 charsets, but not UTF-16.
+ * A single record must fit into the mapped window. Windows are unmapped as soon as they have been read.
+ */
+public class MappedCsvDataReader extends BaseTabularDataReader {
+
+    public static final long DEFAULT_WINDOW_SIZE = 1 << 28;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final byte QUOTED = 1;
+    private static final byte ESCAPED_QUOTES = 1 << 1;
+    private static final byte LINE_BREAKS = 1 << 2;
+
+    private final byte delimiter;
+    private final byte quote;
+    private final Charset charset;
+    private final long windowSize;
+
+    private RandomAccessFile file;
+    private long endOffset;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLength;
+    private int position;
+
+    private Map<String, Integer> header;
+    private int row;
+    private int recordStart;
+    private int recordEnd;
+    private int fieldCount;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private byte[] fieldFlags = new byte[16];
+    private byte[] scratch = new byte[256];
+    private long parsed;
+
+    /**
+     * Create a new reader.
+     *
+     * @param delimiter delimiter, must be an ASCII character.
+     * @param quote     quote character, must be an ASCII character.
+     * @param charset   charset of the files. Must not be <code>null</code>.
+     */
+    public MappedCsvDataReader(char delimiter, char quote, Charset charset) {
+        this(delimiter, quote, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Create a new reader.
+     *
+     * @param delimiter  delimiter, must be an ASCII character.
+     * @param quote      quote character, must be an ASCII character.
+     * @param charset    charset of the files. Must not be <code>null</code>.
+     * @param windowSize maximum number of bytes mapped at once. Must be positive and at most {@link Integer#MAX_VALUE}.
+     */
+    public MappedCsvDataReader(char delimiter, char quote, Charset charset, long windowSize) {
+        Assert.isTrue(delimiter < 128, "Delimiter must be an ASCII character");
+        Assert.isTrue(quote < 128, "Quote must be an ASCII character");
+        Assert.notNull(charset);
+        Assert.isTrue(new String(new char[]{delimiter, quote, '\r', '\n'}).getBytes(charset).length == 4, "Charset " + charset + " is not supported");
+        Assert.isTrue(windowSize > 0 && windowSize <= Integer.MAX_VALUE);
+
+        this.delimiter = (byte) delimiter;
+        this.quote = (byte) quote;
+        this.charset = charset;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void read(String connectionString, String hint) {
+        read(connectionString, 0, -1, true);
+    }
+
+    /**
+     * Open the reader for a range of a file. The range must start at the beginning of a record.
+     *
+     * @param path   path to the file.
+     * @param start  offset of the first byte to read.
+     * @param end    offset after the last byte to read, -1 for the end of the file.
+     * @param header <code>true</code> iff the first record in the range is a header.
+     */
+    void read(String path, long start, long end, boolean header) {
+        if (file != null) {
+            throw new IllegalStateException("Previous reader hasn't been closed");
+        }
+
+        try {
+            file = new RandomAccessFile(path, "r");
+            this.endOffset = end < 0 ? file.length() : end;
+            map(start);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        this.header = new HashMap<>();
+        this.row = 0;
+
+        if (header && nextRecord()) {
+            for (int i = 0; i < fieldCount; i++) {
+                this.header.put(decode(i), i);
+            }
+        }
+    }
+
+    /**
+     * @return names of the columns in the header.
+     */
+    String[] columns() {
+        String[] result = new String[header.size()];
+        for (Map.Entry<String, Integer> column : header.entrySet()) {
+            result[column.getValue()] = column.getKey();
+        }
+        return result;
+    }
+
+    /**
+     * @return number of fields in the current record.
+     */
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Read a field of the current record.
+     *
+     * @param index index of the field, must be smaller than {@link #fieldCount()}.
+     * @return field value.
+     */
+    String field(int index) {
+        return decode(index);
+    }
+
+    /**
+     * @return offset in the file of the next record.
+     */
+    long offset() {
+        return windowStart + position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        MappedBuffers.unmap(window);
+
+        file = null;
+        window = null;
+        header = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String doReadObject(String columnName) {
+        return decode(fieldIndex(columnName));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long readLong(String columnName) {
+        int field = fieldIndex(columnName);
+
+        if (isPlain(field) && parse(field, Long.MIN_VALUE, Long.MAX_VALUE)) {
+            return isBlank(field) ? null : parsed;
+        }
+
+        return super.readLong(columnName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Integer readInt(String columnName) {
+        int field = fieldIndex(columnName);
+
+        if (isPlain(field) && parse(field, Integer.MIN_VALUE, Integer.MAX_VALUE)) {
+            return isBlank(field) ? null : (int) parsed;
+        }
+
+        return super.readInt(columnName);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The header is row number 1. Rows are numbered by records, so empty lines are not counted and a record spanning
+     * multiple lines is a single row, like in {@link CsvDataReader}.
+     */
+    @Override
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean readRecord() {
+        return nextRecord();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getRawRecord() {
+        return new String(copy(recordStart, recordEnd), 0, recordEnd - recordStart, charset);
+    }
+
+    private void map(long start) throws IOException {
+        MappedBuffers.unmap(window);
+        window = null;
+
+        windowStart = start;
+        windowLength = (int) Math.min(windowSize, endOffset - start);
+        window = file.getChannel().map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+        position = 0;
+    }
+
+    private boolean nextRecord() {
+        while (windowStart + position < endOffset) {
+            int next = tokenize(position);
+
+            if (next < 0) {
+                if (position == 0) {
+                    throw new IllegalStateException("Record at row " + (row + 1) + " is larger than " + windowSize + " bytes");
+                }
+                try {
+                    map(windowStart + position);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                continue;
+            }
+
+            position = next;
+
+            if (fieldCount == 1 && fieldFlags[0] == 0 && fieldStarts[0] == fieldEnds[0]) {
+                continue; //empty line, not counted, like in CsvDataReader
+            }
+
+            row++;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Tokenize a record.
+     *
+     * @param p offset of the record in the current window.
+     * @return offset of the next record, -1 if the record doesn't end within the current window.
+     */
+    private int tokenize(int p) {
+        boolean lastWindow = windowStart + windowLength >= endOffset;
+        int limit = windowLength;
+
+        recordStart = p;
+        fieldCount = 0;
+
+        while (true) {
+            int start = p;
+            int end;
+            byte flags = 0;
+            byte b = 0;
+
+            if (p < limit && window.get(p) == quote) {
+                flags = QUOTED;
+                start = ++p;
+
+                while (true) {
+                    if (p >= limit) {
+                        if (!lastWindow) {
+                            return -1;
+                        }
+                        throw new IllegalStateException("End of file reached before quoted field at row " + (row + 1) + " finished");
+                    }
+
+                    b = window.get(p);
+
+                    if (b == quote) {
+                        if (p + 1 >= limit && !lastWindow) {
+                            return -1;
+                        }
+                        if (p + 1 < limit && window.get(p + 1) == quote) {
+                            flags |= ESCAPED_QUOTES;
+                            p += 2;
+                            continue;
+                        }
+                        break;
+                    }
+
+                    if (b == '\n' || b == '\r') {
+                        flags |= LINE_BREAKS;
+                    }
+
+                    p++;
+                }
+
+                end = p++;
+
+                while (p < limit && (b = window.get(p)) != delimiter && b != '\n' && b != '\r') {
+                    p++;
+                }
+            } else {
+                while (p < limit && (b = window.get(p)) != delimiter && b != '\n' && b != '\r') {
+                    p++;
+                }
+                end = p;
+            }
+
+            if (p >= limit && !lastWindow) {
+                return -1;
+            }
+
+            addField(start, end, flags);
+
+            if (p >= limit) {
+                recordEnd = p;
+                return p;
+            }
+
+            if (b == delimiter) {
+                p++;
+                continue;
+            }
+
+            recordEnd = p++;
+
+            if (b == '\r') {
+                if (p >= limit && !lastWindow) {
+                    return -1;
+                }
+                if (p < limit && window.get(p) == '\n') {
+                    p++;
+                }
+            }
+
+            return p;
+        }
+    }
+
+    private void addField(int start, int end, byte flags) {
+        if (fieldCount == fieldStarts.length) {
+            int length = fieldCount * 2;
+            fieldStarts = Arrays.copyOf(fieldStarts, length);
+            fieldEnds = Arrays.copyOf(fieldEnds, length);
+            fieldFlags = Arrays.copyOf(fieldFlags, length);
+        }
+
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldFlags[fieldCount] = flags;
+        fieldCount++;
+    }
+
+    private int fieldIndex(String columnName) {
+        Integer index = header.get(columnName);
+
+        if (index == null) {
+            throw new IllegalArgumentException("Mapping for " + columnName + " not found, expected one of " + header.keySet());
+        }
+
+        if (index >= fieldCount) {
+            throw new IllegalArgumentException("Index for header '" + columnName + "' is " + index + " but record at row " + row + " only has " + fieldCount + " values!");
+        }
+
+        return index;
+    }
+
+    private String decode(int field) {
+        byte flags = fieldFlags[field];
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+
+        byte[] bytes = copy(start, end);
+        int length = (flags & ESCAPED_QUOTES) != 0 ? unescape(bytes, end - start) : end - start;
+
+        String result = new String(bytes, 0, length, charset);
+
+        if ((flags & LINE_BREAKS) != 0) {
+            StringBuilder builder = new StringBuilder(result);
+            int index;
+            while ((index = builder.indexOf(LINE_SEPARATOR)) >= 0) {
+                builder.delete(index, index + LINE_SEPARATOR.length());
+            }
+            result = builder.toString();
+        }
+
+        return result.trim();
+    }
+
+    private byte[] copy(int start, int end) {
+        int length = end - start;
+
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+
+        window.position(start);
+        window.get(scratch, 0, length);
+
+        return scratch;
+    }
+
+    private int unescape(byte[] bytes, int length) {
+        int to = 0;
+        for (int from = 0; from < length; from++) {
+            bytes[to++] = bytes[from];
+            if (bytes[from] == quote) {
+                from++;
+            }
+        }
+        return to;
+    }
+
+    private boolean isPlain(int field) {
+        return (fieldFlags[field] & (ESCAPED_QUOTES | LINE_BREAKS)) == 0;
+    }
+
+    private boolean isBlank(int field) {
+        for (int p = fieldStarts[field]; p < fieldEnds[field]; p++) {
+            if (!isWhitespace(window.get(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    /**
+     * Parse a decimal number straight from the bytes of a field, ignoring leading and trailing whitespace.
+     * The result is stored in {@link #parsed}.
+     *
+     * @return <code>true</code> iff the field is blank (result undefined) or a number within the given bounds.
+     */
+    private boolean parse(int field, long min, long max) {
+        int p = fieldStarts[field];
+        int end = fieldEnds[field];
+
+        while (p < end && isWhitespace(window.get(p))) {
+            p++;
+        }
+        while (end > p && isWhitespace(window.get(end - 1))) {
+            end--;
+        }
+
+        if (p == end) {
+            return true;
+        }
+
+        boolean negative = false;
+        byte first = window.get(p);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++p == end) {
+                return false;
+            }
+        }
+
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+
+        while (p < end) {
+            int digit = window.get(p++) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+
+        parsed = negative ? result : -result;
+        return true;
+    }
+}
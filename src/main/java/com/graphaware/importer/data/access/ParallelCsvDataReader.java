@@ -0,0 +1,472 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.data.access;
+
+import com.graphaware.importer.util.MappedBuffers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * {@link TabularDataReader} for CSV files that parses a single file using multiple threads.
+ * <p/>
+ * A splitter thread scans the file and splits it into chunks of roughly equal size, aligned to record boundaries. To
+ * find the boundaries, it tracks quoting the same way {@link MappedCsvDataReader} does, so line breaks within quoted
+ * fields are handled correctly. It also counts the records, so that every chunk knows the row number of its first
+ * record. The chunks are then parsed in parallel by {@link MappedCsvDataReader}s and the parsed records are handed over
+ * to the thread calling {@link #readRecord()}.
+ * <p/>
+ * The records are either returned in the order in which they appear in the file, or in the order in which chunks have
+ * been parsed, which avoids waiting for slow chunks. Row numbers are correct in both cases.
+ * <p/>
+ * Chunk boundaries are only placed after line feeds, so files with carriage returns as the only line separators
+ * are read in a single chunk. {@link #getRawRecord()} returns the parsed fields joined with the delimiter.
+ */
+public class ParallelCsvDataReader extends BaseTabularDataReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelCsvDataReader.class);
+
+    public static final long DEFAULT_CHUNK_SIZE = 8 << 20;
+
+    private static final long SCAN_WINDOW_SIZE = 1 << 28;
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    private final char delimiter;
+    private final char quote;
+    private final Charset charset;
+    private final int parallelism;
+    private final boolean ordered;
+    private final long chunkSize;
+
+    private String path;
+    private Map<String, Integer> header;
+    private ExecutorService parsers;
+    private Thread splitter;
+    private Semaphore permits;
+    private BlockingQueue<Future<Chunk>> orderedChunks;
+    private CompletionService<Chunk> completedChunks;
+
+    private volatile Exception failure;
+    private volatile int submittedChunks;
+
+    private int consumedChunks;
+    private int totalChunks;
+    private Chunk chunk;
+    private int position;
+
+    /**
+     * Create a new reader with {@link #DEFAULT_CHUNK_SIZE}.
+     *
+     * @param delimiter   delimiter, must be an ASCII character.
+     * @param quote       quote character, must be an ASCII character.
+     * @param charset     charset of the files, see {@link MappedCsvDataReader} for supported charsets. Must not be <code>null</code>.
+     * @param parallelism number of parsing threads. Must be positive.
+     * @param ordered     <code>true</code> iff records should be returned in the order in which they appear in the file.
+     */
+    public ParallelCsvDataReader(char delimiter, char quote, Charset charset, int parallelism, boolean ordered) {
+        this(delimiter, quote, charset, parallelism, ordered, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Create a new reader.
+     *
+     * @param delimiter   delimiter, must be an ASCII character.
+     * @param quote       quote character, must be an ASCII character.
+     * @param charset     charset of the files, see {@link MappedCsvDataReader} for supported charsets. Must not be <code>null</code>.
+     * @param parallelism number of parsing threads. Must be positive.
+     * @param ordered     <code>true</code> iff records should be returned in the order in which they appear in the file.
+     * @param chunkSize   approximate size of chunks in bytes. Must be positive.
+     */
+    public ParallelCsvDataReader(char delimiter, char quote, Charset charset, int parallelism, boolean ordered, long chunkSize) {
+        Assert.isTrue(parallelism > 0);
+        Assert.isTrue(chunkSize > 0);
+
+        new MappedCsvDataReader(delimiter, quote, charset); //validate
+
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.charset = charset;
+        this.parallelism = parallelism;
+        this.ordered = ordered;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void read(String connectionString, final String hint) {
+        if (path != null) {
+            throw new IllegalStateException("Previous reader hasn't been closed");
+        }
+
+        path = connectionString;
+
+        MappedCsvDataReader headerReader = new MappedCsvDataReader(delimiter, quote, charset);
+        headerReader.read(path, 0, -1, true);
+        String[] columns = headerReader.columns();
+        final long dataStart = headerReader.offset();
+        final long firstRow = headerReader.getRow() + 1;
+        headerReader.close();
+
+        header = new HashMap<>();
+        for (int i = 0; i < columns.length; i++) {
+            header.put(columns[i], i);
+        }
+
+        parsers = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CSV PARSER - " + hint + " - " + (++count));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        permits = new Semaphore(parallelism * 2);
+        orderedChunks = new LinkedBlockingQueue<>();
+        completedChunks = new ExecutorCompletionService<>(parsers);
+        failure = null;
+        submittedChunks = 0;
+        consumedChunks = 0;
+        totalChunks = -1;
+        chunk = null;
+
+        splitter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    split(dataStart, firstRow);
+                } catch (InterruptedException e) {
+                    LOG.info("Stopped splitting " + hint + ", the reader has been closed");
+                    failure = e;
+                } catch (Exception e) {
+                    LOG.error("Failed splitting " + hint, e);
+                    failure = e;
+                } finally {
+                    submit(new Callable<Chunk>() {
+                        @Override
+                        public Chunk call() throws Exception {
+                            if (failure != null) {
+                                throw failure;
+                            }
+                            return Chunk.end(submittedChunks);
+                        }
+                    });
+                }
+            }
+        }, "CSV SPLITTER - " + hint);
+
+        splitter.setDaemon(true);
+        splitter.start();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Interrupts the splitter thread and waits for it to exit, so that the end of the file is always submitted to a
+     * running pool of parsers, then shuts the parsers down and waits for chunks being parsed, before clearing the state
+     * they share with this reader.
+     */
+    @Override
+    public void close() {
+        boolean interrupted = false;
+
+        if (splitter != null) {
+            splitter.interrupt();
+
+            while (splitter.isAlive()) {
+                try {
+                    splitter.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (parsers != null) {
+            parsers.shutdownNow();
+
+            while (!parsers.isTerminated()) {
+                try {
+                    parsers.awaitTermination(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        path = null;
+        header = null;
+        splitter = null;
+        parsers = null;
+        orderedChunks = null;
+        completedChunks = null;
+        chunk = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String doReadObject(String columnName) {
+        Integer index = header.get(columnName);
+
+        if (index == null) {
+            throw new IllegalArgumentException("Mapping for " + columnName + " not found, expected one of " + header.keySet());
+        }
+
+        String[] record = chunk.records.get(position);
+
+        if (index >= record.length) {
+            throw new IllegalArgumentException("Index for header '" + columnName + "' is " + index + " but record at row " + getRow() + " only has " + record.length + " values!");
+        }
+
+        return record[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The header is row number 1.
+     */
+    @Override
+    public int getRow() {
+        return chunk.rows[position];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean readRecord() {
+        while (true) {
+            if (chunk != null) {
+                if (++position < chunk.records.size()) {
+                    return true;
+                }
+
+                chunk = null;
+                consumedChunks++;
+                permits.release();
+            }
+
+            if (consumedChunks == totalChunks) {
+                return false;
+            }
+
+            Chunk next = take();
+
+            if (next.isEnd()) {
+                totalChunks = next.total;
+                continue;
+            }
+
+            chunk = next;
+            position = -1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getRawRecord() {
+        StringBuilder raw = new StringBuilder();
+        for (String field : chunk.records.get(position)) {
+            if (raw.length() > 0) {
+                raw.append(delimiter);
+            }
+            raw.append(field);
+        }
+        return raw.toString();
+    }
+
+    private Chunk take() {
+        try {
+            return (ordered ? orderedChunks.take() : completedChunks.take()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void submit(Callable<Chunk> task) {
+        if (ordered) {
+            orderedChunks.add(parsers.submit(task));
+        } else {
+            completedChunks.submit(task);
+        }
+    }
+
+    /**
+     * Scan the file and submit chunks aligned to record boundaries for parsing.
+     *
+     * @param dataStart offset of the first record after the header.
+     * @param firstRow  row number of the first record after the header.
+     */
+    private void split(long dataStart, long firstRow) throws IOException, InterruptedException {
+        byte delimiter = (byte) this.delimiter;
+        byte quote = (byte) this.quote;
+
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            long length = file.length();
+            FileChannel channel = file.getChannel();
+
+            long chunkStart = dataStart;
+            long chunkFirstRow = firstRow;
+            long row = firstRow;
+            int state = FIELD_START;
+            boolean emptyLine = true;
+
+            for (long windowStart = dataStart; windowStart < length; windowStart += SCAN_WINDOW_SIZE) {
+                int windowLength = (int) Math.min(SCAN_WINDOW_SIZE, length - windowStart);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+
+                for (int i = 0; i < windowLength; i++) {
+                    byte b = window.get(i);
+                    boolean terminator = false;
+
+                    if (state == QUOTED) {
+                        if (b == quote) {
+                            state = QUOTE_IN_QUOTED;
+                        }
+                    } else if (state == QUOTE_IN_QUOTED && b == quote) {
+                        state = QUOTED;
+                    } else if (state == FIELD_START && b == quote) {
+                        state = QUOTED;
+                    } else if (b == delimiter) {
+                        state = FIELD_START;
+                    } else if (b == '\n' || b == '\r') {
+                        terminator = true;
+                        state = FIELD_START;
+                    } else {
+                        state = UNQUOTED;
+                    }
+
+                    if (terminator) {
+                        if (!emptyLine) {
+                            row++; //empty lines (including the \n of \r\n) are not counted, like in MappedCsvDataReader
+                        }
+
+                        long next = windowStart + i + 1;
+                        if (b == '\n' && next - chunkStart >= chunkSize) {
+                            submitChunk(chunkStart, next, chunkFirstRow);
+                            chunkStart = next;
+                            chunkFirstRow = row;
+                        }
+                    }
+
+                    emptyLine = terminator;
+                }
+
+                MappedBuffers.unmap(window);
+            }
+
+            if (chunkStart < length) {
+                submitChunk(chunkStart, length, chunkFirstRow);
+            }
+        }
+    }
+
+    private void submitChunk(final long start, final long end, final long firstRow) throws InterruptedException {
+        permits.acquire();
+
+        submit(new Callable<Chunk>() {
+            @Override
+            public Chunk call() throws Exception {
+                return parse(start, end, (int) firstRow);
+            }
+        });
+
+        submittedChunks++;
+    }
+
+    private Chunk parse(long start, long end, int firstRow) {
+        Chunk result = new Chunk();
+
+        MappedCsvDataReader reader = new MappedCsvDataReader(delimiter, quote, charset);
+        reader.read(path, start, end, false);
+
+        try {
+            while (reader.readRecord()) {
+                String[] record = new String[reader.fieldCount()];
+                for (int i = 0; i < record.length; i++) {
+                    record[i] = reader.field(i);
+                }
+                result.add(record, firstRow + reader.getRow() - 1);
+            }
+        } finally {
+            reader.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Parsed records of a chunk of the file, with their row numbers.
+     */
+    private static final class Chunk {
+
+        private final List<String[]> records = new ArrayList<>();
+        private int[] rows = new int[1024];
+        private int total = -1;
+
+        private static Chunk end(int total) {
+            Chunk result = new Chunk();
+            result.total = total;
+            return result;
+        }
+
+        private boolean isEnd() {
+            return total >= 0;
+        }
+
+        private void add(String[] record, int row) {
+            if (records.size() == rows.length) {
+                rows = Arrays.copyOf(rows, rows.length * 2);
+            }
+            rows[records.size()] = row;
+            records.add(record);
+        }
+    }
+}
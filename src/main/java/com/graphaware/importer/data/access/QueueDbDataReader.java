@@ -23,30 +23,52 @@ import org.springframework.jdbc.core.ResultSetExtractor;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@link com.graphaware.importer.data.access.DbDataReader} that uses a queue to temporally decouple reading from the
  * database and processing the records.
  * <p/>
- * One thread fills the queue with records, another thread reads from the queue. The queue is blocking. This means if it
- * is full, the database reading thread will block on insert. If it is empty, calls to {@link #readRecord()} will block.
+ * One thread reads records from the database into fixed-size blocks of rows, stored column by column, and puts full blocks
+ * into the queue. Another thread takes whole blocks from the queue and iterates over their rows. The queue is blocking.
+ * This means if it is full, the database reading thread will block on insert. If it is empty, calls to {@link #readRecord()}
+ * will block. The end of the result set is signalled by a special empty block. Blocks are re-used once they have been read.
+ * <p/>
+ * If {@link #partitioning(String, String)} returns a {@link ReadPartitioning}, the query is split into multiple queries
+ * that are read concurrently by multiple threads, each with its own connection from the data source. Their records are
+ * merged into a single stream of records, in no particular order.
  */
 public abstract class QueueDbDataReader extends DbDataReader {
 
     private static final Logger LOG = LoggerFactory.getLogger(QueueDbDataReader.class);
     public static final String ROW = "row";
 
-    private volatile BlockingQueue<Map<String, String>> records;
-    private volatile Map<String, String> record;
+    private static final RowBlock END = new RowBlock(0, 0);
+
+    private BlockingQueue<RowBlock> records;
+    private Queue<RowBlock> freeBlocks;
+    private final List<Thread> readerThreads = new ArrayList<>();
+    private final AtomicInteger rowCounter = new AtomicInteger();
+    private int runningReaders;
+    private volatile Map<String, Integer> columnIndices;
+    private volatile String[] columnLabels;
+    private volatile RuntimeException failure;
 
-    private volatile boolean noMoreRecords = false;
+    private RowBlock block;
+    private int position;
 
     /**
      * Construct a new reader.
@@ -71,15 +93,36 @@ public abstract class QueueDbDataReader extends DbDataReader {
 
         LOG.info("Start query: \n" + query);
 
+        records = new ArrayBlockingQueue<>(Math.max(2, queueCapacity() / blockSize()));
+        freeBlocks = new ConcurrentLinkedQueue<>();
+
         if (query.startsWith("alter")) {
             jdbcTemplate.execute(query);
-            noMoreRecords = true;
+            runningReaders = 1;
+            records.add(END);
             return;
         }
 
-        records = new ArrayBlockingQueue<>(queueCapacity());
+        ReadPartitioning partitioning = partitioning(query, hint);
+
+        List<String> queries = Collections.singletonList(query);
+        if (partitioning != null) {
+            queries = partitioning.partition(query, jdbcTemplate);
+            LOG.info("Reading " + hint + " in " + queries.size() + " partitions, " + partitioning);
+        }
+
+        runningReaders = queries.size();
 
-        new Thread(new Runnable() {
+        for (int i = 0; i < queries.size(); i++) {
+            String name = queries.size() == 1 ? hint : hint + " [" + (i + 1) + "/" + queries.size() + "]";
+            Thread readerThread = new Thread(createReader(queries.get(i), name), "DB READER - " + name);
+            readerThreads.add(readerThread);
+            readerThread.start();
+        }
+    }
+
+    private Runnable createReader(final String query, final String hint) {
+        return new Runnable() {
             @Override
             public void run() {
                 Date d1 = Calendar.getInstance().getTime();
@@ -88,37 +131,90 @@ public abstract class QueueDbDataReader extends DbDataReader {
                     jdbcTemplate.query(query, new ResultSetExtractor<Void>() {
                         @Override
                         public Void extractData(ResultSet rs) throws SQLException, DataAccessException {
-                            ResultSetMetaData metaData = rs.getMetaData();
-                            int colCount = metaData.getColumnCount();
-
-                            while (rs.next()) {
-                                Map<String, String> columns = new HashMap<>();
-                                for (int i = 1; i <= colCount; i++) {
-                                    columns.put(metaData.getColumnLabel(i), rs.getString(i));
-                                }
-                                columns.put(ROW, String.valueOf(rs.getRow()));
-
-                                try {
-                                    records.offer(columns, 1, TimeUnit.HOURS);
-                                } catch (InterruptedException e) {
-                                    LOG.warn("Was waiting for more than 1 hour to insert a record for processing, had to drop it");
-                                }
-                            }
-
+                            extractBlocks(rs);
                             return null;
                         }
                     });
+                } catch (RuntimeException e) {
+                    LOG.error("Failed querying for " + hint, e);
+                    failure = e;
+                } finally {
+                    try {
+                        records.put(END);
+                    } catch (InterruptedException e) {
+                        LOG.warn("Interrupted while signalling the end of records for " + hint);
+                    }
                 }
-                finally {
-                    noMoreRecords = true;
-                }
-
 
                 long diffInSeconds = TimeUnit.MILLISECONDS.toSeconds(Calendar.getInstance().getTime().getTime() - d1.getTime());
 
                 LOG.info("Finished querying for " + hint + " in " + diffInSeconds + " seconds");
             }
-        }, "DB READER - " + hint).start();
+        };
+    }
+
+    /**
+     * Get the partitioning of a query, so that it is read by multiple concurrent cursors. Requires a data source that
+     * provides enough connections (see {@link #additionalConfig(javax.sql.DataSource)}).
+     * <p/>
+     * Returns <code>null</code> by default, meaning the query is read by a single cursor. Intended to be overridden.
+     *
+     * @param query query to be read.
+     * @param hint  human-readable name of the query.
+     * @return partitioning, <code>null</code> for no partitioning.
+     */
+    protected ReadPartitioning partitioning(String query, String hint) {
+        return null;
+    }
+
+    private void extractBlocks(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int colCount = metaData.getColumnCount();
+
+        if (columnIndices == null) {
+            String[] labels = new String[colCount];
+            Map<String, Integer> indices = new HashMap<>();
+            for (int i = 0; i < colCount; i++) {
+                labels[i] = metaData.getColumnLabel(i + 1);
+                indices.put(labels[i], i);
+            }
+            columnLabels = labels;
+            columnIndices = indices;
+        }
+
+        RowBlock current = null;
+
+        try {
+            while (rs.next()) {
+                if (current == null) {
+                    current = freeBlocks.poll();
+                    if (current == null) {
+                        current = new RowBlock(colCount, blockSize());
+                    }
+                }
+
+                for (int i = 0; i < colCount; i++) {
+                    current.columns[i][current.size] = rs.getString(i + 1);
+                }
+
+                if (++current.size == current.capacity) {
+                    publish(current);
+                    current = null;
+                }
+            }
+
+            if (current != null) {
+                publish(current);
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted while waiting to insert records for processing, stopped reading");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(RowBlock block) throws InterruptedException {
+        block.firstRow = rowCounter.getAndAdd(block.size) + 1;
+        records.put(block);
     }
 
     /**
@@ -129,14 +225,54 @@ public abstract class QueueDbDataReader extends DbDataReader {
         return 100_000;
     }
 
+    /**
+     * Get the number of DB records handed over from the database reading thread at once. Defaults to 1,000.
+     *
+     * @return block size.
+     */
+    protected int blockSize() {
+        return 1_000;
+    }
+
     /**
      * {@inheritDoc}
+     * <p/>
+     * Interrupts the database reading threads and waits for them to stop, which they do once they next try to hand
+     * records over, before clearing the state they share with this reader.
      */
     @Override
     public final void close() {
+        for (Thread readerThread : readerThreads) {
+            if (readerThread.isAlive()) {
+                readerThread.interrupt();
+            }
+        }
+
+        boolean interrupted = false;
+        for (Thread readerThread : readerThreads) {
+            while (readerThread.isAlive()) {
+                try {
+                    readerThread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        readerThreads.clear();
+        rowCounter.set(0);
+        runningReaders = 0;
         records = null;
-        record = null;
-        noMoreRecords = false;
+        freeBlocks = null;
+        columnIndices = null;
+        columnLabels = null;
+        failure = null;
+        block = null;
+        position = 0;
     }
 
     /**
@@ -144,7 +280,13 @@ public abstract class QueueDbDataReader extends DbDataReader {
      */
     @Override
     protected String doReadObject(String columnName) {
-        return record.get(columnName);
+        Integer index = columnIndices.get(columnName);
+
+        if (index == null) {
+            return ROW.equals(columnName) ? String.valueOf(getRow()) : null;
+        }
+
+        return block.columns[index][position];
     }
 
     /**
@@ -152,7 +294,7 @@ public abstract class QueueDbDataReader extends DbDataReader {
      */
     @Override
     public final int getRow() {
-        return Integer.valueOf(record.get(ROW));
+        return block.firstRow + position;
     }
 
     /**
@@ -160,19 +302,39 @@ public abstract class QueueDbDataReader extends DbDataReader {
      */
     @Override
     public final boolean readRecord() {
-        while (!noMoreRecords || !records.isEmpty()) {
-            try {
-                record = records.poll(1, TimeUnit.SECONDS);
-            } catch (InterruptedException e) {
-                record = null;
-            }
+        if (block == END) {
+            return false;
+        }
 
-            if (record != null) {
+        if (block != null) {
+            if (++position < block.size) {
                 return true;
             }
+
+            block.clear();
+            freeBlocks.offer(block);
+        }
+
+        position = 0;
+
+        try {
+            block = records.take();
+            while (block == END && --runningReaders > 0) {
+                block = records.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
         }
 
-        return false;
+        if (block == END) {
+            if (failure != null) {
+                throw failure;
+            }
+            return false;
+        }
+
+        return true;
     }
 
     /**
@@ -181,9 +343,32 @@ public abstract class QueueDbDataReader extends DbDataReader {
     @Override
     public String getRawRecord() {
         StringBuilder row = new StringBuilder();
-        for (String columnName : record.keySet()) {
-            row.append(record.get(columnName)).append(";");
+        for (int i = 0; i < columnLabels.length; i++) {
+            row.append(block.columns[i][position]).append(";");
         }
         return row.toString();
     }
+
+    /**
+     * A fixed-size block of rows, stored column by column.
+     */
+    private static final class RowBlock {
+
+        private final String[][] columns;
+        private final int capacity;
+        private int firstRow;
+        private int size;
+
+        private RowBlock(int columnCount, int capacity) {
+            this.columns = new String[columnCount][capacity];
+            this.capacity = capacity;
+        }
+
+        private void clear() {
+            for (String[] column : columns) {
+                Arrays.fill(column, 0, size, null);
+            }
+            size = 0;
+        }
+    }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.data.access;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.util.Assert;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes how a query read by {@link QueueDbDataReader} is split into multiple queries that are read concurrently,
+ * each through its own database cursor.
+ * <p/>
+ * The query is partitioned by ranges of values of a numeric split column, delimited by split points. The first
+ * partition also contains rows with <code>null</code> in the split column, the first and the last partition are
+ * unbounded below and above, respectively, so every row is read exactly once.
+ */
+public final class ReadPartitioning {
+
+    private final String splitColumn;
+    private final long[] splitPoints;
+    private final int partitions;
+
+    private ReadPartitioning(String splitColumn, long[] splitPoints, int partitions) {
+        Assert.hasLength(splitColumn);
+
+        this.splitColumn = splitColumn;
+        this.splitPoints = splitPoints;
+        this.partitions = partitions;
+    }
+
+    /**
+     * Partition a query by the given split points, resulting in <code>splitPoints.length + 1</code> partitions.
+     *
+     * @param splitColumn name of the numeric column, as it appears in the query's results. Must not be <code>null</code> or empty.
+     * @param splitPoints ascending values delimiting the partitions. A value belongs to the partition it delimits from below.
+     * @return partitioning.
+     */
+    public static ReadPartitioning splitAt(String splitColumn, long... splitPoints) {
+        Assert.notNull(splitPoints);
+
+        long[] sorted = splitPoints.clone();
+        Arrays.sort(sorted);
+
+        return new ReadPartitioning(splitColumn, sorted, sorted.length + 1);
+    }
+
+    /**
+     * Partition a query into evenly sized ranges of the split column, based on its minimum and maximum value, which
+     * are queried first.
+     *
+     * @param splitColumn name of the numeric column, as it appears in the query's results. Must not be <code>null</code> or empty.
+     * @param partitions  number of partitions. Must be positive.
+     * @return partitioning.
+     */
+    public static ReadPartitioning evenly(String splitColumn, int partitions) {
+        Assert.isTrue(partitions > 0);
+
+        return new ReadPartitioning(splitColumn, null, partitions);
+    }
+
+    /**
+     * Produce the partitioned queries.
+     *
+     * @param query    query to partition.
+     * @param template for finding the minimum and maximum value of the split column, if needed.
+     * @return queries, one per partition.
+     */
+    List<String> partition(String query, JdbcTemplate template) {
+        long[] points = splitPoints != null ? splitPoints : evenSplitPoints(query, template);
+
+        if (points.length == 0) {
+            return Collections.singletonList(query);
+        }
+
+        String column = "q_." + splitColumn;
+        String wrapped = "select * from (" + query + ") q_ where ";
+
+        List<String> result = new ArrayList<>();
+        result.add(wrapped + column + " is null or " + column + " < " + points[0]);
+        for (int i = 1; i < points.length; i++) {
+            result.add(wrapped + column + " >= " + points[i - 1] + " and " + column + " < " + points[i]);
+        }
+        result.add(wrapped + column + " >= " + points[points.length - 1]);
+
+        return result;
+    }
+
+    private long[] evenSplitPoints(String query, JdbcTemplate template) {
+        long[] minMax = template.query("select min(q_." + splitColumn + "), max(q_." + splitColumn + ") from (" + query + ") q_", new ResultSetExtractor<long[]>() {
+            @Override
+            public long[] extractData(ResultSet rs) throws SQLException, DataAccessException {
+                if (!rs.next()) {
+                    return null;
+                }
+
+                long min = rs.getLong(1);
+                if (rs.wasNull()) {
+                    return null;
+                }
+
+                return new long[]{min, rs.getLong(2)};
+            }
+        });
+
+        if (minMax == null || partitions == 1) {
+            return new long[0];
+        }
+
+        double step = ((double) minMax[1] - minMax[0] + 1) / partitions;
+
+        List<Long> points = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            long point = minMax[0] + (long) Math.ceil(step * i);
+            if (point > minMax[1]) {
+                break;
+            }
+            if (points.isEmpty() || points.get(points.size() - 1) < point) {
+                points.add(point);
+            }
+        }
+
+        long[] result = new long[points.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = points.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return splitPoints != null ? splitColumn + " split at " + Arrays.toString(splitPoints) : splitColumn + " split into " + partitions + " even partitions";
+    }
+}
@@ -15,14 +15,17 @@
 
 package com.graphaware.importer.domain;
 
-import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * A {@link Neo4jRelationship} whose properties are set one by one. Properties are held in a {@link PropertyBuffer},
+ * so primitive values are not boxed until the relationship is created.
+ */
 public abstract class GenericRelationship implements Neo4jRelationship {
 
     private Long sourceNodeId;
     private Long targetNodeId;
-    private final Map<String, Object> properties = new HashMap<>();
+    private final PropertyBuffer properties = new PropertyBuffer(4);
 
     @Override
     public Long sourceKey() {
@@ -48,6 +51,18 @@ public abstract class GenericRelationship implements Neo4jRelationship {
     }
 
     public void setProperty(String key, Object value) {
-        this.properties.put(key, value);
+        this.properties.putObject(key, value);
+    }
+
+    public void setProperty(String key, long value) {
+        this.properties.putLong(key, value);
+    }
+
+    public void setProperty(String key, int value) {
+        this.properties.putInt(key, value);
+    }
+
+    public void setProperty(String key, double value) {
+        this.properties.putDouble(key, value);
     }
 }
@@ -15,72 +15,62 @@
 
 package com.graphaware.importer.domain;
 
-import com.graphaware.importer.util.ReflectionUtils;
 import org.neo4j.graphdb.Node;
-import org.neo4j.helpers.Pair;
-import org.springframework.util.StringUtils;
 
-import java.lang.reflect.Field;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Base class for DTOs, whose {@link Neo4jProperty}-annotated fields become Neo4j properties.
+ * <p/>
+ * Annotated fields are resolved once per class and read through bound getters in a stable order (superclass fields
+ * first, then in declaration order). Fields with <code>null</code> values produce no properties.
+ */
 public abstract class Neo4jPropertyContainer {
 
-    private static final Map<String, Set<Pair<Field, String>>> CACHE = new ConcurrentHashMap<>();
-
     public void populateNode(Node node) {
-        Map<String, Object> properties = getProperties();
+        PropertyAccessor accessor = PropertyAccessor.forClass(getClass());
 
-        for (String key : properties.keySet()) {
-            Object value = properties.get(key);
+        for (int i = 0; i < accessor.size(); i++) {
+            Object value = accessor.value(this, i);
             if (value != null) {
-                node.setProperty(key, value);
+                node.setProperty(accessor.key(i), value);
             }
         }
     }
 
+    /**
+     * Get the properties of this object.
+     *
+     * @return a new map of properties, sized so that it never needs to re-hash.
+     */
     public Map<String, Object> getProperties() {
-        Map<String, Object> result = new HashMap<>();
+        PropertyAccessor accessor = PropertyAccessor.forClass(getClass());
 
-        if (!CACHE.containsKey(this.getClass().getCanonicalName())) {
-            initializeForClass(this.getClass());
-        }
-
-        for (Pair<Field, String> fieldAndName : CACHE.get(this.getClass().getCanonicalName())) {
-            try {
-                Object value = fieldAndName.first().get(this);
-                if (value != null) {
-                    result.put(fieldAndName.other(), value);
-                }
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
-            }
-        }
+        Map<String, Object> result = new HashMap<>(capacity(accessor.size()));
+        accessor.copy(this, result);
 
         return result;
     }
 
-    private synchronized void initializeForClass(Class<?> clazz) {
-        if (CACHE.containsKey(clazz.getCanonicalName())) {
-            return;
-        }
-
-        Set<Pair<Field, String>> fieldsAndNames = new HashSet<>();
-
-        for (Field field : ReflectionUtils.getAllFields(clazz)) {
-            Neo4jProperty annotation = field.getAnnotation(Neo4jProperty.class);
-            if (annotation == null) {
-                continue;
-            }
-
-            String fieldName = StringUtils.isEmpty(annotation.name()) ? field.getName() : annotation.name();
-            fieldsAndNames.add(Pair.of(field, fieldName));
-            field.setAccessible(true);
-        }
+    /**
+     * Get the properties of this object, written into a map provided by the caller, e.g. one map reused by a thread
+     * for all the objects it imports. The map is cleared first.
+     * <p/>
+     * Passing in a {@link PropertyBuffer} avoids allocating map entries altogether. Other maps must not be reused while
+     * anything they have been handed to might still read them, such as
+     * {@link com.graphaware.importer.inserter.SingleWriterBatchInserter}, which applies writes asynchronously.
+     *
+     * @param target map to write to. Must not be <code>null</code>.
+     * @return the target map.
+     */
+    public Map<String, Object> getProperties(Map<String, Object> target) {
+        target.clear();
+        PropertyAccessor.forClass(getClass()).copy(this, target);
+        return target;
+    }
 
-        CACHE.put(clazz.getCanonicalName(), fieldsAndNames);
+    private static int capacity(int size) {
+        return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.domain;
+
+import com.graphaware.importer.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads {@link Neo4jProperty}-annotated fields of a {@link Neo4jPropertyContainer} class. Resolved once per class; each
+ * field is bound to a {@link MethodHandle} getter, so reading properties involves no reflective access checks.
+ * <p/>
+ * Properties are listed in a stable order: fields of superclasses first, then in declaration order. Static fields are
+ * ignored, since they don't belong to any particular container.
+ * <p/>
+ * This class is thread-safe.
+ */
+final class PropertyAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<PropertyAccessor> ACCESSORS = new ClassValue<PropertyAccessor>() {
+        @Override
+        protected PropertyAccessor computeValue(Class<?> type) {
+            return new PropertyAccessor(type);
+        }
+    };
+
+    private final String[] keys;
+    private final MethodHandle[] getters;
+
+    /**
+     * Get the accessor for a class.
+     *
+     * @param type class of the property container.
+     * @return accessor, created on first use and shared afterwards.
+     */
+    static PropertyAccessor forClass(Class<?> type) {
+        return ACCESSORS.get(type);
+    }
+
+    private PropertyAccessor(Class<?> type) {
+        List<String> keys = new ArrayList<>();
+        List<MethodHandle> getters = new ArrayList<>();
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+        for (Field field : ReflectionUtils.getAllFields(type)) {
+            Neo4jProperty annotation = field.getAnnotation(Neo4jProperty.class);
+            if (annotation == null || Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            field.setAccessible(true);
+
+            try {
+                getters.add(lookup.unreflectGetter(field).asType(GETTER_TYPE));
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException(e);
+            }
+
+            keys.add((StringUtils.isEmpty(annotation.name()) ? field.getName() : annotation.name()).intern());
+        }
+
+        this.keys = keys.toArray(new String[keys.size()]);
+        this.getters = getters.toArray(new MethodHandle[getters.size()]);
+    }
+
+    /**
+     * @return number of annotated fields.
+     */
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param index of the field.
+     * @return property key of the field.
+     */
+    String key(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Read the value of a field.
+     *
+     * @param container to read from.
+     * @param index     of the field.
+     * @return value, can be <code>null</code>.
+     */
+    Object value(Object container, int index) {
+        try {
+            return (Object) getters[index].invokeExact(container);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable throwable) {
+            throw new RuntimeException(throwable);
+        }
+    }
+
+    /**
+     * Put all non-<code>null</code> properties of a container into a map.
+     *
+     * @param container to read from.
+     * @param target    to write to.
+     */
+    void copy(Object container, Map<String, Object> target) {
+        for (int i = 0; i < keys.length; i++) {
+            Object value = value(container, i);
+            if (value != null) {
+                target.put(keys[i], value);
+            }
+        }
+    }
+}
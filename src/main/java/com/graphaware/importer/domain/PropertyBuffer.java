@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.domain;
+
+import org.springframework.util.Assert;
+
+import java.util.*;
+
+/**
+ * A reusable buffer of properties of a node or relationship, which stores primitive values unboxed in flat arrays.
+ * Intended to be filled, handed to node or relationship creation, cleared and filled again, typically once per thread,
+ * so that no maps or map entries are allocated per created node or relationship.
+ * <p/>
+ * The buffer is a {@link Map}, so it can be passed to any {@link org.neo4j.unsafe.batchinsert.BatchInserter} method
+ * that accepts properties. Primitive values are only boxed when read through the {@link Map} interface. Entries
+ * returned by an entry set iterator are immutable snapshots, which don't change when the buffer is later cleared or
+ * filled again.
+ * <p/>
+ * Keys are best supplied as constants (or otherwise interned), in which case finding an existing key only takes an
+ * identity comparison. Properties are kept in the order in which they were first put.
+ * <p/>
+ * This class is not thread-safe.
+ */
+public class PropertyBuffer extends AbstractMap<String, Object> {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private static final byte OBJECT = 0;
+    private static final byte LONG = 1;
+    private static final byte INT = 2;
+    private static final byte DOUBLE = 3;
+
+    private String[] keys;
+    private byte[] types;
+    private long[] primitives;
+    private Object[] objects;
+    private int size;
+
+    private Set<Entry<String, Object>> entrySet;
+
+    /**
+     * Create a new buffer with default capacity.
+     */
+    public PropertyBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new buffer.
+     *
+     * @param capacity number of properties the buffer can hold before it needs to grow. Must not be negative.
+     */
+    public PropertyBuffer(int capacity) {
+        Assert.isTrue(capacity >= 0);
+
+        keys = new String[capacity];
+        types = new byte[capacity];
+        primitives = new long[capacity];
+        objects = new Object[capacity];
+    }
+
+    /**
+     * Put a long property.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value.
+     * @return this buffer.
+     */
+    public PropertyBuffer putLong(String key, long value) {
+        int index = slot(key);
+        types[index] = LONG;
+        primitives[index] = value;
+        objects[index] = null;
+        return this;
+    }
+
+    /**
+     * Put an int property.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value.
+     * @return this buffer.
+     */
+    public PropertyBuffer putInt(String key, int value) {
+        int index = slot(key);
+        types[index] = INT;
+        primitives[index] = value;
+        objects[index] = null;
+        return this;
+    }
+
+    /**
+     * Put a double property.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value.
+     * @return this buffer.
+     */
+    public PropertyBuffer putDouble(String key, double value) {
+        int index = slot(key);
+        types[index] = DOUBLE;
+        primitives[index] = Double.doubleToRawLongBits(value);
+        objects[index] = null;
+        return this;
+    }
+
+    /**
+     * Put a String property. A <code>null</code> value removes the property.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value.
+     * @return this buffer.
+     */
+    public PropertyBuffer putString(String key, String value) {
+        return putObject(key, value);
+    }
+
+    /**
+     * Put a long array property. A <code>null</code> value removes the property.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value, not copied.
+     * @return this buffer.
+     */
+    public PropertyBuffer putLongArray(String key, long[] value) {
+        return putObject(key, value);
+    }
+
+    /**
+     * Put an int array property. A <code>null</code> value removes the property.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value, not copied.
+     * @return this buffer.
+     */
+    public PropertyBuffer putIntArray(String key, int[] value) {
+        return putObject(key, value);
+    }
+
+    /**
+     * Put a double array property. A <code>null</code> value removes the property.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value, not copied.
+     * @return this buffer.
+     */
+    public PropertyBuffer putDoubleArray(String key, double[] value) {
+        return putObject(key, value);
+    }
+
+    /**
+     * Put a String array property. A <code>null</code> value removes the property.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value, not copied.
+     * @return this buffer.
+     */
+    public PropertyBuffer putStringArray(String key, String[] value) {
+        return putObject(key, value);
+    }
+
+    /**
+     * Put a property of any type supported by Neo4j. A <code>null</code> value removes the property.
+     *
+     * @param key   key. Must not be <code>null</code>.
+     * @param value value.
+     * @return this buffer.
+     */
+    public PropertyBuffer putObject(String key, Object value) {
+        if (value == null) {
+            remove(key);
+            return this;
+        }
+
+        int index = slot(key);
+        types[index] = OBJECT;
+        objects[index] = value;
+        return this;
+    }
+
+    /**
+     * Create a compact copy of this buffer, e.g. to hand it over to another thread while this one gets re-used.
+     *
+     * @return copy.
+     */
+    public PropertyBuffer copy() {
+        PropertyBuffer copy = new PropertyBuffer(size);
+        System.arraycopy(keys, 0, copy.keys, 0, size);
+        System.arraycopy(types, 0, copy.types, 0, size);
+        System.arraycopy(primitives, 0, copy.primitives, 0, size);
+        System.arraycopy(objects, 0, copy.objects, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * A <code>null</code> value removes the property.
+     */
+    @Override
+    public Object put(String key, Object value) {
+        Object previous = get(key);
+        putObject(key, value);
+        return previous;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        return index < 0 ? null : value(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+
+        Object value = value(index);
+
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(primitives, index + 1, primitives, index, moved);
+        System.arraycopy(objects, index + 1, objects, index, moved);
+
+        size--;
+        keys[size] = null;
+        objects[size] = null;
+
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Keeps the allocated capacity.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(objects, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+
+        return entrySet;
+    }
+
+    private int slot(String key) {
+        Assert.notNull(key);
+
+        int index = indexOf(key);
+        if (index >= 0) {
+            return index;
+        }
+
+        if (size == keys.length) {
+            grow();
+        }
+
+        keys[size] = key;
+        return size++;
+    }
+
+    private int indexOf(Object key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) {
+                return i;
+            }
+        }
+
+        if (key instanceof String) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private Object value(int index) {
+        switch (types[index]) {
+            case LONG:
+                return primitives[index];
+            case INT:
+                return (int) primitives[index];
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[index]);
+            default:
+                return objects[index];
+        }
+    }
+
+    private void grow() {
+        int capacity = Math.max(DEFAULT_CAPACITY, keys.length << 1);
+        keys = Arrays.copyOf(keys, capacity);
+        types = Arrays.copyOf(types, capacity);
+        primitives = Arrays.copyOf(primitives, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+    }
+
+    /**
+     * Iterator over properties, producing a snapshot entry per property.
+     */
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+
+        private int next;
+        private int current = -1;
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            current = next++;
+            return new SimpleImmutableEntry<>(keys[current], value(current));
+        }
+
+        @Override
+        public void remove() {
+            if (current < 0) {
+                throw new IllegalStateException();
+            }
+
+            PropertyBuffer.this.remove(keys[current]);
+            next = current;
+            current = -1;
+        }
+    }
+}
@@ -19,15 +19,30 @@ import com.graphaware.importer.cache.Cache;
 import com.graphaware.importer.cache.Caches;
 import com.graphaware.importer.context.ImportContext;
 import com.graphaware.importer.data.access.DataReader;
+import com.graphaware.importer.domain.PropertyBuffer;
+import com.graphaware.importer.index.ManagedIndex;
+import com.graphaware.importer.inserter.InserterFailedException;
+import com.graphaware.importer.stats.Counter;
+import com.graphaware.importer.stats.Gauge;
+import com.graphaware.importer.stats.ImportMetrics;
 import com.graphaware.importer.stats.StatisticsCollector;
+import com.graphaware.importer.stats.Timer;
 import com.graphaware.importer.util.BlockingArrayBlockingQueue;
 import org.neo4j.graphdb.Label;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * {@link BaseImporter} working with objects (DTOs) for data encapsulation.
@@ -35,13 +50,24 @@ import java.util.concurrent.TimeUnit;
  * DTOs are created by synchronously reading a records from {@link com.graphaware.importer.data.access.DataReader}.
  * Created DTOs are then submitted to an {@link java.util.concurrent.ExecutorService}, running in a separate thread,
  * responsible for doing any processing on the DTOs and ultimately creating nodes and relationships out of it.
+ * <p/>
+ * By default, a single worker thread processes the DTOs in the order in which they have been produced. When
+ * {@link #parallelism()} is greater than 1, DTOs are processed by multiple workers in parallel. If the importer
+ * declares its DTOs {@link #orderIndependent()}, they are spread across all workers. Otherwise, they are partitioned
+ * by {@link #partitionKey(Object)}, so that DTOs with the same key are processed by the same worker, in order.
+ * <p/>
+ * When {@link #batchSize()} is greater than 1, DTOs are handed over to workers in batches rather than one by one,
+ * and can be processed together by overriding {@link #processBatch(java.util.List)}.
+ * <p/>
+ * A DTO whose processing fails is skipped. When the batch inserter itself fails, though (see
+ * {@link InserterFailedException}), the importer stops reading and fails.
  *
  * @param <T> type of the DTO this inserter works with.
  * @param <R> type of the DataReader this inserter works with.
  */
 public abstract class BaseImporter<T, R extends DataReader> implements Importer {
 
-    private static final String IMPORT_STATS = "Import Statistics";
+    private static final String IMPORT_STATS = ImportMetrics.IMPORT_STATS;
 
     private static final Logger LOG = LoggerFactory.getLogger(BaseImporter.class);
 
@@ -49,16 +75,34 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
 
     protected StatisticsCollector collector;
 
-    private volatile State state = State.NOT_STARTED;
+    private Counter processed;
+    private Counter noObjectProduced;
+    private Counter skipped;
+    private Counter inserted;
+    private Timer produceTimer;
+    private Timer preProcessTimer;
+    private Timer processTimer;
+    private Timer processBatchTimer;
 
-    private final ExecutorService executor;
+    private volatile State state = State.NOT_STARTED;
 
-    /**
-     * Construct a new importer.
-     */
-    public BaseImporter() {
-        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new BlockingArrayBlockingQueue<Runnable>(queueCapacity()), new ThreadPoolExecutor.CallerRunsPolicy());
-    }
+    private volatile ExecutorService[] executors;
+    private Batch[] pending;
+    private final Queue<Batch> freeBatches = new ConcurrentLinkedQueue<>();
+    private final List<ManagedIndex> legacyIndexes = new CopyOnWriteArrayList<>();
+    private final AtomicReference<InserterFailedException> inserterFailure = new AtomicReference<>();
+    private final ThreadLocal<int[]> skippedInProcessing = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[2];
+        }
+    };
+    private final ThreadLocal<PropertyBuffer> propertyBuffers = new ThreadLocal<PropertyBuffer>() {
+        @Override
+        protected PropertyBuffer initialValue() {
+            return new PropertyBuffer();
+        }
+    };
 
     /**
      * {@inheritDoc}
@@ -84,6 +128,24 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
         context.caches().inject(this);
 
         collector = context.createStatistics(name());
+        processed = collector.counter(IMPORT_STATS, ImportMetrics.PROCESSED);
+        noObjectProduced = collector.counter(IMPORT_STATS, "No Object Produced");
+        skipped = collector.counter(IMPORT_STATS, "Skipped");
+        inserted = collector.counter(IMPORT_STATS, "Inserted");
+        produceTimer = collector.timer("produceObject");
+        preProcessTimer = collector.timer("preProcess");
+        processTimer = collector.timer("processObject");
+        processBatchTimer = collector.timer("processBatch");
+        collector.gauge(IMPORT_STATS, "Queue Depth", new Gauge() {
+            @Override
+            public long get() {
+                return queueDepth();
+            }
+        });
+
+        context.metrics().register(name(), collector);
+
+        declareLegacyIndexes();
     }
 
     /**
@@ -112,6 +174,30 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
         }
 
         try {
+            if (context.checkpoint().hasFinished(this)) {
+                if (!context.caches().createdCaches(this).isEmpty() && !context.caches().canReuse(this)) {
+                    throw new IllegalStateException(name() + " has finished in the previous run, but the caches it created have not been kept. Please use persistent caches to be able to resume imports.");
+                }
+
+                LOG.info(name() + " has finished in the previous run, skipping import.");
+                return;
+            }
+
+            if (reusableCaches() && context.caches().canReuse(this)) {
+                LOG.info("Caches created by " + name() + " have been reused, skipping import.");
+                return;
+            }
+
+            if (context.checkpoint().hasStarted(this)) {
+                if (!rerunAfterFailure()) {
+                    throw new IllegalStateException(name() + " failed part-way in the previous run and running it again could insert its data twice, so the import can not be resumed. Please start the import from scratch.");
+                }
+
+                LOG.warn(name() + " failed part-way in the previous run, running it again.");
+            }
+
+            context.caches().populating(this);
+
             R reader = (R) context.createReader(inputData());
 
             if (reader == null) {
@@ -119,28 +205,70 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
                 return;
             }
 
+            context.checkpoint().started(this);
+
             LOG.info("Populating " + inputData() + "...");
 
-            while (reader.readRecord()) {
-                if (reader.getRow() % loggingInterval() == 0) {
-                    LOG.info("Imported " + reader.getRow() + " records. (" + name() + ")");
-                }
+            executors = createExecutors();
+            pending = new Batch[executors.length];
+
+            try {
+                while (inserterFailure.get() == null && reader.readRecord()) {
+                    if (reader.getRow() % loggingInterval() == 0) {
+                        LOG.info("Imported " + reader.getRow() + " records. (" + name() + ")");
+                    }
 
-                processSingleRow(reader);
+                    processSingleRow(reader);
+                }
+            } finally {
+                reader.close();
             }
 
-            reader.close();
+            for (int lane = 0; lane < pending.length; lane++) {
+                submitPending(lane);
+            }
 
-            executor.shutdown();
+            for (ExecutorService executor : executors) {
+                executor.shutdown();
+            }
+            boolean terminated = true;
             try {
-                executor.awaitTermination(30, TimeUnit.MINUTES);
+                for (ExecutorService executor : executors) {
+                    terminated &= executor.awaitTermination(30, TimeUnit.MINUTES);
+                }
             } catch (InterruptedException e) {
-                LOG.warn(name() + " could not finish processing the queue of DTOs in 30 minutes!");
+                Thread.currentThread().interrupt();
+                terminated = false;
+            }
+
+            if (!terminated) {
+                for (ExecutorService executor : executors) {
+                    executor.shutdownNow();
+                }
+                throw new IllegalStateException(name() + " could not finish processing the queue of DTOs in 30 minutes!");
+            }
+
+            if (inserterFailure.get() != null) {
+                throw new IllegalStateException(name() + " failed, because the batch inserter failed: " + inserterFailure.get().getMessage(), inserterFailure.get());
             }
 
             this.shutdown();
 
+            for (ManagedIndex index : legacyIndexes) {
+                index.flush();
+            }
+
+            context.caches().populated(this);
+            context.checkpoint().finished(this);
+
             collector.printStats();
+        } catch (RuntimeException | Error e) {
+            try {
+                abort();
+            } catch (RuntimeException abortFailure) {
+                LOG.warn(name() + " failed to abort: " + abortFailure.getMessage(), abortFailure);
+            }
+            throw e;
         } finally {
             setState(State.FINISHED);
         }
@@ -175,6 +303,77 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
         return 100_000;
     }
 
+    /**
+     * Get the number of worker threads processing DTOs produced by this importer. Defaults to 1.
+     * <p/>
+     * If greater than 1, {@link #preProcess(Object, int, String)} and {@link #processObject(Object)} must be thread-safe.
+     *
+     * @return number of workers.
+     */
+    protected int parallelism() {
+        return 1;
+    }
+
+    /**
+     * Can this importer be run again when resuming an import in which it failed part-way? Only appropriate for importers
+     * whose data can safely be inserted again, since anything the importer inserted before it failed is still in the
+     * graph. Defaults to <code>false</code>, in which case such an import can not be resumed.
+     *
+     * @return <code>true</code> iff the importer can be run again after failing.
+     */
+    protected boolean rerunAfterFailure() {
+        return false;
+    }
+
+    /**
+     * Can this importer be skipped when the caches it creates have been kept from a previous run, in which they were
+     * populated from the same input? Only appropriate for importers that do nothing but populate caches with values
+     * that stay valid across runs (i.e., not IDs of nodes in a graph that is re-created), since the entire import is
+     * skipped. Defaults to <code>false</code>.
+     *
+     * @return <code>true</code> iff the import can be skipped when caches are reused.
+     * @see com.graphaware.importer.cache.PersistentCaches
+     */
+    protected boolean reusableCaches() {
+        return false;
+    }
+
+    /**
+     * Can the DTOs produced by this importer be processed in any order? Only relevant when {@link #parallelism()} is
+     * greater than 1. Defaults to <code>false</code>, in which case DTOs are partitioned across workers by {@link #partitionKey(Object)}.
+     *
+     * @return <code>true</code> iff DTOs can be spread across all workers in any order.
+     */
+    protected boolean orderIndependent() {
+        return false;
+    }
+
+    /**
+     * Get the key by which DTOs are partitioned across workers, when {@link #parallelism()} is greater than 1 and the
+     * importer isn't {@link #orderIndependent()}. DTOs with equal keys (e.g. the same person ID) are processed by the
+     * same worker, in the order in which they have been produced.
+     * <p/>
+     * Returns <code>null</code> by default, meaning all DTOs are processed by a single worker. Intended to be overridden.
+     *
+     * @param object DTO, never <code>null</code>.
+     * @return partition key, <code>null</code> for processing by the first worker.
+     */
+    protected Object partitionKey(T object) {
+        return null;
+    }
+
+    /**
+     * Get the number of DTOs handed over to a worker at once. Defaults to 1, i.e. no batching.
+     * <p/>
+     * Batching amortizes the cost of handing DTOs over to workers, which matters when there are many small rows.
+     * When greater than 1, {@link #processBatch(java.util.List)} is called for every batch.
+     *
+     * @return batch size.
+     */
+    protected int batchSize() {
+        return 1;
+    }
+
     /**
      * How often should a message be logged about the progress?
      *
@@ -192,16 +391,18 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
 
         T object;
         try {
-            collector.incrementsStats(IMPORT_STATS, "Processed");
+            processed.increment();
+            long start = System.nanoTime();
             object = produceObject(reader);
+            produceTimer.record(System.nanoTime() - start);
 
             if (object == null) {
-                collector.incrementsStats(IMPORT_STATS, "No Object Produced");
+                noObjectProduced.increment();
                 return;
             }
 
         } catch (RuntimeException e) {
-            collector.incrementsStats(IMPORT_STATS, "Skipped");
+            skipped.increment();
             collector.incrementsStats("Production", e.getMessage());
             LOG.warn(name() + "failed to produce object. Skipping row " + row + ": " + e.getMessage() + ". Raw data: " + rawData, e);
             return;
@@ -210,27 +411,210 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
         //Pre-process (normalize, validate,...) and insert to the database.
 
         final T o = object;
+        int lane = laneFor(o);
 
-        executor.submit(new Runnable() {
+        if (batchSize() > 1) {
+            addToBatch(lane, o, row, rawData);
+            return;
+        }
+
+        executors[lane].submit(new Runnable() {
             @Override
             public void run() {
-                if (preProcess(o, row, rawData)) {
+                if (timedPreProcess(o, row, rawData)) {
                     return;
                 }
 
+                processRow(o, row, rawData);
+            }
+        });
+    }
+
+    private boolean timedPreProcess(T object, int row, String rawData) {
+        long start = System.nanoTime();
+        try {
+            return preProcess(object, row, rawData);
+        } finally {
+            preProcessTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    private void processRow(T object, int row, String rawData) {
+        try {
+            clearSkipped();
+            long start = System.nanoTime();
+            processObject(object);
+            processTimer.record(System.nanoTime() - start);
+            count(1);
+        } catch (InserterFailedException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            skipped.increment();
+            collector.incrementsStats("Insertion", e.getMessage());
+            LOG.debug(name() + " failed to insert object. Skipping row " + row + ": " + e.getMessage() + ". Raw data: " + rawData, e);
+            LOG.warn(name() + " failed to insert object. Skipping row " + row + ": " + e.getMessage() + ". Raw data: " + rawData);
+        }
+    }
+
+    private void addToBatch(int lane, T object, int row, String rawData) {
+        Batch batch = pending[lane];
+
+        if (batch == null) {
+            batch = freeBatches.poll();
+            if (batch == null) {
+                batch = new Batch(batchSize());
+            }
+            pending[lane] = batch;
+        }
+
+        batch.add(object, row, rawData);
+
+        if (batch.isFull()) {
+            submitPending(lane);
+        }
+    }
+
+    private void submitPending(int lane) {
+        final Batch batch = pending[lane];
+
+        if (batch == null) {
+            return;
+        }
+
+        pending[lane] = null;
+
+        executors[lane].submit(new Runnable() {
+            @Override
+            public void run() {
                 try {
-                    processObject(o);
-                    collector.incrementsStats(IMPORT_STATS, "Inserted");
-                } catch (RuntimeException e) {
-                    collector.incrementsStats(IMPORT_STATS, "Skipped");
-                    collector.incrementsStats("Insertion", e.getMessage());
-                    LOG.debug(name() + " failed to insert object. Skipping row " + row + ": " + e.getMessage() + ". Raw data: " + rawData, e);
-                    LOG.warn(name() + " failed to insert object. Skipping row " + row + ": " + e.getMessage() + ". Raw data: " + rawData);
+                    if (inserterFailure.get() == null) {
+                        runBatch(batch);
+                    }
+                } catch (InserterFailedException e) {
+                    inserterFailure.compareAndSet(null, e);
+                } finally {
+                    batch.clear();
+                    freeBatches.offer(batch);
                 }
             }
         });
     }
 
+    @SuppressWarnings("unchecked")
+    private void runBatch(Batch batch) {
+        List<T> accepted = (List<T>) batch.accepted;
+
+        for (int i = 0; i < batch.size; i++) {
+            if (!timedPreProcess((T) batch.objects[i], batch.rows[i], batch.rawData[i])) {
+                batch.acceptedIndices[accepted.size()] = i;
+                accepted.add((T) batch.objects[i]);
+            }
+        }
+
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        boolean processed;
+        try {
+            clearSkipped();
+            long start = System.nanoTime();
+            processed = processBatch(accepted);
+            processBatchTimer.record(System.nanoTime() - start);
+        } catch (InserterFailedException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            int first = batch.rows[batch.acceptedIndices[0]];
+            int last = batch.rows[batch.acceptedIndices[accepted.size() - 1]];
+            skipped.add(accepted.size());
+            collector.incrementsStats("Insertion", e.getMessage(), accepted.size());
+            LOG.debug(name() + " failed to insert batch. Skipping rows " + first + " to " + last + ": " + e.getMessage(), e);
+            LOG.warn(name() + " failed to insert batch. Skipping rows " + first + " to " + last + ": " + e.getMessage());
+            return;
+        }
+
+        if (processed) {
+            count(accepted.size());
+            return;
+        }
+
+        for (int i = 0; i < accepted.size(); i++) {
+            int index = batch.acceptedIndices[i];
+            processRow(accepted.get(i), batch.rows[index], batch.rawData[index]);
+        }
+    }
+
+    private void clearSkipped() {
+        int[] skippedAndDeferred = skippedInProcessing.get();
+        skippedAndDeferred[0] = 0;
+        skippedAndDeferred[1] = 0;
+    }
+
+    private void count(int objects) {
+        int[] skippedAndDeferred = skippedInProcessing.get();
+        int skippedObjects = Math.min(objects, skippedAndDeferred[0]);
+        int deferredObjects = Math.min(objects - skippedObjects, skippedAndDeferred[1]);
+        skipped.add(skippedObjects);
+        inserted.add(objects - skippedObjects - deferredObjects);
+    }
+
+    private ExecutorService[] createExecutors() {
+        int parallelism = parallelism();
+
+        if (parallelism < 1) {
+            throw new IllegalStateException(name() + " has invalid parallelism " + parallelism);
+        }
+
+        if (batchSize() < 1) {
+            throw new IllegalStateException(name() + " has invalid batch size " + batchSize());
+        }
+
+        int capacity = Math.max(1, queueCapacity() / batchSize());
+
+        if (parallelism == 1 || orderIndependent()) {
+            return new ExecutorService[]{createExecutor(parallelism, capacity)};
+        }
+
+        ExecutorService[] result = new ExecutorService[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            result[i] = createExecutor(1, Math.max(1, capacity / parallelism));
+        }
+        return result;
+    }
+
+    private ExecutorService createExecutor(int threads, int capacity) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new BlockingArrayBlockingQueue<Runnable>(capacity), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private long queueDepth() {
+        ExecutorService[] current = executors;
+
+        if (current == null) {
+            return 0;
+        }
+
+        long depth = 0;
+        for (ExecutorService executor : current) {
+            depth += ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        return depth;
+    }
+
+    private int laneFor(T object) {
+        if (executors.length == 1) {
+            return 0;
+        }
+
+        Object key = partitionKey(object);
+        if (key == null) {
+            return 0;
+        }
+
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % executors.length;
+    }
+
     /**
      * Pre-process the object. This can include normalization, validation, etc.
      *
@@ -259,18 +643,151 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
     public abstract void processObject(T object);
 
     /**
-     * Convenience method for subclasses to create indices.
+     * Process a batch of objects, i.e. create nodes and relationships out of them. Only called when {@link #batchSize()}
+     * is greater than 1, with objects that passed {@link #preProcess(Object, int, String)}.
+     * <p/>
+     * If this method throws an exception, all objects in the batch are counted as skipped. Returns <code>false</code>
+     * by default, in which case the objects are processed one by one using {@link #processObject(Object)}.
+     *
+     * @param objects to process, never empty. The list is re-used by the framework and must not be retained or modified.
+     * @return <code>true</code> iff the batch has been processed, <code>false</code> to process objects one by one.
+     */
+    protected boolean processBatch(List<T> objects) {
+        return false;
+    }
+
+    /**
+     * Record that some of the objects passed to {@link #processObject(Object)} or {@link #processBatch(java.util.List)}
+     * by the calling thread have not been inserted, without failing the object or the whole batch, e.g. because they
+     * refer to nodes that don't exist. Such objects are counted as skipped rather than inserted.
+     *
+     * @param count  number of objects not inserted.
+     * @param reason why the objects were not inserted, reported in statistics.
+     */
+    protected final void skip(int count, String reason) {
+        skippedInProcessing.get()[0] += count;
+        collector.incrementsStats("Insertion", reason, count);
+    }
+
+    /**
+     * Record that some of the objects passed to {@link #processObject(Object)} or {@link #processBatch(java.util.List)}
+     * by the calling thread have not been inserted yet, but will be later, e.g. in {@link #shutdown()}. Such objects are
+     * counted neither as inserted nor as skipped, until they are reported by {@link #deferredInserted(long)} or
+     * {@link #deferredSkipped(long, String)}.
+     *
+     * @param count number of objects whose insertion has been deferred.
+     */
+    protected final void defer(int count) {
+        skippedInProcessing.get()[1] += count;
+    }
+
+    /**
+     * Record that objects previously {@link #defer(int)}red have been inserted.
+     *
+     * @param count number of inserted objects.
+     */
+    protected final void deferredInserted(long count) {
+        inserted.add(count);
+    }
+
+    /**
+     * Record that objects previously {@link #defer(int)}red have not been inserted after all.
+     *
+     * @param count  number of objects not inserted.
+     * @param reason why the objects were not inserted, reported in statistics.
+     */
+    protected final void deferredSkipped(long count, String reason) {
+        skipped.add(count);
+        collector.incrementsStats("Insertion", reason, count);
+    }
+
+    /**
+     * Get an empty property buffer owned by the calling thread, to be filled and passed to node or relationship creation,
+     * e.g. <code>context.inserter().createNode(propertyBuffer().putLong("id", id), label)</code>. The same buffer is
+     * returned (cleared) on the next call from the same thread, so it must not be retained. It can be filled from a DTO
+     * using {@link com.graphaware.importer.domain.Neo4jPropertyContainer#getProperties(java.util.Map)}.
+     * <p/>
+     * Re-using the buffer is only safe because the inserters provided by the context consume the properties before
+     * returning: {@link com.graphaware.importer.inserter.SynchronizedBatchInserter} and
+     * {@link com.graphaware.importer.inserter.TimingBatchInserter} pass them on synchronously, while
+     * {@link com.graphaware.importer.inserter.SingleWriterBatchInserter}, which applies operations later on its writer
+     * thread, copies the buffer for every operation. The single-writer path therefore still allocates a copy of the
+     * properties per created node or relationship; only the synchronous path is allocation-free.
+     *
+     * @return empty buffer.
+     */
+    protected final PropertyBuffer propertyBuffer() {
+        PropertyBuffer buffer = propertyBuffers.get();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Convenience method for subclasses to create indices. The indices are built in parallel by the context's
+     * {@link com.graphaware.importer.schema.SchemaBuilder} once all data has been inserted.
      *
      * @param label      for which to create index.
      * @param properties to index for the given label.
      */
     protected final void createIndex(Label label, String... properties) {
         for (String property : properties) {
-            LOG.info("Creating index for label " + label.name() + " and property " + property);
-            context.inserter().createDeferredSchemaIndex(label).on(property).create();
+            LOG.info("Declaring index for label " + label.name() + " and property " + property);
+            context.schema().index(label, property);
+        }
+    }
+
+    /**
+     * Convenience method for subclasses to create unique constraints. The constraints are built by the
+     * context's {@link com.graphaware.importer.schema.SchemaBuilder} once all data has been inserted, so duplicates must
+     * be prevented during the import, e.g. by finding or creating nodes using {@link Cache#computeIfAbsent(Object, java.util.function.Function)}.
+     * There is no need to also {@link #createIndex(org.neo4j.graphdb.Label, String...)} for the constrained properties.
+     *
+     * @param label      for which to create constraints.
+     * @param properties whose values must be unique amongst nodes with the given label.
+     */
+    protected final void createUniqueConstraint(Label label, String... properties) {
+        for (String property : properties) {
+            LOG.info("Declaring unique constraint for label " + label.name() + " and property " + property);
+            context.schema().uniqueConstraint(label, property);
         }
     }
 
+    /**
+     * Declare legacy indexes this importer writes to, using {@link #legacyNodeIndex(String, java.util.Map)} and
+     * {@link #legacyRelationshipIndex(String, java.util.Map)}. Called once the importer has been prepared. No-op by default.
+     */
+    protected void declareLegacyIndexes() {
+        //no-op by default
+    }
+
+    /**
+     * Declare a legacy node index this importer writes to. Writes are buffered and flushed periodically, as configured
+     * by the context, and when this importer finishes, so that the entries are visible to subsequent importers.
+     *
+     * @param name   name of the index.
+     * @param config index configuration, e.g. <code>type=fulltext</code>. Must not be <code>null</code>.
+     * @return index, shared with other importers declaring the same index.
+     */
+    protected final ManagedIndex legacyNodeIndex(String name, Map<String, String> config) {
+        ManagedIndex index = context.legacyIndexes().nodeIndex(name, config);
+        legacyIndexes.add(index);
+        return index;
+    }
+
+    /**
+     * Declare a legacy relationship index this importer writes to. Writes are buffered and flushed periodically, as
+     * configured by the context, and when this importer finishes, so that the entries are visible to subsequent importers.
+     *
+     * @param name   name of the index.
+     * @param config index configuration, e.g. <code>type=fulltext</code>. Must not be <code>null</code>.
+     * @return index, shared with other importers declaring the same index.
+     */
+    protected final ManagedIndex legacyRelationshipIndex(String name, Map<String, String> config) {
+        ManagedIndex index = context.legacyIndexes().relationshipIndex(name, config);
+        legacyIndexes.add(index);
+        return index;
+    }
+
     /**
      * Let this importer create a cache. This method is guaranteed to only be called for caches annotated with {@link com.graphaware.importer.cache.InjectCache}
      * where {@link com.graphaware.importer.cache.InjectCache#creator()} equals <code>true</code>.
@@ -293,6 +810,45 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
         throw new IllegalArgumentException("Importer " + name() + " has been asked to create " + name + ". Please override the createCache(..) method and create the cache!");
     }
 
+    /**
+     * A reusable batch of produced objects with the rows they have been produced from.
+     */
+    private static final class Batch {
+
+        private final Object[] objects;
+        private final int[] rows;
+        private final String[] rawData;
+        private final int[] acceptedIndices;
+        private final List<Object> accepted;
+        private int size;
+
+        private Batch(int capacity) {
+            objects = new Object[capacity];
+            rows = new int[capacity];
+            rawData = new String[capacity];
+            acceptedIndices = new int[capacity];
+            accepted = new ArrayList<>(capacity);
+        }
+
+        private void add(Object object, int row, String raw) {
+            objects[size] = object;
+            rows[size] = row;
+            rawData[size] = raw;
+            size++;
+        }
+
+        private boolean isFull() {
+            return size == objects.length;
+        }
+
+        private void clear() {
+            Arrays.fill(objects, 0, size, null);
+            Arrays.fill(rawData, 0, size, null);
+            accepted.clear();
+            size = 0;
+        }
+    }
+
     /**
      * Shutdown this importer. No-op by default, to be overridden by subclasses withing to close resources etc. before
      * finishing import.
@@ -300,4 +856,13 @@ public abstract class BaseImporter<T, R extends DataReader> implements Importer
     protected void shutdown() {
 
     }
+
+    /**
+     * Release resources after this importer has failed, i.e., when {@link #shutdown()} won't be called or has failed
+     * itself. No-op by default, to be overridden by subclasses that hold resources (such as temporary files) which
+     * {@link #shutdown()} would otherwise release.
+     */
+    protected void abort() {
+
+    }
 }
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.importer;
+
+import com.graphaware.importer.cache.Cache;
+import com.graphaware.importer.cache.LongCache;
+import com.graphaware.importer.data.access.DataReader;
+import com.graphaware.importer.domain.Neo4jRelationship;
+import com.graphaware.importer.inserter.RelationshipStage;
+import org.neo4j.graphdb.RelationshipType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link BaseImporter} creating one relationship per {@link Neo4jRelationship} DTO.
+ * <p/>
+ * The {@link Neo4jRelationship#sourceKey()} and {@link Neo4jRelationship#targetKey()} of each DTO are resolved to node
+ * IDs through {@link #sourceCache()} and {@link #targetCache()}, typically fields annotated with
+ * {@link com.graphaware.importer.cache.InjectCache}. DTOs are processed in batches of {@link #batchSize()}; each batch is
+ * resolved first and then inserted in the order of source node IDs (and target node IDs), so that consecutive writes
+ * touch nearby node and relationship records. Undirected relationships are created from the node with the lower ID.
+ * <p/>
+ * DTOs with an endpoint that can't be resolved are not inserted. They are counted as skipped and reported in statistics
+ * as unresolved sources or targets. Relationships are inserted one by one, so a relationship that fails to be inserted
+ * is counted as skipped on its own, without affecting the rest of its batch.
+ * <p/>
+ * When {@link #stageRelationships()} is <code>true</code>, resolved relationships are not inserted straight away, but
+ * spilled to disk in a {@link RelationshipStage} and inserted once all DTOs have been processed, grouped by their denser
+ * endpoint. This pays off for skewed graphs with dense nodes. Staged relationships are only counted as inserted (or
+ * skipped) once they have actually been inserted, and are discarded if the import fails.
+ *
+ * @param <T> type of the DTO this importer works with.
+ * @param <R> type of the DataReader this importer works with.
+ */
+public abstract class RelationshipImporter<T extends Neo4jRelationship, R extends DataReader> extends BaseImporter<T, R> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RelationshipImporter.class);
+
+    private static final String UNRESOLVED_SOURCE = "Unresolved Source";
+    private static final String UNRESOLVED_TARGET = "Unresolved Target";
+
+    private final ThreadLocal<ResolvedBatch> resolvedBatches = new ThreadLocal<ResolvedBatch>() {
+        @Override
+        protected ResolvedBatch initialValue() {
+            return new ResolvedBatch(batchSize());
+        }
+    };
+
+    private volatile RelationshipStage stage;
+
+    /**
+     * Get the cache used to resolve {@link Neo4jRelationship#sourceKey()} to a node ID.
+     *
+     * @return cache.
+     */
+    protected abstract Cache<Long, Long> sourceCache();
+
+    /**
+     * Get the cache used to resolve {@link Neo4jRelationship#targetKey()} to a node ID.
+     *
+     * @return cache, {@link #sourceCache()} by default.
+     */
+    protected Cache<Long, Long> targetCache() {
+        return sourceCache();
+    }
+
+    /**
+     * Get the type of the relationship to create for a DTO.
+     *
+     * @param relationship DTO.
+     * @return relationship type.
+     */
+    protected abstract RelationshipType relationshipType(T relationship);
+
+    /**
+     * Should relationships be staged on disk and inserted in a store-friendly order once all DTOs have been processed,
+     * rather than inserted batch by batch? Defaults to <code>false</code>.
+     *
+     * @return <code>true</code> iff relationships should be staged.
+     */
+    protected boolean stageRelationships() {
+        return false;
+    }
+
+    /**
+     * Get the directory in which relationships are staged when {@link #stageRelationships()} is <code>true</code>. The
+     * files are deleted once the relationships have been inserted, or when the import fails.
+     *
+     * @return directory, {@link com.graphaware.importer.context.ImportContext#outputDirectory()} by default.
+     */
+    protected File stagingDirectory() {
+        return context.outputDirectory();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return 1000 by default.
+     */
+    @Override
+    protected int batchSize() {
+        return 1000;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void processObject(T object) {
+        processBatch(Collections.singletonList(object));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected final boolean processBatch(List<T> objects) {
+        ResolvedBatch batch = resolvedBatches.get();
+        batch.ensureCapacity(objects.size());
+
+        Cache<Long, Long> sourceCache = sourceCache();
+        Cache<Long, Long> targetCache = targetCache();
+
+        int unresolvedSources = 0;
+        int unresolvedTargets = 0;
+        int size = 0;
+
+        for (int i = 0; i < objects.size(); i++) {
+            T object = objects.get(i);
+
+            long source = resolve(sourceCache, object.sourceKey());
+            if (source == LongCache.NO_VALUE) {
+                unresolvedSources++;
+                continue;
+            }
+
+            long target = resolve(targetCache, object.targetKey());
+            if (target == LongCache.NO_VALUE) {
+                unresolvedTargets++;
+                continue;
+            }
+
+            if (!object.directed() && target < source) {
+                long swap = source;
+                source = target;
+                target = swap;
+            }
+
+            batch.sources[size] = source;
+            batch.targets[size] = target;
+            batch.indices[size] = i;
+            size++;
+        }
+
+        report(UNRESOLVED_SOURCE, unresolvedSources);
+        report(UNRESOLVED_TARGET, unresolvedTargets);
+
+        if (stageRelationships()) {
+            RelationshipStage stage = stage();
+            int staged = 0;
+            for (int i = 0; i < size; i++) {
+                T object = objects.get(batch.indices[i]);
+                try {
+                    stage.stage(batch.sources[i], batch.targets[i], relationshipType(object), object.getProperties());
+                    staged++;
+                } catch (RuntimeException e) {
+                    failed(object, e);
+                }
+            }
+            defer(staged);
+            return true;
+        }
+
+        batch.sort(0, size - 1);
+
+        for (int i = 0; i < size; i++) {
+            T object = objects.get(batch.indices[i]);
+            try {
+                context.inserter().createRelationship(batch.sources[i], batch.targets[i], relationshipType(object), object.getProperties());
+            } catch (RuntimeException e) {
+                failed(object, e);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Inserts staged relationships, counting them as inserted or skipped only now. Subclasses overriding this method
+     * must call <code>super.shutdown()</code>.
+     */
+    @Override
+    protected void shutdown() {
+        RelationshipStage staged = stage;
+
+        if (staged == null) {
+            return;
+        }
+
+        stage = null;
+
+        LOG.info(name() + " inserting " + staged.size() + " staged relationships...");
+        long start = System.nanoTime();
+        long inserted = staged.insert(context.inserter(), new RelationshipStage.FailureHandler() {
+            @Override
+            public void failed(long source, long target, RelationshipType type, RuntimeException e) {
+                deferredSkipped(1, e.getMessage());
+                LOG.debug(name() + " failed to insert staged relationship. Skipping (" + source + ")-[:" + type.name() + "]->(" + target + "): " + e.getMessage(), e);
+                LOG.warn(name() + " failed to insert staged relationship. Skipping (" + source + ")-[:" + type.name() + "]->(" + target + "): " + e.getMessage());
+            }
+        });
+        deferredInserted(inserted);
+        collector.timer("insertStaged").record(System.nanoTime() - start);
+        LOG.info(name() + " inserted " + inserted + " staged relationships.");
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Discards staged relationships. Subclasses overriding this method must call <code>super.abort()</code>.
+     */
+    @Override
+    protected void abort() {
+        RelationshipStage staged = stage;
+
+        if (staged == null) {
+            return;
+        }
+
+        stage = null;
+
+        LOG.info(name() + " discarding " + staged.size() + " staged relationships.");
+        staged.discard();
+    }
+
+    private RelationshipStage stage() {
+        RelationshipStage result = stage;
+        if (result == null) {
+            synchronized (this) {
+                result = stage;
+                if (result == null) {
+                    result = new RelationshipStage(new File(stagingDirectory(), "staged-" + name()));
+                    stage = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private void failed(T object, RuntimeException e) {
+        skip(1, e.getMessage());
+        LOG.debug(name() + " failed to insert relationship. Skipping " + object + ": " + e.getMessage(), e);
+        LOG.warn(name() + " failed to insert relationship. Skipping " + object + ": " + e.getMessage());
+    }
+
+    private void report(String reason, int count) {
+        if (count > 0) {
+            skip(count, reason);
+        }
+    }
+
+    private static long resolve(Cache<Long, Long> cache, Long key) {
+        if (key == null) {
+            return LongCache.NO_VALUE;
+        }
+
+        if (cache instanceof LongCache) {
+            return ((LongCache) cache).getLong(key);
+        }
+
+        Long nodeId = cache.get(key);
+        return nodeId == null ? LongCache.NO_VALUE : nodeId;
+    }
+
+    /**
+     * Resolved node IDs of a batch, together with the positions of their DTOs, sortable by node IDs. Re-used by a single
+     * thread for all its batches.
+     */
+    private static final class ResolvedBatch {
+
+        private static final int INSERTION_SORT_THRESHOLD = 16;
+
+        private long[] sources;
+        private long[] targets;
+        private int[] indices;
+
+        private ResolvedBatch(int capacity) {
+            sources = new long[capacity];
+            targets = new long[capacity];
+            indices = new int[capacity];
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (sources.length < capacity) {
+                sources = new long[capacity];
+                targets = new long[capacity];
+                indices = new int[capacity];
+            }
+        }
+
+        /**
+         * Quicksort the range between low and high (inclusive) by source and then target node ID.
+         */
+        private void sort(int low, int high) {
+            while (high - low >= INSERTION_SORT_THRESHOLD) {
+                int middle = (low + high) >>> 1;
+                long pivotSource = sources[middle];
+                long pivotTarget = targets[middle];
+
+                int i = low;
+                int j = high;
+                while (i <= j) {
+                    while (compare(i, pivotSource, pivotTarget) < 0) {
+                        i++;
+                    }
+                    while (compare(j, pivotSource, pivotTarget) > 0) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(i++, j--);
+                    }
+                }
+
+                //recurse into the smaller part, iterate over the larger one
+                if (j - low < high - i) {
+                    sort(low, j);
+                    low = i;
+                } else {
+                    sort(i, high);
+                    high = j;
+                }
+            }
+
+            for (int i = low + 1; i <= high; i++) {
+                for (int j = i; j > low && compare(j, sources[j - 1], targets[j - 1]) < 0; j--) {
+                    swap(j, j - 1);
+                }
+            }
+        }
+
+        private int compare(int index, long source, long target) {
+            int result = Long.compare(sources[index], source);
+            return result != 0 ? result : Long.compare(targets[index], target);
+        }
+
+        private void swap(int i, int j) {
+            long source = sources[i];
+            sources[i] = sources[j];
+            sources[j] = source;
+
+            long target = targets[i];
+            targets[i] = targets[j];
+            targets[j] = target;
+
+            int index = indices[i];
+            indices[i] = indices[j];
+            indices[j] = index;
+        }
+    }
+}
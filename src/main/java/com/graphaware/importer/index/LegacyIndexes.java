@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.index;
+
+import com.graphaware.importer.stats.Gauge;
+import com.graphaware.importer.stats.StatisticsCollector;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndexProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.*;
+
+/**
+ * Legacy (Lucene) indexes declared by importers, obtained from a {@link BatchInserterIndexProvider} and wrapped in
+ * {@link ManagedIndex}es. Each index is created once and shared by all importers declaring it. Flush, lookup cache and
+ * pending write figures of each index are reported as live metrics.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class LegacyIndexes {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LegacyIndexes.class);
+
+    private final BatchInserterIndexProvider provider;
+    private final StatisticsCollector collector;
+    private final int flushInterval;
+    private final int cacheSize;
+
+    private final Map<String, ManagedIndex> indexes = new LinkedHashMap<>();
+    private final Map<String, Map<String, String>> configs = new HashMap<>();
+
+    /**
+     * Create new indexes.
+     *
+     * @param provider      provider of the wrapped indexes. Must not be <code>null</code>.
+     * @param collector     to report index metrics to. Must not be <code>null</code>.
+     * @param flushInterval maximum number of buffered writes per index. Must be positive.
+     * @param cacheSize     maximum number of cached lookups per index, 0 for no caching.
+     */
+    public LegacyIndexes(BatchInserterIndexProvider provider, StatisticsCollector collector, int flushInterval, int cacheSize) {
+        Assert.notNull(provider);
+        Assert.notNull(collector);
+        Assert.isTrue(flushInterval > 0);
+        Assert.isTrue(cacheSize >= 0);
+
+        this.provider = provider;
+        this.collector = collector;
+        this.flushInterval = flushInterval;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Get a node index, creating it if it doesn't exist.
+     *
+     * @param name   name of the index.
+     * @param config index configuration, e.g. <code>type=fulltext</code>. Must not be <code>null</code>.
+     * @return index.
+     * @throws IllegalArgumentException if the index has already been declared with a different configuration.
+     */
+    public synchronized ManagedIndex nodeIndex(String name, Map<String, String> config) {
+        ManagedIndex index = existing("node", name, config);
+        if (index == null) {
+            index = register("node", name, config, new ManagedIndex(name, provider.nodeIndex(name, config), config, flushInterval, cacheSize));
+        }
+        return index;
+    }
+
+    /**
+     * Get a relationship index, creating it if it doesn't exist.
+     *
+     * @param name   name of the index.
+     * @param config index configuration, e.g. <code>type=fulltext</code>. Must not be <code>null</code>.
+     * @return index.
+     * @throws IllegalArgumentException if the index has already been declared with a different configuration.
+     */
+    public synchronized ManagedIndex relationshipIndex(String name, Map<String, String> config) {
+        ManagedIndex index = existing("relationship", name, config);
+        if (index == null) {
+            index = register("relationship", name, config, new ManagedIndex(name, provider.relationshipIndex(name, config), config, flushInterval, cacheSize));
+        }
+        return index;
+    }
+
+    /**
+     * Flush all indexes.
+     */
+    public synchronized void flush() {
+        for (ManagedIndex index : indexes.values()) {
+            index.flush();
+        }
+    }
+
+    private ManagedIndex existing(String entity, String name, Map<String, String> config) {
+        Assert.notNull(config);
+
+        String key = entity + ":" + name;
+
+        ManagedIndex index = indexes.get(key);
+        if (index != null && !configs.get(key).equals(config)) {
+            throw new IllegalArgumentException("Legacy " + entity + " index " + name + " has already been declared with config " + configs.get(key));
+        }
+
+        return index;
+    }
+
+    private ManagedIndex register(String entity, String name, Map<String, String> config, final ManagedIndex index) {
+        String key = entity + ":" + name;
+
+        LOG.info("Declaring legacy " + entity + " index " + name + " with config " + config);
+
+        indexes.put(key, index);
+        configs.put(key, new HashMap<>(config));
+
+        collector.gauge(key, "Pending Writes", new Gauge() {
+            @Override
+            public long get() {
+                return index.getPendingWrites();
+            }
+        });
+        collector.gauge(key, "Flushes", new Gauge() {
+            @Override
+            public long get() {
+                return index.getFlushes();
+            }
+        });
+        collector.gauge(key, "Lookup Cache Hits", new Gauge() {
+            @Override
+            public long get() {
+                return index.getCacheHits();
+            }
+        });
+        collector.gauge(key, "Lookup Cache Misses", new Gauge() {
+            @Override
+            public long get() {
+                return index.getCacheMisses();
+            }
+        });
+
+        return index;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.index;
+
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.graphdb.index.IndexHits;
+
+import java.util.NoSuchElementException;
+
+/**
+ * {@link IndexHits} over entity IDs that have already been read into memory.
+ */
+final class LongIndexHits implements IndexHits<Long> {
+
+    private final long[] ids;
+    private int next;
+
+    LongIndexHits(long[] ids) {
+        this.ids = ids;
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public Long getSingle() {
+        if (ids.length > 1) {
+            throw new NoSuchElementException("More than one hit");
+        }
+        return ids.length == 0 ? null : ids[0];
+    }
+
+    @Override
+    public float currentScore() {
+        return Float.NaN;
+    }
+
+    @Override
+    public ResourceIterator<Long> iterator() {
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next < ids.length;
+    }
+
+    @Override
+    public Long next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return ids[next++];
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+        //nothing to release
+    }
+}
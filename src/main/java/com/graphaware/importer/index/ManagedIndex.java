@@ -0,0 +1,514 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.index;
+
+import org.neo4j.graphdb.index.IndexHits;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndex;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * A {@link BatchInserterIndex} wrapping a legacy (Lucene) index, which only flushes when it has to.
+ * <p/>
+ * Writes are buffered and applied to the wrapped index, followed by {@link BatchInserterIndex#flush()}, after every
+ * <code>flushInterval</code> writes, when {@link #flush()} is called explicitly, or when a read can't be answered
+ * without it. Buffered writes are handed over under the lock and applied outside of it, so that other writers aren't
+ * blocked by a flush; flushes are applied one at a time, in the order the writes were made.
+ * <p/>
+ * For exact, case-sensitive indexes (no <code>type=fulltext</code>, no <code>to_lower_case=true</code>, no custom
+ * <code>analyzer</code>), lookups ({@link #get(String, Object)}) are answered from a bounded, least-recently-used cache
+ * of previous lookups and from the buffered writes, so that reading entities added since the last flush doesn't need
+ * a flush. Values are matched by their {@link String} representation (or that of their elements for arrays), like
+ * Lucene does, which is why only {@link String}s, primitive wrappers and arrays of them take part; other values (e.g.
+ * <code>ValueContext</code>) are treated like {@link #updateOrAdd(long, java.util.Map)}. Lookups on other indexes,
+ * lookups of other values, queries, and reads following {@link #updateOrAdd(long, java.util.Map)} flush buffered
+ * writes first.
+ * <p/>
+ * If applying buffered writes to the wrapped index fails, the index fails for good: the caller that triggered the flush
+ * gets the exception and every later operation throws an {@link IllegalStateException}, since the failed writes may
+ * have been partly applied and can't be retried.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class ManagedIndex implements BatchInserterIndex {
+
+    private final String name;
+    private final BatchInserterIndex index;
+    private final boolean exact;
+    private final int flushInterval;
+
+    private final Object flushLock = new Object();
+    private final Deque<Batch> flushing = new ArrayDeque<>();
+    private Batch pending = new Batch();
+    private final Map<Lookup, long[]> lookups;
+
+    private long flushes;
+    private long hits;
+    private long misses;
+    private volatile RuntimeException failure;
+
+    /**
+     * Create a new index wrapping an exact, case-sensitive index.
+     *
+     * @param name          name of the index, for reporting.
+     * @param index         wrapped index. Must not be <code>null</code>.
+     * @param flushInterval maximum number of buffered writes. Must be positive.
+     * @param cacheSize     maximum number of cached lookups, 0 for no caching.
+     */
+    public ManagedIndex(String name, BatchInserterIndex index, int flushInterval, int cacheSize) {
+        this(name, index, Collections.<String, String>emptyMap(), flushInterval, cacheSize);
+    }
+
+    /**
+     * Create a new index.
+     *
+     * @param name          name of the index, for reporting.
+     * @param index         wrapped index. Must not be <code>null</code>.
+     * @param config        configuration the wrapped index was created with. Must not be <code>null</code>.
+     * @param flushInterval maximum number of buffered writes. Must be positive.
+     * @param cacheSize     maximum number of cached lookups, 0 for no caching.
+     */
+    public ManagedIndex(String name, BatchInserterIndex index, Map<String, String> config, int flushInterval, final int cacheSize) {
+        Assert.notNull(index);
+        Assert.notNull(config);
+        Assert.isTrue(flushInterval > 0);
+        Assert.isTrue(cacheSize >= 0);
+
+        this.name = name;
+        this.index = index;
+        this.exact = isExact(config);
+        this.flushInterval = flushInterval;
+        this.lookups = new LinkedHashMap<Lookup, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Lookup, long[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * @return name of the index.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The properties are copied, so the map can be re-used by the caller.
+     */
+    @Override
+    public void add(long entityId, Map<String, Object> properties) {
+        checkNotFailed();
+
+        Batch full;
+
+        synchronized (this) {
+            Map<String, Object> copy = new HashMap<>(properties);
+            pending.writes.add(new Write(entityId, copy, false));
+
+            if (exact && plain(copy.values())) {
+                for (Map.Entry<String, Object> property : copy.entrySet()) {
+                    for (String value : values(property.getValue())) {
+                        Lookup lookup = new Lookup(property.getKey(), value);
+
+                        List<Long> ids = pending.lookups.get(lookup);
+                        if (ids == null) {
+                            ids = new ArrayList<>(1);
+                            pending.lookups.put(lookup, ids);
+                        }
+                        ids.add(entityId);
+
+                        lookups.remove(lookup);
+                    }
+                }
+            } else {
+                pending.updates = true;
+                lookups.clear();
+            }
+
+            full = handOverIfFull();
+        }
+
+        if (full != null) {
+            applyFlushing();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The properties are copied, so the map can be re-used by the caller. Clears the lookup cache, and the next read
+     * flushes buffered writes.
+     */
+    @Override
+    public void updateOrAdd(long entityId, Map<String, Object> properties) {
+        checkNotFailed();
+
+        Batch full;
+
+        synchronized (this) {
+            pending.writes.add(new Write(entityId, new HashMap<>(properties), true));
+            pending.updates = true;
+            lookups.clear();
+
+            full = handOverIfFull();
+        }
+
+        if (full != null) {
+            applyFlushing();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Includes entities added since the last flush.
+     */
+    @Override
+    public IndexHits<Long> get(String key, Object value) {
+        checkNotFailed();
+
+        boolean answerable = exact && plain(Collections.singleton(value));
+        Lookup lookup = new Lookup(key, String.valueOf(value));
+
+        synchronized (this) {
+            if (answerable) {
+                long[] cached = lookups.get(lookup);
+                if (cached != null) {
+                    hits++;
+                    return new LongIndexHits(cached);
+                }
+            }
+
+            misses++;
+
+            if (!answerable || pending.updates) {
+                handOver();
+            }
+        }
+
+        synchronized (flushLock) {
+            applyFlushing();
+
+            if (!answerable) {
+                return index.get(key, value);
+            }
+
+            List<Long> result = new ArrayList<>();
+            try (IndexHits<Long> found = index.get(key, value)) {
+                while (found.hasNext()) {
+                    result.add(found.next());
+                }
+            }
+
+            synchronized (this) {
+                for (Batch batch : flushing) {
+                    batch.addIds(lookup, result);
+                }
+                pending.addIds(lookup, result);
+
+                long[] ids = new long[result.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = result.get(i);
+                }
+
+                lookups.put(lookup, ids);
+
+                return new LongIndexHits(ids);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Flushes buffered writes first, if there are any.
+     */
+    @Override
+    public IndexHits<Long> query(String key, Object queryOrQueryObject) {
+        checkNotFailed();
+
+        synchronized (this) {
+            handOver();
+        }
+
+        synchronized (flushLock) {
+            applyFlushing();
+            return index.query(key, queryOrQueryObject);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Flushes buffered writes first, if there are any.
+     */
+    @Override
+    public IndexHits<Long> query(Object queryOrQueryObject) {
+        checkNotFailed();
+
+        synchronized (this) {
+            handOver();
+        }
+
+        synchronized (flushLock) {
+            applyFlushing();
+            return index.query(queryOrQueryObject);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Applies all buffered writes.
+     */
+    @Override
+    public void flush() {
+        checkNotFailed();
+
+        synchronized (this) {
+            handOver();
+        }
+
+        applyFlushing();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setCacheCapacity(String key, int size) {
+        synchronized (flushLock) {
+            index.setCacheCapacity(key, size);
+        }
+    }
+
+    /**
+     * @return number of writes waiting to be flushed.
+     */
+    public synchronized int getPendingWrites() {
+        int result = pending.writes.size();
+        for (Batch batch : flushing) {
+            result += batch.writes.size();
+        }
+        return result;
+    }
+
+    /**
+     * @return number of flushes so far.
+     */
+    public synchronized long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * @return number of lookups answered from the cache.
+     */
+    public synchronized long getCacheHits() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups that had to go to the index.
+     */
+    public synchronized long getCacheMisses() {
+        return misses;
+    }
+
+    /**
+     * Hand buffered writes over for flushing if there are too many of them. Must be called holding the lock on this.
+     *
+     * @return the handed over writes, <code>null</code> if there weren't enough.
+     */
+    private Batch handOverIfFull() {
+        if (pending.writes.size() >= flushInterval) {
+            return handOver();
+        }
+        return null;
+    }
+
+    /**
+     * Hand buffered writes over for flushing. Must be called holding the lock on this.
+     *
+     * @return the handed over writes, <code>null</code> if there weren't any.
+     */
+    private Batch handOver() {
+        if (pending.writes.isEmpty()) {
+            return null;
+        }
+
+        Batch result = pending;
+        flushing.addLast(result);
+        pending = new Batch();
+        return result;
+    }
+
+    /**
+     * Apply all handed over writes to the wrapped index, in order. Must not be called holding the lock on this.
+     */
+    private void applyFlushing() {
+        synchronized (flushLock) {
+            while (true) {
+                Batch batch;
+                synchronized (this) {
+                    batch = flushing.peekFirst();
+                }
+
+                if (batch == null) {
+                    return;
+                }
+
+                checkNotFailed();
+
+                try {
+                    batch.applyTo(index);
+                } catch (RuntimeException e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    synchronized (this) {
+                        flushing.removeFirst();
+                        flushes++;
+                    }
+                }
+            }
+        }
+    }
+
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw new IllegalStateException("Legacy index " + name + " has failed to flush and no longer accepts operations", failure);
+        }
+    }
+
+    private static boolean isExact(Map<String, String> config) {
+        return !"fulltext".equalsIgnoreCase(config.get("type"))
+                && !"true".equalsIgnoreCase(config.get("to_lower_case"))
+                && !config.containsKey("analyzer");
+    }
+
+    private static boolean plain(Collection<Object> values) {
+        for (Object value : values) {
+            if (value != null && value.getClass().isArray()) {
+                for (int i = 0; i < Array.getLength(value); i++) {
+                    if (!plainElement(Array.get(value, i))) {
+                        return false;
+                    }
+                }
+            } else if (!plainElement(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean plainElement(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character;
+    }
+
+    private static List<String> values(Object value) {
+        if (value != null && value.getClass().isArray()) {
+            List<String> result = new ArrayList<>();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                result.add(String.valueOf(Array.get(value, i)));
+            }
+            return result;
+        }
+
+        return Collections.singletonList(String.valueOf(value));
+    }
+
+    /**
+     * Buffered writes, flushed together.
+     */
+    private static final class Batch {
+
+        private final List<Write> writes = new ArrayList<>();
+        private final Map<Lookup, List<Long>> lookups = new HashMap<>();
+        private boolean updates;
+
+        private void addIds(Lookup lookup, List<Long> result) {
+            List<Long> ids = lookups.get(lookup);
+            if (ids != null) {
+                result.addAll(ids);
+            }
+        }
+
+        private void applyTo(BatchInserterIndex index) {
+            for (Write write : writes) {
+                if (write.update) {
+                    index.updateOrAdd(write.entityId, write.properties);
+                } else {
+                    index.add(write.entityId, write.properties);
+                }
+            }
+
+            index.flush();
+        }
+    }
+
+    /**
+     * A buffered write.
+     */
+    private static final class Write {
+
+        private final long entityId;
+        private final Map<String, Object> properties;
+        private final boolean update;
+
+        private Write(long entityId, Map<String, Object> properties, boolean update) {
+            this.entityId = entityId;
+            this.properties = properties;
+            this.update = update;
+        }
+    }
+
+    /**
+     * An exact lookup of a key and a value.
+     */
+    private static final class Lookup {
+
+        private final String key;
+        private final String value;
+
+        private Lookup(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            Lookup lookup = (Lookup) o;
+            return key.equals(lookup.key) && value.equals(lookup.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + value.hashCode();
+        }
+    }
+}
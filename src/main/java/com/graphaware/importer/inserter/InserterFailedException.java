@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package com.graphaware.importer.inserter;
+
+/**
+ * Thrown by a {@link org.neo4j.unsafe.batchinsert.BatchInserter} that no longer accepts operations, because an operation
+ * it applied asynchronously has failed. Unlike a failure of a single operation, which only affects the row being
+ * imported, it fails the entire importer (see {@link com.graphaware.importer.importer.BaseImporter}).
+ */
+public class InserterFailedException extends IllegalStateException {
+
+    /**
+     * Create a new exception.
+     *
+     * @param message message.
+     * @param cause   failure of the asynchronously applied operation.
+     */
+    public InserterFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
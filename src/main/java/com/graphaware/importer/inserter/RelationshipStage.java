@@ -0,0 +1,655 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.inserter;
+
+import com.graphaware.importer.cache.OffHeapLongCache;
+import com.graphaware.importer.domain.PropertyBuffer;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, on-disk buffer of relationships, which are inserted all at once, in an order friendly to the store.
+ * <p/>
+ * Each staged relationship is written to a record file as a fixed-size record of (source, target, type, reference to
+ * properties); properties are written to a separate file. When {@link #insert(org.neo4j.unsafe.batchinsert.BatchInserter)}
+ * is called, the degree of every node is counted, each relationship is assigned to its endpoint with the higher degree,
+ * and the records are sorted (in place, in memory-mapped files) by that node and then by the other endpoint. All
+ * relationships of a node, including the many relationships of dense nodes, are thus created one after another, while
+ * the node's relationship chain (or groups) are in the page cache, rather than being spread across the whole import.
+ * <p/>
+ * Supported property values are primitives, Strings and arrays of longs, ints, doubles, booleans and Strings.
+ * <p/>
+ * Staging is thread-safe. Insertion must happen once all relationships have been staged; the files are deleted afterwards.
+ * If the relationships are not to be inserted after all (e.g. because the import has failed), {@link #discard()} must be
+ * called to delete the files.
+ */
+public class RelationshipStage {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RelationshipStage.class);
+
+    private static final int RECORD_SIZE = 32;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long NO_PROPERTIES = -1;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private static final byte TAG_LONG = 1;
+    private static final byte TAG_INTEGER = 2;
+    private static final byte TAG_DOUBLE = 3;
+    private static final byte TAG_FLOAT = 4;
+    private static final byte TAG_SHORT = 5;
+    private static final byte TAG_BYTE = 6;
+    private static final byte TAG_BOOLEAN = 7;
+    private static final byte TAG_CHARACTER = 8;
+    private static final byte TAG_STRING = 9;
+    private static final byte TAG_LONG_ARRAY = 10;
+    private static final byte TAG_INT_ARRAY = 11;
+    private static final byte TAG_DOUBLE_ARRAY = 12;
+    private static final byte TAG_BOOLEAN_ARRAY = 13;
+    private static final byte TAG_STRING_ARRAY = 14;
+
+    private final File recordFile;
+    private final File propertyFile;
+    private final File degreeFile;
+
+    private final DataOutputStream records;
+    private final DataOutputStream properties;
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    private final DataOutputStream encoder = new DataOutputStream(encoded);
+
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final Map<String, Integer> typeIds = new HashMap<>();
+    private final List<RelationshipType> types = new ArrayList<>();
+
+    private long size;
+    private long propertiesLength;
+    private boolean closed;
+
+    /**
+     * Create a new stage. Existing files with the same base name are overwritten.
+     *
+     * @param file base name of the files backing the stage. Must not be <code>null</code>.
+     */
+    public RelationshipStage(File file) {
+        Assert.notNull(file);
+
+        this.recordFile = new File(file.getAbsolutePath() + ".records");
+        this.propertyFile = new File(file.getAbsolutePath() + ".properties");
+        this.degreeFile = new File(file.getAbsolutePath() + ".degrees");
+
+        try {
+            this.records = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(recordFile), BUFFER_SIZE));
+            this.properties = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(propertyFile), BUFFER_SIZE));
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Could not create relationship stage " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Stage a relationship.
+     *
+     * @param source     ID of the source node.
+     * @param target     ID of the target node.
+     * @param type       relationship type. Must not be <code>null</code>.
+     * @param properties relationship properties, can be <code>null</code>. Not retained.
+     */
+    public synchronized void stage(long source, long target, RelationshipType type, Map<String, Object> properties) {
+        Assert.notNull(type);
+
+        if (closed) {
+            throw new IllegalStateException("Relationships have already been inserted");
+        }
+
+        try {
+            long reference = properties == null || properties.isEmpty() ? NO_PROPERTIES : writeProperties(properties);
+
+            records.writeLong(source);
+            records.writeLong(target);
+            records.writeLong(reference);
+            records.writeInt(typeId(type));
+            records.writeInt(0);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not stage relationship", e);
+        }
+
+        size++;
+    }
+
+    /**
+     * @return number of staged relationships.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Insert all staged relationships and delete the files backing this stage. No more relationships can be staged
+     * afterwards. Relationships that fail to be inserted are logged and skipped.
+     *
+     * @param inserter to insert relationships with. Must not be <code>null</code>.
+     * @return number of inserted relationships.
+     */
+    public synchronized long insert(BatchInserter inserter) {
+        return insert(inserter, null);
+    }
+
+    /**
+     * Insert all staged relationships and delete the files backing this stage. No more relationships can be staged
+     * afterwards. Relationships that fail to be inserted are skipped, without affecting the others.
+     *
+     * @param inserter to insert relationships with. Must not be <code>null</code>.
+     * @param failures notified of every relationship that fails to be inserted. Can be <code>null</code>, in which case
+     *                 failures are logged.
+     * @return number of inserted relationships.
+     */
+    public synchronized long insert(BatchInserter inserter, FailureHandler failures) {
+        Assert.notNull(inserter);
+
+        try {
+            close();
+
+            if (size == 0) {
+                return 0;
+            }
+
+            Segments records = new Segments(recordFile, size * RECORD_SIZE, FileChannel.MapMode.READ_WRITE);
+            Segments properties = new Segments(propertyFile, propertiesLength, FileChannel.MapMode.READ_ONLY);
+
+            LOG.info("Grouping " + size + " staged relationships by node...");
+            groupByDenserNode(records);
+
+            LOG.info("Sorting " + size + " staged relationships...");
+            sort(records, 0, size - 1);
+
+            LOG.info("Inserting " + size + " staged relationships...");
+            PropertyBuffer buffer = new PropertyBuffer();
+            long inserted = 0;
+            for (long i = 0; i < size; i++) {
+                long position = i * RECORD_SIZE;
+                long first = records.getLong(position);
+                long second = records.getLong(position + 8);
+                long reference = records.getLong(position + 16);
+                RelationshipType type = types.get(records.getInt(position + 24));
+                boolean swapped = records.getInt(position + 28) != 0;
+
+                buffer.clear();
+                if (reference != NO_PROPERTIES) {
+                    readProperties(properties, reference, buffer);
+                }
+
+                long source = swapped ? second : first;
+                long target = swapped ? first : second;
+
+                try {
+                    inserter.createRelationship(source, target, type, buffer);
+                    inserted++;
+                } catch (RuntimeException e) {
+                    if (failures != null) {
+                        failures.failed(source, target, type, e);
+                    } else {
+                        LOG.warn("Failed to insert staged relationship (" + source + ")-[:" + type.name() + "]->(" + target + "). Skipping: " + e.getMessage());
+                    }
+                }
+            }
+
+            return inserted;
+        } finally {
+            delete();
+        }
+    }
+
+    /**
+     * Discard all staged relationships and delete the files backing this stage.
+     */
+    public synchronized void discard() {
+        try {
+            close();
+        } finally {
+            delete();
+        }
+    }
+
+    /**
+     * Count node degrees and store every relationship with its denser endpoint first, marking swapped endpoints.
+     */
+    private void groupByDenserNode(Segments records) {
+        OffHeapLongCache degrees = new OffHeapLongCache(degreeFile, Math.min(size, OffHeapLongCache.DEFAULT_CAPACITY << 4));
+        try {
+            for (long position = 0; position < size * RECORD_SIZE; position += RECORD_SIZE) {
+                increment(degrees, records.getLong(position));
+                increment(degrees, records.getLong(position + 8));
+            }
+
+            for (long position = 0; position < size * RECORD_SIZE; position += RECORD_SIZE) {
+                long source = records.getLong(position);
+                long target = records.getLong(position + 8);
+                if (degrees.getLong(target) > degrees.getLong(source)) {
+                    records.putLong(position, target);
+                    records.putLong(position + 8, source);
+                    records.putInt(position + 28, 1);
+                }
+            }
+        } finally {
+            degrees.close();
+        }
+    }
+
+    private static void increment(OffHeapLongCache degrees, long node) {
+        long degree = degrees.getLong(node);
+        degrees.putLong(node, degree == OffHeapLongCache.NO_VALUE ? 1 : degree + 1);
+    }
+
+    /**
+     * Quicksort records between low and high (inclusive) by their first and then second node.
+     */
+    private static void sort(Segments records, long low, long high) {
+        while (high - low >= INSERTION_SORT_THRESHOLD) {
+            long middle = ((low + high) >>> 1) * RECORD_SIZE;
+            long pivotFirst = records.getLong(middle);
+            long pivotSecond = records.getLong(middle + 8);
+
+            long i = low;
+            long j = high;
+            while (i <= j) {
+                while (compare(records, i, pivotFirst, pivotSecond) < 0) {
+                    i++;
+                }
+                while (compare(records, j, pivotFirst, pivotSecond) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(records, i++, j--);
+                }
+            }
+
+            //recurse into the smaller part, iterate over the larger one
+            if (j - low < high - i) {
+                sort(records, low, j);
+                low = i;
+            } else {
+                sort(records, i, high);
+                high = j;
+            }
+        }
+
+        for (long i = low + 1; i <= high; i++) {
+            for (long j = i; j > low; j--) {
+                long previous = (j - 1) * RECORD_SIZE;
+                if (compare(records, j, records.getLong(previous), records.getLong(previous + 8)) >= 0) {
+                    break;
+                }
+                swap(records, j, j - 1);
+            }
+        }
+    }
+
+    private static int compare(Segments records, long index, long first, long second) {
+        long position = index * RECORD_SIZE;
+        int result = Long.compare(records.getLong(position), first);
+        return result != 0 ? result : Long.compare(records.getLong(position + 8), second);
+    }
+
+    private static void swap(Segments records, long i, long j) {
+        long first = i * RECORD_SIZE;
+        long second = j * RECORD_SIZE;
+        for (int offset = 0; offset < RECORD_SIZE; offset += 8) {
+            long value = records.getLong(first + offset);
+            records.putLong(first + offset, records.getLong(second + offset));
+            records.putLong(second + offset, value);
+        }
+    }
+
+    private int typeId(RelationshipType type) {
+        Integer id = typeIds.get(type.name());
+        if (id == null) {
+            id = types.size();
+            typeIds.put(type.name(), id);
+            types.add(type);
+        }
+        return id;
+    }
+
+    private int keyId(String key) {
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            id = keys.size();
+            keyIds.put(key, id);
+            keys.add(key);
+        }
+        return id;
+    }
+
+    /**
+     * Write properties to the property file, so that they don't span mapped segments.
+     *
+     * @return position of the properties in the file.
+     */
+    private long writeProperties(Map<String, Object> properties) throws IOException {
+        encoded.reset();
+        encoder.writeInt(properties.size());
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            encoder.writeInt(keyId(property.getKey()));
+            encode(property.getKey(), property.getValue());
+        }
+
+        if (encoded.size() > SEGMENT_SIZE) {
+            throw new IllegalArgumentException("Relationship properties too large to stage");
+        }
+
+        if ((propertiesLength & SEGMENT_MASK) + encoded.size() > SEGMENT_SIZE) {
+            long padding = SEGMENT_SIZE - (propertiesLength & SEGMENT_MASK);
+            for (long i = 0; i < padding; i++) {
+                this.properties.write(0);
+            }
+            propertiesLength += padding;
+        }
+
+        long reference = propertiesLength;
+        encoded.writeTo(this.properties);
+        propertiesLength += encoded.size();
+        return reference;
+    }
+
+    private void encode(String key, Object value) throws IOException {
+        if (value instanceof Long) {
+            encoder.writeByte(TAG_LONG);
+            encoder.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            encoder.writeByte(TAG_INTEGER);
+            encoder.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            encoder.writeByte(TAG_DOUBLE);
+            encoder.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            encoder.writeByte(TAG_FLOAT);
+            encoder.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            encoder.writeByte(TAG_SHORT);
+            encoder.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            encoder.writeByte(TAG_BYTE);
+            encoder.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            encoder.writeByte(TAG_BOOLEAN);
+            encoder.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            encoder.writeByte(TAG_CHARACTER);
+            encoder.writeChar((Character) value);
+        } else if (value instanceof String) {
+            encoder.writeByte(TAG_STRING);
+            writeString((String) value);
+        } else if (value instanceof long[]) {
+            long[] array = (long[]) value;
+            encoder.writeByte(TAG_LONG_ARRAY);
+            encoder.writeInt(array.length);
+            for (long element : array) {
+                encoder.writeLong(element);
+            }
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            encoder.writeByte(TAG_INT_ARRAY);
+            encoder.writeInt(array.length);
+            for (int element : array) {
+                encoder.writeInt(element);
+            }
+        } else if (value instanceof double[]) {
+            double[] array = (double[]) value;
+            encoder.writeByte(TAG_DOUBLE_ARRAY);
+            encoder.writeInt(array.length);
+            for (double element : array) {
+                encoder.writeDouble(element);
+            }
+        } else if (value instanceof boolean[]) {
+            boolean[] array = (boolean[]) value;
+            encoder.writeByte(TAG_BOOLEAN_ARRAY);
+            encoder.writeInt(array.length);
+            for (boolean element : array) {
+                encoder.writeBoolean(element);
+            }
+        } else if (value instanceof String[]) {
+            String[] array = (String[]) value;
+            encoder.writeByte(TAG_STRING_ARRAY);
+            encoder.writeInt(array.length);
+            for (String element : array) {
+                writeString(element);
+            }
+        } else {
+            throw new IllegalArgumentException("Can't stage property " + key + " of type " + (value == null ? null : value.getClass().getName()));
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        encoder.writeInt(bytes.length);
+        encoder.write(bytes);
+    }
+
+    private void readProperties(Segments segments, long reference, PropertyBuffer buffer) {
+        Reader reader = new Reader(segments.segment(reference), (int) (reference & SEGMENT_MASK));
+
+        int count = reader.readInt();
+        for (int i = 0; i < count; i++) {
+            String key = keys.get(reader.readInt());
+            byte tag = reader.readByte();
+            switch (tag) {
+                case TAG_LONG:
+                    buffer.putLong(key, reader.readLong());
+                    break;
+                case TAG_INTEGER:
+                    buffer.putInt(key, reader.readInt());
+                    break;
+                case TAG_DOUBLE:
+                    buffer.putDouble(key, Double.longBitsToDouble(reader.readLong()));
+                    break;
+                case TAG_FLOAT:
+                    buffer.putObject(key, Float.intBitsToFloat(reader.readInt()));
+                    break;
+                case TAG_SHORT:
+                    buffer.putObject(key, reader.readShort());
+                    break;
+                case TAG_BYTE:
+                    buffer.putObject(key, reader.readByte());
+                    break;
+                case TAG_BOOLEAN:
+                    buffer.putObject(key, reader.readByte() != 0);
+                    break;
+                case TAG_CHARACTER:
+                    buffer.putObject(key, (char) reader.readShort());
+                    break;
+                case TAG_STRING:
+                    buffer.putString(key, reader.readString());
+                    break;
+                case TAG_LONG_ARRAY:
+                    long[] longs = new long[reader.readInt()];
+                    for (int j = 0; j < longs.length; j++) {
+                        longs[j] = reader.readLong();
+                    }
+                    buffer.putLongArray(key, longs);
+                    break;
+                case TAG_INT_ARRAY:
+                    int[] ints = new int[reader.readInt()];
+                    for (int j = 0; j < ints.length; j++) {
+                        ints[j] = reader.readInt();
+                    }
+                    buffer.putIntArray(key, ints);
+                    break;
+                case TAG_DOUBLE_ARRAY:
+                    double[] doubles = new double[reader.readInt()];
+                    for (int j = 0; j < doubles.length; j++) {
+                        doubles[j] = Double.longBitsToDouble(reader.readLong());
+                    }
+                    buffer.putDoubleArray(key, doubles);
+                    break;
+                case TAG_BOOLEAN_ARRAY:
+                    boolean[] booleans = new boolean[reader.readInt()];
+                    for (int j = 0; j < booleans.length; j++) {
+                        booleans[j] = reader.readByte() != 0;
+                    }
+                    buffer.putObject(key, booleans);
+                    break;
+                case TAG_STRING_ARRAY:
+                    String[] strings = new String[reader.readInt()];
+                    for (int j = 0; j < strings.length; j++) {
+                        strings[j] = reader.readString();
+                    }
+                    buffer.putStringArray(key, strings);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown property tag " + tag);
+            }
+        }
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            records.close();
+            properties.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not close relationship stage", e);
+        }
+    }
+
+    private void delete() {
+        for (File file : new File[]{recordFile, propertyFile}) {
+            if (file.exists() && !file.delete()) {
+                LOG.warn("Could not delete " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Notified of staged relationships that fail to be inserted.
+     */
+    public interface FailureHandler {
+
+        /**
+         * Handle a relationship that failed to be inserted and has been skipped.
+         *
+         * @param source ID of the source node.
+         * @param target ID of the target node.
+         * @param type   relationship type.
+         * @param e      failure.
+         */
+        void failed(long source, long target, RelationshipType type, RuntimeException e);
+    }
+
+    /**
+     * A file mapped into memory in segments of {@link #SEGMENT_SIZE} bytes.
+     */
+    private static final class Segments {
+
+        private final MappedByteBuffer[] segments;
+
+        private Segments(File file, long length, FileChannel.MapMode mode) {
+            this.segments = new MappedByteBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+
+            try (RandomAccessFile raf = new RandomAccessFile(file, mode == FileChannel.MapMode.READ_ONLY ? "r" : "rw")) {
+                FileChannel channel = raf.getChannel();
+                for (int i = 0; i < segments.length; i++) {
+                    long start = (long) i << SEGMENT_SHIFT;
+                    segments[i] = channel.map(mode, start, Math.min(SEGMENT_SIZE, length - start));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Could not map " + file.getAbsolutePath(), e);
+            }
+        }
+
+        private MappedByteBuffer segment(long position) {
+            return segments[(int) (position >>> SEGMENT_SHIFT)];
+        }
+
+        private long getLong(long position) {
+            return segment(position).getLong((int) (position & SEGMENT_MASK));
+        }
+
+        private void putLong(long position, long value) {
+            segment(position).putLong((int) (position & SEGMENT_MASK), value);
+        }
+
+        private int getInt(long position) {
+            return segment(position).getInt((int) (position & SEGMENT_MASK));
+        }
+
+        private void putInt(long position, int value) {
+            segment(position).putInt((int) (position & SEGMENT_MASK), value);
+        }
+    }
+
+    /**
+     * Sequential reader of properties within a mapped segment.
+     */
+    private static final class Reader {
+
+        private final MappedByteBuffer segment;
+        private int position;
+
+        private Reader(MappedByteBuffer segment, int position) {
+            this.segment = segment;
+            this.position = position;
+        }
+
+        private long readLong() {
+            long result = segment.getLong(position);
+            position += 8;
+            return result;
+        }
+
+        private int readInt() {
+            int result = segment.getInt(position);
+            position += 4;
+            return result;
+        }
+
+        private short readShort() {
+            short result = segment.getShort(position);
+            position += 2;
+            return result;
+        }
+
+        private byte readByte() {
+            return segment.get(position++);
+        }
+
+        private String readString() {
+            byte[] bytes = new byte[readInt()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = segment.get(position++);
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
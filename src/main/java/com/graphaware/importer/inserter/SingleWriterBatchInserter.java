@@ -0,0 +1,758 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.inserter;
+
+import com.graphaware.importer.domain.PropertyBuffer;
+import com.graphaware.importer.util.MpscRingBuffer;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.schema.ConstraintCreator;
+import org.neo4j.graphdb.schema.ConstraintDefinition;
+import org.neo4j.graphdb.schema.IndexCreator;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchRelationship;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link BatchInserter} that can be used by many threads concurrently without them contending on a single monitor.
+ * <p/>
+ * All calls are turned into operations, which are passed through a bounded {@link MpscRingBuffer} to a single dedicated
+ * writer thread, which applies them to the wrapped {@link BatchInserter} in batches, in the order in which they were
+ * submitted. Operations submitted by a single thread are thus applied in program order.
+ * <p/>
+ * Write operations return immediately. Node IDs are assigned up-front from a counter that starts at the first free
+ * node ID in the store, and nodes are created using {@link BatchInserter#createNode(long, java.util.Map, org.neo4j.graphdb.Label...)},
+ * so {@link #createNode(java.util.Map, org.neo4j.graphdb.Label...)} returns a valid node ID without waiting. Ranges
+ * of node IDs can also be reserved using {@link #reserveNodeIds(int)}. Relationship IDs, however, can't be known in
+ * advance, so {@link #createRelationship(long, long, org.neo4j.graphdb.RelationshipType, java.util.Map)} waits for all
+ * previously submitted operations and the relationship to be created, i.e., for a round trip to the writer thread per
+ * relationship. Importers creating mostly relationships through the {@link BatchInserter} interface are therefore
+ * slower with this inserter than with {@link SynchronizedBatchInserter}. Callers that don't need the ID should use
+ * {@link #createRelationshipAsync(long, long, org.neo4j.graphdb.RelationshipType, java.util.Map)}, which returns immediately.
+ * <p/>
+ * Read operations, as well as schema index and constraint creation, wait for all previously submitted operations to
+ * be applied and are then executed on the writer thread. Lazy results (like {@link #getRelationships(long)}) are
+ * materialized before they are returned.
+ * <p/>
+ * Property maps and label arrays passed in to write operations must not be modified by callers afterwards. The only
+ * exception is {@link PropertyBuffer}, which is copied (one allocation per operation), so that callers can re-use it
+ * straight away.
+ * <p/>
+ * Failures of read operations are re-thrown to the caller. A write operation, however, has long returned when it fails
+ * on the writer thread, so the inserter fails fast: the failure is logged and counted (see {@link #failedOperations()}),
+ * and every operation submitted afterwards, by any thread, throws an {@link InserterFailedException}, which fails the
+ * importer submitting it. If no operation is submitted after the failure, {@link #shutdown()} throws it instead.
+ * <p/>
+ * {@link #shutdown()} applies all operations submitted before it is called, and operations submitted concurrently are
+ * either applied or rejected with an {@link IllegalStateException}, never lost.
+ */
+public class SingleWriterBatchInserter implements BatchInserter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SingleWriterBatchInserter.class);
+
+    public static final int DEFAULT_CAPACITY = 65_536;
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final BatchInserter batchInserter;
+    private final MpscRingBuffer<Operation> buffer;
+    private final int batchSize;
+    private final AtomicLong nextNodeId;
+    private final Thread writer;
+    private final AtomicLong failedOperations = new AtomicLong();
+
+    private volatile boolean shutdown;
+    private volatile RuntimeException failure;
+    private volatile boolean failureReported;
+
+    /**
+     * Create a new inserter with {@link #DEFAULT_CAPACITY} and {@link #DEFAULT_BATCH_SIZE}.
+     *
+     * @param batchInserter wrapped inserter. Must not be <code>null</code>.
+     */
+    public SingleWriterBatchInserter(BatchInserter batchInserter) {
+        this(batchInserter, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a new inserter.
+     *
+     * @param batchInserter wrapped inserter. Must not be <code>null</code>.
+     * @param capacity      maximum number of operations waiting to be applied, must be a power of two.
+     * @param batchSize     maximum number of operations applied by the writer thread in one go. Must be positive.
+     */
+    public SingleWriterBatchInserter(BatchInserter batchInserter, int capacity, int batchSize) {
+        Assert.notNull(batchInserter);
+        Assert.isTrue(batchSize > 0);
+
+        this.batchInserter = batchInserter;
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.nextNodeId = new AtomicLong(firstFreeNodeId(batchInserter));
+
+        this.writer = new Thread(new Writer(), "batch-inserter-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public BatchInserter getBatchInserter() {
+        return batchInserter;
+    }
+
+    /**
+     * Reserve a contiguous range of node IDs. Nodes with these IDs can then be created using
+     * {@link #createNode(long, java.util.Map, org.neo4j.graphdb.Label...)}.
+     *
+     * @param count number of IDs to reserve. Must be positive.
+     * @return first reserved ID.
+     */
+    public long reserveNodeIds(int count) {
+        Assert.isTrue(count > 0);
+
+        return nextNodeId.getAndAdd(count);
+    }
+
+    /**
+     * Wait until all operations submitted so far have been applied.
+     *
+     * @throws InserterFailedException if a write operation has failed.
+     */
+    public void flush() {
+        query(new Query<Void>() {
+            @Override
+            Void execute(BatchInserter inserter) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return approximate number of operations waiting to be applied.
+     */
+    public int pendingOperations() {
+        return buffer.size();
+    }
+
+    /**
+     * @return number of write operations that have failed on the writer thread so far.
+     */
+    public long failedOperations() {
+        return failedOperations.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long createNode(Map<String, Object> properties, Label... labels) {
+        long id = nextNodeId.getAndIncrement();
+        submit(new CreateNode(id, detach(properties), labels));
+        return id;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createNode(long id, Map<String, Object> properties, Label... labels) {
+        long next;
+        while ((next = nextNodeId.get()) <= id && !nextNodeId.compareAndSet(next, id + 1)) {
+            //retry
+        }
+
+        submit(new CreateNode(id, detach(properties), labels));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean nodeExists(final long nodeId) {
+        return query(new Query<Boolean>() {
+            @Override
+            Boolean execute(BatchInserter inserter) {
+                return inserter.nodeExists(nodeId);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setNodeProperties(final long node, Map<String, Object> properties) {
+        final Map<String, Object> detached = detach(properties);
+
+        submit(new Operation() {
+            @Override
+            void apply(BatchInserter inserter) {
+                inserter.setNodeProperties(node, detached);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean nodeHasProperty(final long node, final String propertyName) {
+        return query(new Query<Boolean>() {
+            @Override
+            Boolean execute(BatchInserter inserter) {
+                return inserter.nodeHasProperty(node, propertyName);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setNodeLabels(final long node, final Label... labels) {
+        submit(new Operation() {
+            @Override
+            void apply(BatchInserter inserter) {
+                inserter.setNodeLabels(node, labels);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<Label> getNodeLabels(final long node) {
+        return query(new Query<Iterable<Label>>() {
+            @Override
+            Iterable<Label> execute(BatchInserter inserter) {
+                return materialize(inserter.getNodeLabels(node));
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean nodeHasLabel(final long node, final Label label) {
+        return query(new Query<Boolean>() {
+            @Override
+            Boolean execute(BatchInserter inserter) {
+                return inserter.nodeHasLabel(node, label);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean relationshipHasProperty(final long relationship, final String propertyName) {
+        return query(new Query<Boolean>() {
+            @Override
+            Boolean execute(BatchInserter inserter) {
+                return inserter.relationshipHasProperty(relationship, propertyName);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setNodeProperty(final long node, final String propertyName, final Object propertyValue) {
+        submit(new Operation() {
+            @Override
+            void apply(BatchInserter inserter) {
+                inserter.setNodeProperty(node, propertyName, propertyValue);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setRelationshipProperty(final long relationship, final String propertyName, final Object propertyValue) {
+        submit(new Operation() {
+            @Override
+            void apply(BatchInserter inserter) {
+                inserter.setRelationshipProperty(relationship, propertyName, propertyValue);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getNodeProperties(final long nodeId) {
+        return query(new Query<Map<String, Object>>() {
+            @Override
+            Map<String, Object> execute(BatchInserter inserter) {
+                return inserter.getNodeProperties(nodeId);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<Long> getRelationshipIds(final long nodeId) {
+        return query(new Query<Iterable<Long>>() {
+            @Override
+            Iterable<Long> execute(BatchInserter inserter) {
+                return materialize(inserter.getRelationshipIds(nodeId));
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterable<BatchRelationship> getRelationships(final long nodeId) {
+        return query(new Query<Iterable<BatchRelationship>>() {
+            @Override
+            Iterable<BatchRelationship> execute(BatchInserter inserter) {
+                return materialize(inserter.getRelationships(nodeId));
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Waits for all pending operations and the relationship to be created. Use
+     * {@link #createRelationshipAsync(long, long, org.neo4j.graphdb.RelationshipType, java.util.Map)} when the ID isn't needed.
+     */
+    @Override
+    public long createRelationship(final long node1, final long node2, final RelationshipType type, Map<String, Object> properties) {
+        final Map<String, Object> detached = detach(properties);
+
+        return query(new Query<Long>() {
+            @Override
+            Long execute(BatchInserter inserter) {
+                return inserter.createRelationship(node1, node2, type, detached);
+            }
+        });
+    }
+
+    /**
+     * Create a relationship without waiting for it to be created.
+     *
+     * @param node1      start node ID.
+     * @param node2      end node ID.
+     * @param type       relationship type.
+     * @param properties relationship properties, can be <code>null</code>.
+     */
+    public void createRelationshipAsync(final long node1, final long node2, final RelationshipType type, Map<String, Object> properties) {
+        final Map<String, Object> detached = detach(properties);
+
+        submit(new Operation() {
+            @Override
+            void apply(BatchInserter inserter) {
+                inserter.createRelationship(node1, node2, type, detached);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BatchRelationship getRelationshipById(final long relId) {
+        return query(new Query<BatchRelationship>() {
+            @Override
+            BatchRelationship execute(BatchInserter inserter) {
+                return inserter.getRelationshipById(relId);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setRelationshipProperties(final long rel, Map<String, Object> properties) {
+        final Map<String, Object> detached = detach(properties);
+
+        submit(new Operation() {
+            @Override
+            void apply(BatchInserter inserter) {
+                inserter.setRelationshipProperties(rel, detached);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Object> getRelationshipProperties(final long relId) {
+        return query(new Query<Map<String, Object>>() {
+            @Override
+            Map<String, Object> execute(BatchInserter inserter) {
+                return inserter.getRelationshipProperties(relId);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeNodeProperty(final long node, final String property) {
+        submit(new Operation() {
+            @Override
+            void apply(BatchInserter inserter) {
+                inserter.removeNodeProperty(node, property);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void removeRelationshipProperty(final long relationship, final String property) {
+        submit(new Operation() {
+            @Override
+            void apply(BatchInserter inserter) {
+                inserter.removeRelationshipProperty(relationship, property);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The returned creator collects properties on the calling thread; {@link IndexCreator#create()} is executed on the
+     * writer thread and waits for all pending operations to be applied.
+     */
+    @Override
+    public IndexCreator createDeferredSchemaIndex(Label label) {
+        return new QueuedIndexCreator(label, new ArrayList<String>());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The returned creator collects properties on the calling thread; {@link ConstraintCreator#create()} is executed on
+     * the writer thread and waits for all pending operations to be applied.
+     */
+    @Override
+    public ConstraintCreator createDeferredConstraint(Label label) {
+        return new QueuedConstraintCreator(label, new ArrayList<String>());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Applies all operations submitted so far and shuts the wrapped inserter down. Has no effect when called again.
+     *
+     * @throws InserterFailedException if a write operation has failed and no operation has been submitted since.
+     */
+    @Override
+    public synchronized void shutdown() {
+        if (shutdown) {
+            return;
+        }
+
+        shutdown = true;
+        buffer.close();
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        batchInserter.shutdown();
+
+        if (failure != null && !failureReported) {
+            throw failed();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getStoreDir() {
+        return batchInserter.getStoreDir();
+    }
+
+    private void submit(Operation operation) {
+        checkHealthy();
+
+        try {
+            buffer.put(operation);
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException("Batch inserter has been shut down");
+        }
+    }
+
+    private <T> T query(Query<T> query) {
+        submit(query);
+
+        try {
+            query.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        if (query.failure != null) {
+            throw query.failure;
+        }
+
+        if (failure != null) {
+            throw failed();
+        }
+
+        return query.result;
+    }
+
+    private void checkHealthy() {
+        if (failure != null) {
+            throw failed();
+        }
+
+        if (shutdown) {
+            throw new IllegalStateException("Batch inserter has been shut down");
+        }
+    }
+
+    private InserterFailedException failed() {
+        failureReported = true;
+        return new InserterFailedException("A write operation has failed, the batch inserter no longer accepts operations: " + failure.getMessage(), failure);
+    }
+
+    private static Map<String, Object> detach(Map<String, Object> properties) {
+        if (properties instanceof PropertyBuffer) {
+            return ((PropertyBuffer) properties).copy();
+        }
+        return properties;
+    }
+
+    private static <T> List<T> materialize(Iterable<T> iterable) {
+        List<T> result = new ArrayList<>();
+        for (T t : iterable) {
+            result.add(t);
+        }
+        return result;
+    }
+
+    /**
+     * Find the first free node ID, assuming node IDs in the store are contiguous, which is the case for stores
+     * populated by batch inserters.
+     */
+    private static long firstFreeNodeId(BatchInserter inserter) {
+        if (!inserter.nodeExists(0)) {
+            return 0;
+        }
+
+        long existing = 0;
+        long free = 1;
+        while (inserter.nodeExists(free)) {
+            existing = free;
+            free <<= 1;
+        }
+
+        while (free - existing > 1) {
+            long middle = (existing + free) >>> 1;
+            if (inserter.nodeExists(middle)) {
+                existing = middle;
+            } else {
+                free = middle;
+            }
+        }
+
+        return free;
+    }
+
+    /**
+     * An operation on the wrapped inserter, applied by the writer thread.
+     */
+    private abstract static class Operation {
+
+        abstract void apply(BatchInserter inserter);
+    }
+
+    /**
+     * An operation producing a result, which the submitting thread waits for.
+     */
+    private abstract static class Query<T> extends Operation {
+
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile T result;
+        private volatile RuntimeException failure;
+
+        @Override
+        final void apply(BatchInserter inserter) {
+            try {
+                result = execute(inserter);
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                done.countDown();
+            }
+        }
+
+        abstract T execute(BatchInserter inserter);
+    }
+
+    private static final class CreateNode extends Operation {
+
+        private final long id;
+        private final Map<String, Object> properties;
+        private final Label[] labels;
+
+        private CreateNode(long id, Map<String, Object> properties, Label[] labels) {
+            this.id = id;
+            this.properties = properties;
+            this.labels = labels;
+        }
+
+        @Override
+        void apply(BatchInserter inserter) {
+            inserter.createNode(id, properties, labels);
+        }
+    }
+
+    /**
+     * {@link IndexCreator} that creates the index on the writer thread.
+     */
+    private final class QueuedIndexCreator implements IndexCreator {
+
+        private final Label label;
+        private final List<String> properties;
+
+        private QueuedIndexCreator(Label label, List<String> properties) {
+            this.label = label;
+            this.properties = properties;
+        }
+
+        @Override
+        public IndexCreator on(String propertyKey) {
+            List<String> extended = new ArrayList<>(properties);
+            extended.add(propertyKey);
+            return new QueuedIndexCreator(label, extended);
+        }
+
+        @Override
+        public IndexDefinition create() {
+            return query(new Query<IndexDefinition>() {
+                @Override
+                IndexDefinition execute(BatchInserter inserter) {
+                    IndexCreator creator = inserter.createDeferredSchemaIndex(label);
+                    for (String property : properties) {
+                        creator = creator.on(property);
+                    }
+                    return creator.create();
+                }
+            });
+        }
+    }
+
+    /**
+     * {@link ConstraintCreator} that creates the constraint on the writer thread.
+     */
+    private final class QueuedConstraintCreator implements ConstraintCreator {
+
+        private final Label label;
+        private final List<String> properties;
+
+        private QueuedConstraintCreator(Label label, List<String> properties) {
+            this.label = label;
+            this.properties = properties;
+        }
+
+        @Override
+        public ConstraintCreator assertPropertyIsUnique(String propertyKey) {
+            List<String> extended = new ArrayList<>(properties);
+            extended.add(propertyKey);
+            return new QueuedConstraintCreator(label, extended);
+        }
+
+        @Override
+        public ConstraintDefinition create() {
+            return query(new Query<ConstraintDefinition>() {
+                @Override
+                ConstraintDefinition execute(BatchInserter inserter) {
+                    ConstraintCreator creator = inserter.createDeferredConstraint(label);
+                    for (String property : properties) {
+                        creator = creator.assertPropertyIsUnique(property);
+                    }
+                    return creator.create();
+                }
+            });
+        }
+    }
+
+    /**
+     * Applies operations to the wrapped inserter.
+     */
+    private final class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            Operation[] batch = new Operation[batchSize];
+
+            while (true) {
+                int taken;
+                try {
+                    taken = buffer.take(batch);
+                } catch (InterruptedException e) {
+                    LOG.warn("Batch inserter writer interrupted");
+                    return;
+                }
+
+                if (taken == 0) {
+                    return;
+                }
+
+                for (int i = 0; i < taken; i++) {
+                    apply(batch[i]);
+                    batch[i] = null;
+                }
+            }
+        }
+
+        private void apply(Operation operation) {
+            try {
+                operation.apply(batchInserter);
+            } catch (RuntimeException e) {
+                failedOperations.incrementAndGet();
+                LOG.error("Batch inserter operation failed: " + e.getMessage(), e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+}
@@ -26,6 +26,9 @@ import java.util.Map;
 
 /**
  * A {@link BatchInserter} that has all methods synchronized and delegates to a wrapped {@link BatchInserter}.
+ * <p/>
+ * Property maps are consumed by the wrapped inserter before a call returns and are not retained, so callers may re-use
+ * them (e.g. a {@link com.graphaware.importer.domain.PropertyBuffer}) for the next call.
  */
 public class SynchronizedBatchInserter implements BatchInserter {
 
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.inserter;
+
+import com.graphaware.importer.stats.StatisticsCollector;
+import com.graphaware.importer.stats.Timer;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.schema.ConstraintCreator;
+import org.neo4j.graphdb.schema.IndexCreator;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchRelationship;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+
+/**
+ * A {@link BatchInserter} that delegates to a wrapped {@link BatchInserter} and records the time spent in every call
+ * in a {@link Timer} named after the called method. When wrapping a thread-safe inserter, the recorded time includes
+ * the time spent waiting for other threads, i.e., it is the time the callers actually lose.
+ * <p/>
+ * Property maps are passed to the wrapped inserter synchronously and not retained, so callers may re-use them (e.g. a
+ * {@link com.graphaware.importer.domain.PropertyBuffer}) as soon as a call returns, provided the wrapped inserter
+ * doesn't retain them either.
+ */
+public class TimingBatchInserter implements BatchInserter {
+
+    private final BatchInserter delegate;
+
+    private final Timer createNodeTimer;
+    private final Timer nodeExistsTimer;
+    private final Timer setNodePropertiesTimer;
+    private final Timer nodeHasPropertyTimer;
+    private final Timer setNodeLabelsTimer;
+    private final Timer getNodeLabelsTimer;
+    private final Timer nodeHasLabelTimer;
+    private final Timer relationshipHasPropertyTimer;
+    private final Timer setNodePropertyTimer;
+    private final Timer setRelationshipPropertyTimer;
+    private final Timer getNodePropertiesTimer;
+    private final Timer getRelationshipIdsTimer;
+    private final Timer getRelationshipsTimer;
+    private final Timer createRelationshipTimer;
+    private final Timer getRelationshipByIdTimer;
+    private final Timer setRelationshipPropertiesTimer;
+    private final Timer getRelationshipPropertiesTimer;
+    private final Timer removeNodePropertyTimer;
+    private final Timer removeRelationshipPropertyTimer;
+    private final Timer createDeferredSchemaIndexTimer;
+    private final Timer createDeferredConstraintTimer;
+    private final Timer shutdownTimer;
+
+    /**
+     * Create a new inserter.
+     *
+     * @param delegate  wrapped inserter. Must not be <code>null</code>.
+     * @param collector collector to record the timings in. Must not be <code>null</code>.
+     */
+    public TimingBatchInserter(BatchInserter delegate, StatisticsCollector collector) {
+        Assert.notNull(delegate);
+        Assert.notNull(collector);
+
+        this.delegate = delegate;
+        this.createNodeTimer = collector.timer("createNode");
+        this.nodeExistsTimer = collector.timer("nodeExists");
+        this.setNodePropertiesTimer = collector.timer("setNodeProperties");
+        this.nodeHasPropertyTimer = collector.timer("nodeHasProperty");
+        this.setNodeLabelsTimer = collector.timer("setNodeLabels");
+        this.getNodeLabelsTimer = collector.timer("getNodeLabels");
+        this.nodeHasLabelTimer = collector.timer("nodeHasLabel");
+        this.relationshipHasPropertyTimer = collector.timer("relationshipHasProperty");
+        this.setNodePropertyTimer = collector.timer("setNodeProperty");
+        this.setRelationshipPropertyTimer = collector.timer("setRelationshipProperty");
+        this.getNodePropertiesTimer = collector.timer("getNodeProperties");
+        this.getRelationshipIdsTimer = collector.timer("getRelationshipIds");
+        this.getRelationshipsTimer = collector.timer("getRelationships");
+        this.createRelationshipTimer = collector.timer("createRelationship");
+        this.getRelationshipByIdTimer = collector.timer("getRelationshipById");
+        this.setRelationshipPropertiesTimer = collector.timer("setRelationshipProperties");
+        this.getRelationshipPropertiesTimer = collector.timer("getRelationshipProperties");
+        this.removeNodePropertyTimer = collector.timer("removeNodeProperty");
+        this.removeRelationshipPropertyTimer = collector.timer("removeRelationshipProperty");
+        this.createDeferredSchemaIndexTimer = collector.timer("createDeferredSchemaIndex");
+        this.createDeferredConstraintTimer = collector.timer("createDeferredConstraint");
+        this.shutdownTimer = collector.timer("shutdown");
+    }
+
+    public BatchInserter getBatchInserter() {
+        return delegate;
+    }
+
+    @Override
+    public long createNode(Map<String, Object> properties, Label... labels) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createNode(properties, labels);
+        } finally {
+            createNodeTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void createNode(long id, Map<String, Object> properties, Label... labels) {
+        long start = System.nanoTime();
+        try {
+            delegate.createNode(id, properties, labels);
+        } finally {
+            createNodeTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean nodeExists(long nodeId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.nodeExists(nodeId);
+        } finally {
+            nodeExistsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setNodeProperties(long node, Map<String, Object> properties) {
+        long start = System.nanoTime();
+        try {
+            delegate.setNodeProperties(node, properties);
+        } finally {
+            setNodePropertiesTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean nodeHasProperty(long node, String propertyName) {
+        long start = System.nanoTime();
+        try {
+            return delegate.nodeHasProperty(node, propertyName);
+        } finally {
+            nodeHasPropertyTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setNodeLabels(long node, Label... labels) {
+        long start = System.nanoTime();
+        try {
+            delegate.setNodeLabels(node, labels);
+        } finally {
+            setNodeLabelsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Iterable<Label> getNodeLabels(long node) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getNodeLabels(node);
+        } finally {
+            getNodeLabelsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean nodeHasLabel(long node, Label label) {
+        long start = System.nanoTime();
+        try {
+            return delegate.nodeHasLabel(node, label);
+        } finally {
+            nodeHasLabelTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean relationshipHasProperty(long relationship, String propertyName) {
+        long start = System.nanoTime();
+        try {
+            return delegate.relationshipHasProperty(relationship, propertyName);
+        } finally {
+            relationshipHasPropertyTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setNodeProperty(long node, String propertyName, Object propertyValue) {
+        long start = System.nanoTime();
+        try {
+            delegate.setNodeProperty(node, propertyName, propertyValue);
+        } finally {
+            setNodePropertyTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setRelationshipProperty(long relationship, String propertyName, Object propertyValue) {
+        long start = System.nanoTime();
+        try {
+            delegate.setRelationshipProperty(relationship, propertyName, propertyValue);
+        } finally {
+            setRelationshipPropertyTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getNodeProperties(long nodeId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getNodeProperties(nodeId);
+        } finally {
+            getNodePropertiesTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Iterable<Long> getRelationshipIds(long nodeId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getRelationshipIds(nodeId);
+        } finally {
+            getRelationshipIdsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Iterable<BatchRelationship> getRelationships(long nodeId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getRelationships(nodeId);
+        } finally {
+            getRelationshipsTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long createRelationship(long node1, long node2, RelationshipType type, Map<String, Object> properties) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createRelationship(node1, node2, type, properties);
+        } finally {
+            createRelationshipTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public BatchRelationship getRelationshipById(long relId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getRelationshipById(relId);
+        } finally {
+            getRelationshipByIdTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setRelationshipProperties(long rel, Map<String, Object> properties) {
+        long start = System.nanoTime();
+        try {
+            delegate.setRelationshipProperties(rel, properties);
+        } finally {
+            setRelationshipPropertiesTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getRelationshipProperties(long relId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.getRelationshipProperties(relId);
+        } finally {
+            getRelationshipPropertiesTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void removeNodeProperty(long node, String property) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeNodeProperty(node, property);
+        } finally {
+            removeNodePropertyTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void removeRelationshipProperty(long relationship, String property) {
+        long start = System.nanoTime();
+        try {
+            delegate.removeRelationshipProperty(relationship, property);
+        } finally {
+            removeRelationshipPropertyTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public IndexCreator createDeferredSchemaIndex(Label label) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createDeferredSchemaIndex(label);
+        } finally {
+            createDeferredSchemaIndexTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public ConstraintCreator createDeferredConstraint(Label label) {
+        long start = System.nanoTime();
+        try {
+            return delegate.createDeferredConstraint(label);
+        } finally {
+            createDeferredConstraintTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        long start = System.nanoTime();
+        try {
+            delegate.shutdown();
+        } finally {
+            shutdownTimer.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String getStoreDir() {
+        return delegate.getStoreDir();
+    }
+}
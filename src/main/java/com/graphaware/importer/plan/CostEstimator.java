@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.plan;
+
+import com.graphaware.importer.importer.Importer;
+
+/**
+ * Estimates how long {@link Importer}s will take, so that importers on the longest dependency chain can be started
+ * first. Estimates are only compared to each other, their unit is up to the implementation.
+ * <p/>
+ * Implementations must be thread-safe.
+ */
+public interface CostEstimator {
+
+    /**
+     * Estimate the cost of running the given importer.
+     *
+     * @param importer to estimate.
+     * @return estimated cost, must not be negative.
+     */
+    long estimate(Importer importer);
+
+    /**
+     * Record the actual duration of an importer that has finished, so that estimators can learn from it.
+     *
+     * @param importer       that has finished.
+     * @param durationMillis how long it took in milliseconds.
+     */
+    void record(Importer importer, long durationMillis);
+}
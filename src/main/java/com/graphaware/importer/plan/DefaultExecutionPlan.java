@@ -72,6 +72,28 @@ public class DefaultExecutionPlan implements ExecutionPlan {
         return orderedImporters;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @throws java.lang.IllegalStateException if there is a needed cache that has no creator.
+     */
+    @Override
+    public final Set<Importer> getDependencies(Importer importer) {
+        Set<Importer> result = new HashSet<>();
+
+        for (String neededCache : neededCaches.get(importer)) {
+            Importer creator = cacheCreators.get(neededCache);
+            if (creator == null) {
+                throw new IllegalStateException("No creator defined for cache " + neededCache);
+            }
+            if (!creator.equals(importer)) {
+                result.add(creator);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Order the importers by looking at what caches they create, what caches they need, and how they thus depend on
      * each other. The order of two importers that do not depend on each other is undefined.
@@ -133,6 +155,7 @@ public class DefaultExecutionPlan implements ExecutionPlan {
      * {@inheritDoc}
      */
     @Override
+    @Deprecated
     public final boolean allFinished() {
         for (Importer importer : importers) {
             if (hasNotFinished(importer)) {
@@ -148,6 +171,7 @@ public class DefaultExecutionPlan implements ExecutionPlan {
      * {@inheritDoc}
      */
     @Override
+    @Deprecated
     public final boolean canRun(Importer importer) {
         if (importer.getState() != Importer.State.NOT_STARTED) {
             throw new IllegalStateException("Importer " + importer.name() + " is already " + importer.getState() + "!");
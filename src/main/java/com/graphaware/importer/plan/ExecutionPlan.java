@@ -17,14 +17,16 @@ package com.graphaware.importer.plan;
 
 import com.graphaware.importer.importer.Importer;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Import execution plan. Based on a set of {@link com.graphaware.importer.importer.Importer}s, it should create the
  * best plan to execute them. For best performance, import is best done on multiple cores in multiple threads. With this
- * in mind, {@link #canRun(com.graphaware.importer.importer.Importer)} method can be called at any time to determine, whether
- * a given {@link com.graphaware.importer.importer.Importer} can be run, i.e. if all the
- * {@link com.graphaware.importer.importer.Importer}s it depends on have already finished.
+ * in mind, {@link #getDependencies(com.graphaware.importer.importer.Importer)} tells which
+ * {@link com.graphaware.importer.importer.Importer}s must have finished before a given one can be run, so that independent
+ * importers can run concurrently.
  * <p/>
  * Implementations must be thread-safe.
  */
@@ -40,13 +42,50 @@ public interface ExecutionPlan {
      */
     List<Importer> getOrderedImporters();
 
+    /**
+     * Get the importers that the given importer depends on, i.e., the ones that must finish before the given one can run.
+     * <p/>
+     * Defaults to all importers that precede the given one in {@link #getOrderedImporters()}, which is always safe, but
+     * runs importers one after another. Override to let independent importers run concurrently.
+     *
+     * @param importer to get dependencies for.
+     * @return importers it depends on, never <code>null</code>, never containing the importer itself.
+     */
+    default Set<Importer> getDependencies(Importer importer) {
+        Set<Importer> result = new HashSet<>();
+
+        for (Importer candidate : getOrderedImporters()) {
+            if (candidate.equals(importer)) {
+                return result;
+            }
+            result.add(candidate);
+        }
+
+        throw new IllegalArgumentException("Importer " + importer.name() + " is not part of the plan");
+    }
+
     /**
      * Can the given importer be run?
      *
      * @param importer to check.
-     * @return <code>true</code> iff all importers that it depends on (if any) have finished.
+     * @return <code>true</code> iff the importer hasn't started and all importers that it depends on (if any) have finished.
+     * @deprecated importers are scheduled by {@link com.graphaware.importer.plan.ImportScheduler} based on
+     * {@link #getDependencies(com.graphaware.importer.importer.Importer)}, this method isn't used anymore.
      */
-    boolean canRun(Importer importer);
+    @Deprecated
+    default boolean canRun(Importer importer) {
+        if (importer.getState() != Importer.State.NOT_STARTED) {
+            return false;
+        }
+
+        for (Importer dependency : getDependencies(importer)) {
+            if (dependency.getState() != Importer.State.FINISHED) {
+                return false;
+            }
+        }
+
+        return true;
+    }
 
     /**
      * Clear all {@link com.graphaware.importer.cache.Caches} that will not be needed any more.
@@ -55,6 +94,17 @@ public interface ExecutionPlan {
 
     /**
      * @return <code>true</code> iff all {@link com.graphaware.importer.importer.Importer}s have finished.
+     * @deprecated {@link com.graphaware.importer.plan.ImportScheduler#execute()} returns when all importers have finished,
+     * this method isn't used anymore.
      */
-    boolean allFinished();
+    @Deprecated
+    default boolean allFinished() {
+        for (Importer importer : getOrderedImporters()) {
+            if (importer.getState() != Importer.State.FINISHED) {
+                return false;
+            }
+        }
+
+        return true;
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.plan;
+
+import com.graphaware.importer.importer.Importer;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.*;
+import java.util.Properties;
+
+/**
+ * {@link CostEstimator} that learns from earlier runs. It stores the duration of every finished {@link Importer}
+ * (in milliseconds) in a properties file, together with the estimate of a fallback estimator at that time.
+ * <p/>
+ * The recorded duration is used as the cost of importers that ran before. Importers that haven't run before are
+ * estimated by the fallback estimator, scaled by the ratio of recorded durations to fallback estimates, so that both
+ * kinds of estimates are comparable.
+ */
+public class HistoricalCostEstimator implements CostEstimator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HistoricalCostEstimator.class);
+
+    private static final String DURATION = ".duration";
+    private static final String ESTIMATE = ".estimate";
+
+    private final File file;
+    private final CostEstimator fallback;
+    private final Properties history = new Properties();
+    private final double scale;
+
+    /**
+     * Create a new estimator.
+     *
+     * @param file     file to load the history from (if it exists) and to store it to. Must not be <code>null</code>.
+     * @param fallback estimator for importers that haven't run before. Must not be <code>null</code>.
+     */
+    public HistoricalCostEstimator(File file, CostEstimator fallback) {
+        Assert.notNull(file);
+        Assert.notNull(fallback);
+
+        this.file = file;
+        this.fallback = fallback;
+
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                history.load(in);
+            } catch (IOException e) {
+                LOG.warn("Could not load importer history from " + file.getAbsolutePath(), e);
+            }
+        }
+
+        this.scale = scale();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized long estimate(Importer importer) {
+        String duration = history.getProperty(importer.name() + DURATION);
+        if (duration != null) {
+            return Long.parseLong(duration);
+        }
+
+        return (long) (fallback.estimate(importer) * scale);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void record(Importer importer, long durationMillis) {
+        fallback.record(importer, durationMillis);
+
+        history.setProperty(importer.name() + DURATION, String.valueOf(durationMillis));
+        history.setProperty(importer.name() + ESTIMATE, String.valueOf(fallback.estimate(importer)));
+
+        try {
+            FileUtils.forceMkdir(file.getAbsoluteFile().getParentFile());
+        } catch (IOException e) {
+            LOG.warn("Could not create directory for " + file.getAbsolutePath(), e);
+        }
+
+        try (OutputStream out = new FileOutputStream(file)) {
+            history.store(out, "Importer durations");
+        } catch (IOException e) {
+            LOG.warn("Could not store importer history to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private double scale() {
+        long durations = 0;
+        long estimates = 0;
+
+        for (String key : history.stringPropertyNames()) {
+            if (key.endsWith(DURATION)) {
+                String estimate = history.getProperty(key.substring(0, key.length() - DURATION.length()) + ESTIMATE);
+                if (estimate != null) {
+                    durations += Long.parseLong(history.getProperty(key));
+                    estimates += Long.parseLong(estimate);
+                }
+            }
+        }
+
+        if (durations == 0 || estimates == 0) {
+            return 1.0;
+        }
+
+        return (double) durations / estimates;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.plan;
+
+import com.graphaware.importer.importer.Importer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the {@link Importer}s of an {@link ExecutionPlan} on a bounded number of threads. Every importer keeps a counter
+ * of its unfinished dependencies, which is decremented whenever one of them finishes. The importer becomes ready the
+ * moment the counter reaches zero.
+ * <p/>
+ * When there are more ready importers than free threads, importers on the longest remaining dependency chain are started
+ * first. The length of a chain is the sum of the costs of its importers, as estimated by a {@link CostEstimator}. This
+ * prevents a long chain from being started late and becoming the tail of the entire import.
+ * <p/>
+ * If an importer fails, no more importers are started and the failure is rethrown from {@link #execute()} once all the
+ * running importers have finished.
+ */
+public class ImportScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportScheduler.class);
+
+    private static final CostEstimator UNIFORM = new CostEstimator() {
+        @Override
+        public long estimate(Importer importer) {
+            return 1;
+        }
+
+        @Override
+        public void record(Importer importer, long durationMillis) {
+            //no-op
+        }
+    };
+
+    private final ExecutionPlan plan;
+    private final int threads;
+    private final CostEstimator estimator;
+
+    private final Map<Importer, AtomicInteger> unfinishedDependencies = new HashMap<>();
+    private final Map<Importer, List<Importer>> dependents = new HashMap<>();
+    private final Map<Importer, Long> criticalPaths = new HashMap<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final PriorityQueue<Importer> ready;
+
+    private ExecutorService executor;
+    private Throwable failure;
+    private int unfinished;
+    private int running;
+
+    /**
+     * Create a new scheduler that treats all importers as equally costly, i.e., that prioritises importers with the
+     * most importers depending on them transitively.
+     *
+     * @param plan    execution plan. Must not be <code>null</code>.
+     * @param threads maximum number of importers running at the same time. Must be positive.
+     */
+    public ImportScheduler(ExecutionPlan plan, int threads) {
+        this(plan, threads, UNIFORM);
+    }
+
+    /**
+     * Create a new scheduler.
+     *
+     * @param plan      execution plan. Must not be <code>null</code>.
+     * @param threads   maximum number of importers running at the same time. Must be positive.
+     * @param estimator estimator of importer costs. Must not be <code>null</code>.
+     */
+    public ImportScheduler(ExecutionPlan plan, int threads, CostEstimator estimator) {
+        Assert.notNull(plan);
+        Assert.isTrue(threads > 0);
+        Assert.notNull(estimator);
+
+        this.plan = plan;
+        this.threads = threads;
+        this.estimator = estimator;
+        this.ready = new PriorityQueue<>(11, new Comparator<Importer>() {
+            @Override
+            public int compare(Importer o1, Importer o2) {
+                return Long.compare(criticalPaths.get(o2), criticalPaths.get(o1));
+            }
+        });
+    }
+
+    /**
+     * Run all importers of the plan and wait until they have finished.
+     *
+     * @throws RuntimeException if any of the importers failed.
+     */
+    public void execute() {
+        List<Importer> importers = plan.getOrderedImporters();
+
+        for (Importer importer : importers) {
+            dependents.put(importer, new ArrayList<Importer>());
+        }
+
+        for (Importer importer : importers) {
+            unfinishedDependencies.put(importer, new AtomicInteger(plan.getDependencies(importer).size()));
+            for (Importer dependency : plan.getDependencies(importer)) {
+                dependents.get(dependency).add(importer);
+            }
+        }
+
+        for (ListIterator<Importer> it = importers.listIterator(importers.size()); it.hasPrevious(); ) {
+            Importer importer = it.previous();
+
+            long longestDependent = 0;
+            for (Importer dependent : dependents.get(importer)) {
+                longestDependent = Math.max(longestDependent, criticalPaths.get(dependent));
+            }
+
+            criticalPaths.put(importer, estimator.estimate(importer) + longestDependent);
+        }
+
+        executor = createExecutor();
+
+        try {
+            synchronized (ready) {
+                unfinished = importers.size();
+                for (Importer importer : importers) {
+                    if (unfinishedDependencies.get(importer).get() == 0) {
+                        ready.add(importer);
+                    }
+                }
+                dispatch();
+            }
+
+            completion.get();
+
+            LOG.info("All importers finished.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Create the executor that runs importers. It is never given more than the configured number of importers at a time.
+     *
+     * @return executor.
+     */
+    protected ExecutorService createExecutor() {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, "IMPORTER - " + count.incrementAndGet());
+            }
+        });
+    }
+
+    /**
+     * @return maximum number of importers running at the same time.
+     */
+    protected final int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Start as many ready importers as there are free threads, the ones with the longest critical path first. Must be
+     * called while holding the lock on {@link #ready}.
+     */
+    private void dispatch() {
+        while (failure == null && running < threads && !ready.isEmpty()) {
+            Importer next = ready.poll();
+            LOG.info("Starting " + next.name() + " (critical path " + criticalPaths.get(next) + ", " + ready.size() + " more ready)");
+            running++;
+            executor.execute(task(next));
+        }
+
+        if (running == 0 && (failure != null || unfinished == 0)) {
+            if (failure != null) {
+                completion.completeExceptionally(failure);
+            } else {
+                completion.complete(null);
+            }
+        }
+    }
+
+    private Runnable task(final Importer importer) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Thread thread = Thread.currentThread();
+                String threadName = thread.getName();
+                thread.setName("IMPORTER - " + importer.name());
+
+                Throwable thrown = null;
+                try {
+                    perform(importer);
+                } catch (Throwable t) {
+                    LOG.error("Importer " + importer.name() + " failed", t);
+                    thrown = t;
+                } finally {
+                    thread.setName(threadName);
+                }
+
+                synchronized (ready) {
+                    running--;
+
+                    if (thrown != null) {
+                        if (failure == null) {
+                            failure = thrown;
+                        }
+                    } else {
+                        unfinished--;
+                        for (Importer dependent : dependents.get(importer)) {
+                            if (unfinishedDependencies.get(dependent).decrementAndGet() == 0) {
+                                ready.add(dependent);
+                            }
+                        }
+                    }
+
+                    dispatch();
+                }
+            }
+        };
+    }
+
+    private void perform(Importer importer) {
+        for (Importer dependency : plan.getDependencies(importer)) {
+            if (dependency.getState() != Importer.State.FINISHED) {
+                throw new IllegalStateException("Importer " + importer.name() + " has been scheduled before its dependencies finished");
+            }
+        }
+
+        long start = System.currentTimeMillis();
+
+        try {
+            importer.performImport();
+        } finally {
+            synchronized (this) {
+                plan.clearCaches();
+            }
+        }
+
+        estimator.record(importer, System.currentTimeMillis() - start);
+    }
+}
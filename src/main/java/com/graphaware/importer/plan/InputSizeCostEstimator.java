@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.plan;
+
+import com.graphaware.importer.data.location.DataLocator;
+import com.graphaware.importer.importer.Importer;
+import org.springframework.util.Assert;
+
+import java.io.File;
+
+/**
+ * {@link CostEstimator} that uses the size of an {@link Importer}'s input file in bytes as its cost. Importers whose
+ * input isn't a file (e.g. a database query) have a cost of 1.
+ */
+public class InputSizeCostEstimator implements CostEstimator {
+
+    private final DataLocator locator;
+
+    /**
+     * Create a new estimator.
+     *
+     * @param locator locator of import input data. Must not be <code>null</code>.
+     */
+    public InputSizeCostEstimator(DataLocator locator) {
+        Assert.notNull(locator);
+
+        this.locator = locator;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long estimate(Importer importer) {
+        if (!locator.canLocate(importer.inputData())) {
+            return 1;
+        }
+
+        File file = new File(locator.locate(importer.inputData()));
+        if (!file.isFile()) {
+            return 1;
+        }
+
+        return Math.max(1, file.length());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void record(Importer importer, long durationMillis) {
+        //no-op
+    }
+}
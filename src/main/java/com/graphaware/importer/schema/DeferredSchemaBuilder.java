@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.schema;
+
+import org.neo4j.graphdb.Label;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link SchemaBuilder} that declares indexes and unique constraints as deferred ones straight away through a
+ * {@link BatchInserter}, which populates them single-threaded when it is shut down. Used for contexts that don't
+ * build the schema once the import has finished. {@link #build()} is a no-op.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class DeferredSchemaBuilder extends SchemaBuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeferredSchemaBuilder.class);
+
+    private final BatchInserter inserter;
+    private final Set<String> declared = new HashSet<>();
+
+    /**
+     * Create a new builder.
+     *
+     * @param inserter to declare the schema through. Must not be <code>null</code>.
+     */
+    public DeferredSchemaBuilder(BatchInserter inserter) {
+        Assert.notNull(inserter);
+
+        this.inserter = inserter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void index(Label label, String property) {
+        Assert.notNull(label);
+        Assert.hasLength(property);
+
+        if (declared.add("index:" + label.name() + ":" + property)) {
+            LOG.info("Creating index for label " + label.name() + " and property " + property);
+            inserter.createDeferredSchemaIndex(label).on(property).create();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void uniqueConstraint(Label label, String property) {
+        Assert.notNull(label);
+        Assert.hasLength(property);
+
+        if (declared.add("constraint:" + label.name() + ":" + property)) {
+            LOG.info("Creating unique constraint for label " + label.name() + " and property " + property);
+            inserter.createDeferredConstraint(label).assertPropertyIsUnique(property).create();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * No-op, the schema is populated by the batch inserter.
+     */
+    @Override
+    public void build() {
+    }
+}
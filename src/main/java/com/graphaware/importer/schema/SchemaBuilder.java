@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.schema;
+
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.schema.ConstraintDefinition;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Builds schema indexes and unique constraints declared by importers, once all data has been inserted.
+ * <p/>
+ * Deferred schema indexes created through {@link org.neo4j.unsafe.batchinsert.BatchInserter} are populated by a single
+ * thread during {@link org.neo4j.unsafe.batchinsert.BatchInserter#shutdown()}, which holds the store exclusively for
+ * the whole import, so population can neither overlap with importing, nor run in parallel. Instead, this builder
+ * collects declared indexes and, once the batch inserter has been shut down, starts an embedded database on the store
+ * and creates all the indexes at once, so that Neo4j populates independent label/property pairs concurrently in its
+ * background population jobs.
+ * <p/>
+ * Creating a unique constraint populates its index (and verifies uniqueness) before it returns. Constraints are created
+ * one by one, since Neo4j serializes schema changes, but only after all plain indexes have been created, so that those
+ * keep populating in the background meanwhile. A property that is both indexed and constrained only gets the constraint,
+ * which is backed by an index.
+ * <p/>
+ * Indexes and constraints that already exist in the store (e.g. when resuming an import) are skipped.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class SchemaBuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SchemaBuilder.class);
+
+    private static final long POLL_INTERVAL_MS = 1000;
+    private static final long PROGRESS_INTERVAL_MS = 60_000;
+
+    private final File storeDir;
+    private final Map<String, String> config;
+    private final Map<String, Set<String>> indexes = new LinkedHashMap<>();
+    private final Map<String, Set<String>> constraints = new LinkedHashMap<>();
+
+    /**
+     * Create a new builder.
+     *
+     * @param storeDir directory of the store to build the schema in. Must not be <code>null</code>.
+     * @param config   configuration of the embedded database used to build the schema. Must not be <code>null</code>.
+     */
+    public SchemaBuilder(File storeDir, Map<String, String> config) {
+        Assert.notNull(storeDir);
+        Assert.notNull(config);
+
+        this.storeDir = storeDir;
+        this.config = config;
+    }
+
+    /**
+     * Create a new builder for subclasses that don't build the schema on an embedded database, i.e., override
+     * {@link #index(Label, String)}, {@link #uniqueConstraint(Label, String)} and {@link #build()}.
+     */
+    protected SchemaBuilder() {
+        this.storeDir = null;
+        this.config = Collections.emptyMap();
+    }
+
+    /**
+     * Declare a schema index to be built.
+     *
+     * @param label    label of indexed nodes. Must not be <code>null</code>.
+     * @param property indexed property. Must not be <code>null</code> or empty.
+     */
+    public synchronized void index(Label label, String property) {
+        Assert.notNull(label);
+        Assert.hasLength(property);
+
+        properties(indexes, label).add(property);
+    }
+
+    /**
+     * Declare a unique constraint to be built.
+     *
+     * @param label    label of constrained nodes. Must not be <code>null</code>.
+     * @param property property, whose values must be unique amongst nodes with the label. Must not be <code>null</code> or empty.
+     */
+    public synchronized void uniqueConstraint(Label label, String property) {
+        Assert.notNull(label);
+        Assert.hasLength(property);
+
+        properties(constraints, label).add(property);
+    }
+
+    /**
+     * Build the declared schema. Must only be called once nothing else (including a batch inserter) has the store open.
+     * Returns once all indexes are online.
+     *
+     * @throws IllegalStateException if population of any of the indexes fails.
+     */
+    public void build() {
+        Map<String, Set<String>> indexesToCreate;
+        Map<String, Set<String>> constraintsToCreate;
+        synchronized (this) {
+            indexesToCreate = copy(indexes);
+            constraintsToCreate = copy(constraints);
+        }
+
+        for (Map.Entry<String, Set<String>> entry : constraintsToCreate.entrySet()) {
+            if (indexesToCreate.containsKey(entry.getKey())) {
+                indexesToCreate.get(entry.getKey()).removeAll(entry.getValue());
+            }
+        }
+
+        if (indexesToCreate.isEmpty() && constraintsToCreate.isEmpty()) {
+            return;
+        }
+
+        LOG.info("Building schema...");
+
+        GraphDatabaseService database = new GraphDatabaseFactory().newEmbeddedDatabaseBuilder(storeDir).setConfig(config).newGraphDatabase();
+        try {
+            createIndexes(database, indexesToCreate);
+            createConstraints(database, constraintsToCreate);
+            awaitIndexesOnline(database);
+        } finally {
+            database.shutdown();
+        }
+
+        LOG.info("Schema built.");
+    }
+
+    private void createIndexes(GraphDatabaseService database, Map<String, Set<String>> toCreate) {
+        try (Transaction tx = database.beginTx()) {
+            Schema schema = database.schema();
+
+            for (Map.Entry<String, Set<String>> entry : toCreate.entrySet()) {
+                Label label = DynamicLabel.label(entry.getKey());
+                Set<String> existing = indexedProperties(schema, label);
+
+                for (String property : entry.getValue()) {
+                    if (existing.contains(property)) {
+                        LOG.info("Index for label " + label.name() + " and property " + property + " already exists");
+                        continue;
+                    }
+
+                    LOG.info("Creating index for label " + label.name() + " and property " + property);
+                    schema.indexFor(label).on(property).create();
+                }
+            }
+
+            tx.success();
+        }
+    }
+
+    private void createConstraints(GraphDatabaseService database, Map<String, Set<String>> toCreate) {
+        for (Map.Entry<String, Set<String>> entry : toCreate.entrySet()) {
+            Label label = DynamicLabel.label(entry.getKey());
+
+            Set<String> existing;
+            try (Transaction tx = database.beginTx()) {
+                existing = constrainedProperties(database.schema(), label);
+                tx.success();
+            }
+
+            for (String property : entry.getValue()) {
+                if (existing.contains(property)) {
+                    LOG.info("Unique constraint for label " + label.name() + " and property " + property + " already exists");
+                    continue;
+                }
+
+                LOG.info("Creating unique constraint for label " + label.name() + " and property " + property);
+                try (Transaction tx = database.beginTx()) {
+                    database.schema().constraintFor(label).assertPropertyIsUnique(property).create();
+                    tx.success();
+                }
+                LOG.info("Unique constraint for label " + label.name() + " and property " + property + " created");
+            }
+        }
+    }
+
+    private void awaitIndexesOnline(GraphDatabaseService database) {
+        Set<String> online = new HashSet<>();
+        long lastProgress = System.currentTimeMillis();
+
+        while (true) {
+            int populating = 0;
+
+            try (Transaction tx = database.beginTx()) {
+                Schema schema = database.schema();
+
+                for (IndexDefinition index : schema.getIndexes()) {
+                    String description = describe(index);
+
+                    switch (schema.getIndexState(index)) {
+                        case ONLINE:
+                            if (online.add(description)) {
+                                LOG.info("Index " + description + " is online");
+                            }
+                            break;
+                        case FAILED:
+                            throw new IllegalStateException("Population of index " + description + " failed: " + schema.getIndexFailure(index));
+                        default:
+                            populating++;
+                    }
+                }
+
+                tx.success();
+            }
+
+            if (populating == 0) {
+                return;
+            }
+
+            if (System.currentTimeMillis() - lastProgress > PROGRESS_INTERVAL_MS) {
+                LOG.info("Still populating " + populating + " indexes...");
+                lastProgress = System.currentTimeMillis();
+            }
+
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for indexes to come online", e);
+            }
+        }
+    }
+
+    private static Set<String> indexedProperties(Schema schema, Label label) {
+        Set<String> result = new HashSet<>();
+        for (IndexDefinition index : schema.getIndexes(label)) {
+            for (String property : index.getPropertyKeys()) {
+                result.add(property);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> constrainedProperties(Schema schema, Label label) {
+        Set<String> result = new HashSet<>();
+        for (ConstraintDefinition constraint : schema.getConstraints(label)) {
+            for (String property : constraint.getPropertyKeys()) {
+                result.add(property);
+            }
+        }
+        return result;
+    }
+
+    private static String describe(IndexDefinition index) {
+        StringBuilder result = new StringBuilder(":").append(index.getLabel().name()).append("(");
+        for (String property : index.getPropertyKeys()) {
+            result.append(property);
+        }
+        return result.append(")").toString();
+    }
+
+    private static Set<String> properties(Map<String, Set<String>> map, Label label) {
+        Set<String> result = map.get(label.name());
+        if (result == null) {
+            result = new LinkedHashSet<>();
+            map.put(label.name(), result);
+        }
+        return result;
+    }
+
+    private static Map<String, Set<String>> copy(Map<String, Set<String>> map) {
+        Map<String, Set<String>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> entry : map.entrySet()) {
+            result.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+import org.springframework.util.Assert;
+
+import java.util.Map;
+
+/**
+ * {@link Counter} that delegates every update to {@link StatisticsCollector#incrementsStats(String, String)} and
+ * {@link StatisticsCollector#setStats(String, String, int)}, and reads the statistic from
+ * {@link StatisticsCollector#getStats()}. Default implementation of {@link StatisticsCollector#counter(String, String)},
+ * which only relies on methods every collector implements.
+ */
+class DelegatingCounter implements Counter {
+
+    private final StatisticsCollector collector;
+    private final String category;
+    private final String name;
+
+    DelegatingCounter(StatisticsCollector collector, String category, String name) {
+        this.collector = collector;
+        this.category = category;
+        this.name = name;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void increment() {
+        collector.incrementsStats(category, name);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Increments the statistic <code>number</code> times.
+     *
+     * @throws IllegalArgumentException if the number is negative.
+     */
+    @Override
+    public void add(long number) {
+        Assert.isTrue(number >= 0, "Statistic " + category + "/" + name + " can only be incremented through " + collector.getClass().getSimpleName());
+
+        for (long i = 0; i < number; i++) {
+            collector.incrementsStats(category, name);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws ArithmeticException if the number doesn't fit in an <code>int</code>.
+     */
+    @Override
+    public void set(long number) {
+        collector.setStats(category, name, Math.toIntExact(number));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Returns 0 if the collector doesn't report the statistic through {@link StatisticsCollector#getStats()}.
+     */
+    @Override
+    public long get() {
+        Map<String, Long> stats = collector.getStats().get(category);
+        if (stats == null) {
+            return 0;
+        }
+
+        Long value = stats.get(name);
+        return value == null ? 0 : value;
+    }
+}
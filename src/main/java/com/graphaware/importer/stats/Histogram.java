@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A histogram of non-negative long values (typically durations in nanoseconds) with a fixed relative precision,
+ * in the style of HdrHistogram.
+ * <p/>
+ * Values below 64 are counted exactly. Larger values fall into one of 32 linear sub-buckets of their power of two, so
+ * every recorded value is represented with a relative error of at most ~3%, in a fixed amount of memory (< 16 kB per
+ * stripe) regardless of the range of values. Recording is a single atomic increment, which threads do in one of a
+ * few stripes (chosen by thread ID and allocated on first use), so that concurrent threads rarely share a cache line.
+ * <p/>
+ * This class is thread-safe. Reading percentiles while values are being recorded gives an approximate, but consistent
+ * enough answer for monitoring.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private static final int STRIPES = Math.min(8, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value.
+     *
+     * @param value to record. Negative values (e.g. caused by a non-monotonic clock) are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+
+        stripe().incrementAndGet(bucket(value));
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Get the number of recorded values.
+     *
+     * @return count.
+     */
+    public long getCount() {
+        long count = 0;
+        for (long bucketCount : merge()) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * Get the largest recorded value.
+     *
+     * @return exact maximum, 0 if nothing has been recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the value at a given percentile.
+     *
+     * @param percentile between 0 and 100.
+     * @return the highest value equivalent (within the precision of this histogram) to the value at the percentile,
+     * never larger than {@link #getMax()}. 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        Assert.isTrue(percentile >= 0 && percentile <= 100);
+
+        long[] buckets = merge();
+
+        long count = 0;
+        for (long bucketCount : buckets) {
+            count += bucketCount;
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), getMax());
+            }
+        }
+
+        return getMax();
+    }
+
+    private long[] merge() {
+        long[] result = new long[BUCKETS];
+
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe == null) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                result[i] += stripe.get(i);
+            }
+        }
+
+        return result;
+    }
+
+    private AtomicLongArray stripe() {
+        int index = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS));
+            stripe = stripes.get(index);
+        }
+
+        return stripe;
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long highestEquivalentValue(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long mantissa = bucket - ((long) shift << SUB_BUCKET_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live metrics of a running import, read from the {@link StatisticsCollector}s registered with it.
+ * <p/>
+ * Once started, the metrics are
+ * <ul>
+ * <li>summarized in a log line at a fixed interval, showing rows per second, the share of wall-clock time spent in
+ * each timed stage since the previous summary (which exceeds 100% for stages run by multiple threads) and the
+ * {@link #IMPORT_STATS} (such as queue depth), for every importer that made progress, as well as all statistics of
+ * collectors that don't count rows (such as memory usage),</li>
+ * <li>exposed over JMX as {@link #OBJECT_NAME},</li>
+ * <li>optionally served over HTTP as plain text, <code>/metrics</code> listing all statistics and <code>/summary</code>
+ * returning the latest summary.</li>
+ * </ul>
+ * Since everything is read from the collectors, plugging in a different {@link StatisticsCollector} through
+ * {@link com.graphaware.importer.context.ImportContext#createStatistics(String)} changes what is reported.
+ * <p/>
+ * This class is thread-safe.
+ */
+public class ImportMetrics implements ImportMetricsMXBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ImportMetrics.class);
+
+    public static final String OBJECT_NAME = "com.graphaware.importer:type=ImportMetrics";
+
+    /**
+     * Category of statistics collected by every importer.
+     */
+    public static final String IMPORT_STATS = "Import Statistics";
+
+    /**
+     * Name of the statistic counting rows read by an importer, from which throughput is derived.
+     */
+    public static final String PROCESSED = "Processed";
+
+    private final int port;
+    private final long intervalSeconds;
+    private final Map<String, StatisticsCollector> collectors = new LinkedHashMap<>();
+    private final Map<String, Long> lastRows = new HashMap<>();
+    private final Map<String, Long> lastNanos = new HashMap<>();
+
+    private long lastSummary = System.nanoTime();
+    private String summary = "";
+    private ScheduledExecutorService reporter;
+    private HttpServer server;
+    private ObjectName objectName;
+
+    /**
+     * Create new metrics.
+     *
+     * @param port            port to serve metrics over HTTP on, 0 or less for not serving them over HTTP.
+     * @param intervalSeconds interval between summaries in seconds. Must be positive.
+     */
+    public ImportMetrics(int port, long intervalSeconds) {
+        Assert.isTrue(intervalSeconds > 0);
+
+        this.port = port;
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    /**
+     * Register a collector, whose statistics will be reported. Replaces a collector previously registered with the same name.
+     *
+     * @param name      name of the collector, typically the name of the importer.
+     * @param collector to register. Must not be <code>null</code>.
+     */
+    public synchronized void register(String name, StatisticsCollector collector) {
+        Assert.notNull(collector);
+
+        collectors.put(name, collector);
+    }
+
+    /**
+     * Start reporting: schedule summaries, register with JMX and start the HTTP server, if configured.
+     */
+    public synchronized void start() {
+        reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "IMPORT METRICS");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        reporter.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    LOG.info(summarize());
+                } catch (RuntimeException e) {
+                    LOG.warn("Could not summarize metrics", e);
+                }
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+
+        registerMBean();
+
+        if (port > 0) {
+            startServer();
+        }
+    }
+
+    /**
+     * Stop reporting.
+     */
+    public synchronized void stop() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (Exception e) {
+                LOG.warn("Could not unregister " + objectName, e);
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<String, Long> getMetrics() {
+        Map<String, Long> result = new TreeMap<>();
+
+        for (Map.Entry<String, StatisticsCollector> collector : collectors.entrySet()) {
+            for (Map.Entry<String, Map<String, Long>> category : collector.getValue().getStats().entrySet()) {
+                for (Map.Entry<String, Long> statistic : category.getValue().entrySet()) {
+                    result.put(collector.getKey() + "/" + category.getKey() + "/" + statistic.getKey(), statistic.getValue());
+                }
+            }
+
+            for (Map.Entry<String, Timer> timer : collector.getValue().getTimers().entrySet()) {
+                result.put(collector.getKey() + "/Timing/" + timer.getKey() + " (count)", timer.getValue().getCount());
+                result.put(collector.getKey() + "/Timing/" + timer.getKey() + " (ms)", timer.getValue().getTotalNanos() / 1_000_000);
+                result.put(collector.getKey() + "/Timing/" + timer.getKey() + " p50 (ns)", timer.getValue().getPercentileNanos(50));
+                result.put(collector.getKey() + "/Timing/" + timer.getKey() + " p99 (ns)", timer.getValue().getPercentileNanos(99));
+                result.put(collector.getKey() + "/Timing/" + timer.getKey() + " max (ns)", timer.getValue().getMaxNanos());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized String getSummary() {
+        return summary;
+    }
+
+    /**
+     * Produce a new summary of the progress since the previous one.
+     *
+     * @return summary.
+     */
+    protected synchronized String summarize() {
+        long now = System.nanoTime();
+        long elapsed = Math.max(1, now - lastSummary);
+        lastSummary = now;
+
+        StringBuilder result = new StringBuilder("Import progress:");
+
+        for (Map.Entry<String, StatisticsCollector> entry : collectors.entrySet()) {
+            String name = entry.getKey();
+            StatisticsCollector collector = entry.getValue();
+            Map<String, Map<String, Long>> stats = collector.getStats();
+
+            StringBuilder line = new StringBuilder();
+            boolean progressed = false;
+
+            Map<String, Long> importStats = stats.get(IMPORT_STATS);
+            if (importStats != null && importStats.containsKey(PROCESSED)) {
+                long rows = importStats.get(PROCESSED);
+                long delta = rows - previous(lastRows, name, rows);
+                progressed = delta > 0;
+                line.append(" ").append(rows).append(" rows, ").append(delta * 1_000_000_000 / elapsed).append(" rows/s,");
+            }
+
+            for (Map.Entry<String, Timer> timer : collector.getTimers().entrySet()) {
+                long total = timer.getValue().getTotalNanos();
+                long delta = total - previous(lastNanos, name + "/" + timer.getKey(), total);
+                if (delta == 0) {
+                    continue;
+                }
+                progressed = true;
+                line.append(" ").append(timer.getKey()).append(" ").append(delta * 100 / elapsed).append("%,");
+            }
+
+            for (Map.Entry<String, Map<String, Long>> category : stats.entrySet()) {
+                //importers' other categories hold problems keyed by message, which belong to the final stats
+                if (importStats != null && !IMPORT_STATS.equals(category.getKey())) {
+                    continue;
+                }
+                for (Map.Entry<String, Long> statistic : category.getValue().entrySet()) {
+                    if (importStats != null && PROCESSED.equals(statistic.getKey())) {
+                        continue;
+                    }
+                    line.append(" ").append(statistic.getKey()).append(" ").append(statistic.getValue()).append(",");
+                }
+            }
+
+            if (progressed || importStats == null) {
+                result.append("\n\t").append(name).append(":").append(line, 0, Math.max(0, line.length() - 1));
+            }
+        }
+
+        summary = result.toString();
+        return summary;
+    }
+
+    private long previous(Map<String, Long> last, String key, long current) {
+        Long previous = last.put(key, current);
+        return previous == null ? 0 : previous;
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+            objectName = name;
+        } catch (Exception e) {
+            LOG.warn("Could not register import metrics with JMX", e);
+        }
+    }
+
+    private void startServer() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            LOG.warn("Could not serve import metrics on port " + port, e);
+            return;
+        }
+
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                StringBuilder body = new StringBuilder();
+                for (Map.Entry<String, Long> metric : getMetrics().entrySet()) {
+                    body.append(metric.getKey()).append(" ").append(metric.getValue()).append("\n");
+                }
+                respond(exchange, body.toString());
+            }
+        });
+
+        server.createContext("/summary", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, getSummary() + "\n");
+            }
+        });
+
+        server.start();
+
+        LOG.info("Serving import metrics on http://localhost:" + port + "/metrics");
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link ImportMetrics}.
+ */
+public interface ImportMetricsMXBean {
+
+    /**
+     * Get current values of all statistics of a running import.
+     *
+     * @return statistics keyed by collector name, category and statistic name, separated by slashes.
+     */
+    Map<String, Long> getMetrics();
+
+    /**
+     * Get a human-readable summary of the progress of the import since the last summary.
+     *
+     * @return summary.
+     */
+    String getSummary();
+}
@@ -19,12 +19,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.Assert;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Default production implementation of {@link StatisticsCollector}.
+ * <p/>
+ * Statistics are kept in {@link StripedCounter}s, so that updates from many threads don't contend with each other.
+ * Hot paths should update {@link Counter}s obtained by {@link #counter(String, String)}, rather than look the statistic up
+ * on every update. Gauges are kept apart from the counted statistics, so registering a gauge never affects a counter,
+ * but a gauge is reported instead of a counted statistic with the same category and name.
  */
 public class LoggingStatisticsCollector implements StatisticsCollector {
 
@@ -32,7 +42,9 @@ public class LoggingStatisticsCollector implements StatisticsCollector {
     public static final String DIVIDER = "=========================================";
 
     private final StopWatch sw = new StopWatch();
-    private final ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicInteger>> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Counter>> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Gauge>> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Timer> timers = new ConcurrentHashMap<>();
     private final String name;
 
     /**
@@ -67,7 +79,15 @@ public class LoggingStatisticsCollector implements StatisticsCollector {
      */
     @Override
     public void incrementsStats(String category, String name) {
-        getCounter(category, name).incrementAndGet();
+        counter(category, name).increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void incrementsStats(String category, String name, int number) {
+        counter(category, name).add(number);
     }
 
     /**
@@ -75,41 +95,169 @@ public class LoggingStatisticsCollector implements StatisticsCollector {
      */
     @Override
     public void setStats(String category, String name, int number) {
-        getCounter(category, name).set(number);
+        counter(category, name).set(number);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void incrementsStats(String category, String name, long number) {
+        counter(category, name).add(number);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setStats(String category, String name, long number) {
+        counter(category, name).set(number);
     }
 
+    /**
+     * Get a snapshot of the counted statistics, for subclasses written when statistics were kept in {@link AtomicInteger}s.
+     * Updating the snapshot has no effect on the statistics, and values that don't fit in an <code>int</code> are capped.
+     *
+     * @return snapshot of counted statistics by name, by category.
+     * @deprecated use {@link #getStats()} to read statistics and {@link #counter(String, String)} to update them.
+     */
+    @Deprecated
     protected ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicInteger>> getCounters() {
-        return counters;
+        ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicInteger>> result = new ConcurrentHashMap<>();
+
+        for (Map.Entry<String, ConcurrentHashMap<String, Counter>> category : counters.entrySet()) {
+            ConcurrentHashMap<String, AtomicInteger> stats = new ConcurrentHashMap<>();
+            for (Map.Entry<String, Counter> statistic : category.getValue().entrySet()) {
+                long value = statistic.getValue().get();
+                stats.put(statistic.getKey(), new AtomicInteger((int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value))));
+            }
+            result.put(category.getKey(), stats);
+        }
+
+        return result;
     }
 
-    private AtomicInteger getCounter(String category, String name) {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Counter counter(String category, String name) {
         if (name == null) {
             name = "null";
         }
 
-        ConcurrentHashMap<String, AtomicInteger> counter = counters.get(category);
+        ConcurrentHashMap<String, Counter> counter = getCategory(counters, category);
 
-        if (counter == null) {
-            counters.putIfAbsent(category, new ConcurrentHashMap<String, AtomicInteger>());
-            counter = counters.get(category);
-        }
-
-        AtomicInteger count = counter.get(name);
+        Counter count = counter.get(name);
 
         if (count == null) {
-            counter.putIfAbsent(name, new AtomicInteger(0));
+            counter.putIfAbsent(name, createCounter());
             count = counter.get(name);
         }
 
         return count;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void gauge(String category, String name, Gauge gauge) {
+        Assert.notNull(gauge);
+
+        getCategory(gauges, category).put(name, gauge);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+
+        if (timer == null) {
+            timers.putIfAbsent(name, createTimer());
+            timer = timers.get(name);
+        }
+
+        return timer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Map<String, Long>> getStats() {
+        Map<String, Map<String, Long>> result = new HashMap<>();
+
+        for (Map.Entry<String, ConcurrentHashMap<String, Counter>> category : counters.entrySet()) {
+            Map<String, Long> stats = new HashMap<>();
+            for (Map.Entry<String, Counter> statistic : category.getValue().entrySet()) {
+                stats.put(statistic.getKey(), statistic.getValue().get());
+            }
+            result.put(category.getKey(), stats);
+        }
+
+        for (Map.Entry<String, ConcurrentHashMap<String, Gauge>> category : gauges.entrySet()) {
+            Map<String, Long> stats = result.get(category.getKey());
+            if (stats == null) {
+                stats = new HashMap<>();
+                result.put(category.getKey(), stats);
+            }
+            for (Map.Entry<String, Gauge> statistic : category.getValue().entrySet()) {
+                stats.put(statistic.getKey(), statistic.getValue().get());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Timer> getTimers() {
+        return Collections.<String, Timer>unmodifiableMap(timers);
+    }
+
+    private static <T> ConcurrentHashMap<String, T> getCategory(ConcurrentHashMap<String, ConcurrentHashMap<String, T>> categories, String category) {
+        ConcurrentHashMap<String, T> result = categories.get(category);
+
+        if (result == null) {
+            categories.putIfAbsent(category, new ConcurrentHashMap<String, T>());
+            result = categories.get(category);
+        }
+
+        return result;
+    }
+
+    /**
+     * Create a timer for a newly registered timing statistic.
+     *
+     * @return timer, {@link StripedTimer} by default.
+     */
+    protected Timer createTimer() {
+        return new StripedTimer();
+    }
+
+    /**
+     * Create a counter for a newly registered statistic.
+     *
+     * @return counter, {@link StripedCounter} by default.
+     */
+    protected Counter createCounter() {
+        return new StripedCounter();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void printStats() {
-        for (String category : counters.keySet()) {
+        Set<String> categories = new LinkedHashSet<>(counters.keySet());
+        categories.addAll(gauges.keySet());
+
+        for (String category : categories) {
             LOG.info(DIVIDER);
             LOG.info(name + ": " + category);
             LOG.info(DIVIDER);
@@ -118,6 +266,16 @@ public class LoggingStatisticsCollector implements StatisticsCollector {
 
             LOG.info(DIVIDER);
         }
+
+        if (!timers.isEmpty()) {
+            LOG.info(DIVIDER);
+            LOG.info(name + ": Timing");
+            LOG.info(DIVIDER);
+
+            printTimers();
+
+            LOG.info(DIVIDER);
+        }
     }
 
     /**
@@ -126,15 +284,38 @@ public class LoggingStatisticsCollector implements StatisticsCollector {
      * @param category to print.
      */
     protected void printCategory(String category) {
-        Map<String, AtomicInteger> stats = counters.get(category);
+        Map<String, Long> stats = new LinkedHashMap<>();
+        if (counters.containsKey(category)) {
+            for (Map.Entry<String, Counter> statistic : counters.get(category).entrySet()) {
+                stats.put(statistic.getKey(), statistic.getValue().get());
+            }
+        }
+        if (gauges.containsKey(category)) {
+            for (Map.Entry<String, Gauge> statistic : gauges.get(category).entrySet()) {
+                stats.put(statistic.getKey(), statistic.getValue().get());
+            }
+        }
+
         for (String statistic : stats.keySet()) {
             StringBuilder spaces = new StringBuilder();
-            AtomicInteger value = stats.get(statistic);
-            int length = statistic.length() + value.toString().length();
+            long value = stats.get(statistic);
+            int length = statistic.length() + String.valueOf(value).length();
             while (length + spaces.length() < DIVIDER.length() - 1) {
                 spaces.append(" ");
             }
-            LOG.info(statistic + ":" + spaces + value.get());
+            LOG.info(statistic + ":" + spaces + value);
+        }
+    }
+
+    /**
+     * Print (log) all the timing stats of stages that have been executed at least once.
+     */
+    protected void printTimers() {
+        for (Map.Entry<String, Timer> timer : timers.entrySet()) {
+            if (timer.getValue().getCount() == 0) {
+                continue;
+            }
+            LOG.info(timer.getKey() + ": " + timer.getValue());
         }
     }
 }
@@ -15,6 +15,9 @@
 
 package com.graphaware.importer.stats;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * A component collecting statistics about import.
  */
@@ -39,14 +42,114 @@ public interface StatisticsCollector {
     void incrementsStats(String category, String name);
 
     /**
-     * Increment a statistic by a number.
+     * Increment a statistic by a number. Defaults to updating the handle obtained by {@link #counter(String, String)}.
      *
      * @param category category of the statistic, e.g. "errors", "warnings", "validation problems", etc.
      * @param name     name of the statistic, e.g. "missing property", ...
      * @param number   to increment by.
      */
+    default void incrementsStats(String category, String name, int number) {
+        counter(category, name).add(number);
+    }
+
+    /**
+     * Set a statistic to a number.
+     *
+     * @param category category of the statistic, e.g. "errors", "warnings", "validation problems", etc.
+     * @param name     name of the statistic, e.g. "missing property", ...
+     * @param number   to set.
+     */
     void setStats(String category, String name, int number);
 
+    /**
+     * Increment a statistic by a number that might not fit in an <code>int</code>. Defaults to updating the handle
+     * obtained by {@link #counter(String, String)}.
+     *
+     * @param category category of the statistic, e.g. "errors", "warnings", "validation problems", etc.
+     * @param name     name of the statistic, e.g. "missing property", ...
+     * @param number   to increment by.
+     */
+    default void incrementsStats(String category, String name, long number) {
+        counter(category, name).add(number);
+    }
+
+    /**
+     * Set a statistic to a number that might not fit in an <code>int</code>. Defaults to updating the handle
+     * obtained by {@link #counter(String, String)}.
+     *
+     * @param category category of the statistic, e.g. "errors", "warnings", "validation problems", etc.
+     * @param name     name of the statistic, e.g. "missing property", ...
+     * @param number   to set.
+     */
+    default void setStats(String category, String name, long number) {
+        counter(category, name).set(number);
+    }
+
+    /**
+     * Get a handle to a statistic, registering the statistic if it doesn't exist yet. Updating the handle has the same
+     * effect as calling {@link #incrementsStats(String, String)} etc. with the same category and name, but doesn't look
+     * the statistic up, so for statistics updated for every row, the handle should be obtained once and kept.
+     * <p/>
+     * Defaults to a handle that delegates every update to {@link #incrementsStats(String, String)} and
+     * {@link #setStats(String, String, int)}, so that collectors written before handles existed keep working, and reads
+     * the statistic from {@link #getStats()}. Such a handle adds a number by incrementing the statistic that many times
+     * and doesn't save the lookups; collectors should override this method to get the benefit.
+     *
+     * @param category category of the statistic, e.g. "errors", "warnings", "validation problems", etc.
+     * @param name     name of the statistic, e.g. "missing property", ...
+     * @return handle to the statistic.
+     */
+    default Counter counter(String category, String name) {
+        return new DelegatingCounter(this, category, name);
+    }
+
+    /**
+     * Register a statistic that is read on demand, rather than counted. Replaces a gauge previously registered with the
+     * same category and name.
+     * <p/>
+     * Defaults to ignoring the gauge, i.e., it isn't reported.
+     *
+     * @param category category of the statistic.
+     * @param name     name of the statistic, e.g. "queue depth".
+     * @param gauge    reading the statistic. Must not be <code>null</code> and must be thread-safe.
+     */
+    default void gauge(String category, String name, Gauge gauge) {
+    }
+
+    /**
+     * Get a handle to a timing statistic, registering the statistic if it doesn't exist yet.
+     * <p/>
+     * Defaults to a new timer that isn't registered, i.e., timings are measured but not reported.
+     *
+     * @param name name of the timed stage, e.g. "produceObject".
+     * @return handle to the statistic.
+     */
+    default Timer timer(String name) {
+        return new StripedTimer();
+    }
+
+    /**
+     * Get a snapshot of all the counted and gauged statistics collected so far.
+     * <p/>
+     * Defaults to no statistics, i.e., nothing is reported by {@link ImportMetrics}.
+     *
+     * @return current values of statistics by name, by category.
+     */
+    default Map<String, Map<String, Long>> getStats() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Get all the timing statistics collected so far.
+     * <p/>
+     * Defaults to no timers, i.e., no timings are reported by {@link ImportMetrics}.
+     *
+     * @return timers by name of the timed stage.
+     */
+    default Map<String, Timer> getTimers() {
+        return Collections.emptyMap();
+    }
+
     /**
      * Print all the stats collected so far.
      */
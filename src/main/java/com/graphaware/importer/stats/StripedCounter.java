@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Counter} backed by a {@link LongAdder}, which spreads concurrent updates over multiple cells, so that threads
+ * incrementing the same statistic don't contend on a single cache line.
+ * <p/>
+ * Updates are cheap, reads sum up all the cells. {@link #set(long)} is not atomic with respect to concurrent updates,
+ * which is fine for statistics that are set from a single thread.
+ */
+public class StripedCounter implements Counter {
+
+    private final LongAdder adder = new LongAdder();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void increment() {
+        adder.increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(long number) {
+        adder.add(number);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(long number) {
+        adder.reset();
+        adder.add(number);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long get() {
+        return adder.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+/**
+ * A handle to a timing statistic of a {@link StatisticsCollector}, obtained once by {@link StatisticsCollector#timer(String)},
+ * recording how long a stage of the import (e.g. producing objects) takes.
+ * <p/>
+ * Intended usage:
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * timer.record(System.nanoTime() - start);
+ * </pre>
+ */
+public interface Timer {
+
+    /**
+     * Record a single execution of the timed stage.
+     *
+     * @param nanos duration of the execution in nanoseconds.
+     */
+    void record(long nanos);
+
+    /**
+     * Get the number of recorded executions.
+     *
+     * @return count.
+     */
+    long getCount();
+
+    /**
+     * Get the total duration of all recorded executions.
+     *
+     * @return total duration in nanoseconds.
+     */
+    long getTotalNanos();
+
+    /**
+     * Get the duration of the slowest recorded execution.
+     *
+     * @return maximum duration in nanoseconds, 0 if nothing has been recorded.
+     */
+    long getMaxNanos();
+
+    /**
+     * Get the duration at a given percentile of all recorded executions.
+     *
+     * @param percentile between 0 and 100, e.g. 99 for the duration 99% of executions don't exceed.
+     * @return duration in nanoseconds, possibly approximated. 0 if nothing has been recorded.
+     */
+    long getPercentileNanos(double percentile);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Utilities for memory-mapped (and other direct) {@link ByteBuffer}s.
+ * <p/>
+ * The JDK only unmaps a buffer when it is garbage collected, which can be long after it has been discarded. Until then,
+ * the mapping keeps occupying address space and page cache, and keeps deleted files on disk. {@link #unmap(ByteBuffer)}
+ * releases the mapping straight away, using <code>sun.misc.Unsafe#invokeCleaner</code> on Java 9+ and the buffer's
+ * cleaner on Java 8 (the same hack as MapDB's <code>cleanerHackEnable</code>).
+ */
+public final class MappedBuffers {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedBuffers.class);
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+        } catch (Exception e) {
+            //Java 8, use the buffer's cleaner
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private MappedBuffers() {
+    }
+
+    /**
+     * Unmap a direct buffer. The buffer (and all its views) must not be accessed afterwards; doing so would crash the JVM.
+     * If unmapping isn't possible on this JVM, the buffer is left to the garbage collector.
+     *
+     * @param buffer to unmap, can be <code>null</code>.
+     */
+    public static void unmap(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+
+        try {
+            if (INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                return;
+            }
+
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            LOG.debug("Could not unmap buffer, it will be unmapped when garbage collected", e);
+        }
+    }
+}
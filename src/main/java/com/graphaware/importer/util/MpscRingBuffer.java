@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.util;
+
+import org.springframework.util.Assert;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free, multi-producer single-consumer ring buffer.
+ * <p/>
+ * Producers claim a sequence number, write their element into the corresponding slot and publish it. The single
+ * consumer takes published elements in sequence order, in batches. Producers wait (park) when the buffer is full,
+ * the consumer parks when it is empty and is woken up by the next producer.
+ * <p/>
+ * Once {@link #close()}d, the buffer rejects new elements, and the consumer takes the elements put before closing and
+ * is then told that there are no more.
+ * <p/>
+ * Only a single thread is allowed to call {@link #drainTo(Object[])} and {@link #take(Object[])}.
+ *
+ * @param <E> element type.
+ */
+public class MpscRingBuffer<E> {
+
+    private static final long PRODUCER_BACKOFF_NANOS = 10_000;
+
+    private final Object[] buffer;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+
+    private volatile long consumed;
+    private volatile Thread consumer;
+    private volatile boolean consumerWaiting;
+    private volatile long closedAt;
+    private volatile boolean closed;
+
+    /**
+     * Create a new ring buffer.
+     *
+     * @param capacity capacity, must be a power of two.
+     */
+    public MpscRingBuffer(int capacity) {
+        Assert.isTrue(capacity > 0 && Integer.bitCount(capacity) == 1, "Capacity must be a power of two");
+
+        this.buffer = new Object[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Put an element into the buffer, waiting for space if necessary.
+     *
+     * @param element to put. Must not be <code>null</code>.
+     * @throws IllegalStateException if the buffer has been closed.
+     */
+    public void put(E element) {
+        Assert.notNull(element);
+
+        long sequence = claimed.getAndIncrement();
+
+        if (sequence < 0) {
+            throw new IllegalStateException("Ring buffer has been closed");
+        }
+
+        while (sequence - consumed >= buffer.length) {
+            LockSupport.parkNanos(this, PRODUCER_BACKOFF_NANOS);
+        }
+
+        int index = (int) sequence & mask;
+        buffer[index] = element;
+        published.set(index, sequence + 1);
+
+        if (consumerWaiting) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Take all published elements (at most the length of the target array) without waiting.
+     *
+     * @param target array to copy the elements to.
+     * @return number of elements taken, 0 if the buffer is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public int drainTo(E[] target) {
+        long next = consumed;
+        int taken = 0;
+
+        while (taken < target.length) {
+            int index = (int) next & mask;
+            if (published.get(index) != next + 1) {
+                break;
+            }
+            target[taken++] = (E) buffer[index];
+            buffer[index] = null;
+            next++;
+        }
+
+        if (taken > 0) {
+            consumed = next;
+        }
+
+        return taken;
+    }
+
+    /**
+     * Take all published elements (at most the length of the target array), waiting for at least one if necessary.
+     *
+     * @param target array to copy the elements to.
+     * @return number of elements taken, 0 iff the buffer has been closed and all elements put before have been taken.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public int take(E[] target) throws InterruptedException {
+        consumer = Thread.currentThread();
+
+        while (true) {
+            int taken = drainTo(target);
+            if (taken > 0) {
+                return taken;
+            }
+
+            consumerWaiting = true;
+            try {
+                taken = drainTo(target);
+                if (taken > 0) {
+                    return taken;
+                }
+                if (closed && consumed == closedAt) {
+                    return 0;
+                }
+                LockSupport.park(this);
+            } finally {
+                consumerWaiting = false;
+            }
+
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Close the buffer, so that no more elements can be put. Elements being put concurrently are either rejected, or
+     * taken by the consumer before it is told that there are no more. Closing a closed buffer has no effect.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+
+        closedAt = claimed.getAndAdd(Long.MIN_VALUE);
+        closed = true;
+
+        Thread waiting = consumer;
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+    }
+
+    /**
+     * @return approximate number of elements in the buffer, including ones claimed, but not yet published.
+     */
+    public int size() {
+        long sequence = closed ? closedAt : claimed.get();
+        return (int) Math.max(0, Math.min(sequence - consumed, buffer.length));
+    }
+
+    /**
+     * @return capacity of the buffer.
+     */
+    public int capacity() {
+        return buffer.length;
+    }
+}
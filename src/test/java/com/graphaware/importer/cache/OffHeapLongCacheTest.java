@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.cache.OffHeapLongCache}.
+ */
+public class OffHeapLongCacheTest {
+
+    private OffHeapLongCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new OffHeapLongCache(new File("/tmp/cache-offheap"), 4);
+    }
+
+    @After
+    public void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    public void shouldPutAndGetValues() {
+        assertTrue(cache.isEmpty());
+        assertFalse(cache.containsLong(1));
+        assertEquals(LongCache.NO_VALUE, cache.getLong(1));
+        assertNull(cache.get(1L));
+        assertNull(cache.get(null));
+        assertFalse(cache.containsKey(null));
+
+        cache.putLong(1, 10);
+        cache.put(2L, 20L);
+        cache.putLong(0, 0);
+        cache.putLong(-5, -50);
+        cache.putLong(Long.MAX_VALUE, Long.MAX_VALUE);
+        cache.putLong(Long.MIN_VALUE, 1);
+
+        assertEquals(6, cache.size());
+        assertEquals(10, cache.getLong(1));
+        assertEquals(20L, (long) cache.get(2L));
+        assertEquals(0, cache.getLong(0));
+        assertEquals(-50, cache.getLong(-5));
+        assertEquals(Long.MAX_VALUE, cache.getLong(Long.MAX_VALUE));
+        assertEquals(1, cache.getLong(Long.MIN_VALUE));
+        assertTrue(cache.containsKey(0L));
+
+        cache.putLong(1, 11);
+        assertEquals(11, cache.getLong(1));
+        assertEquals(6, cache.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptReservedValue() {
+        cache.putLong(1, LongCache.NO_VALUE);
+    }
+
+    @Test
+    public void shouldGrowAndIterate() {
+        Map<Long, Long> expected = new HashMap<>();
+
+        for (long i = 0; i < 100_000; i++) {
+            cache.putLong(i * 31, -i);
+            expected.put(i * 31, -i);
+        }
+
+        assertEquals(100_000, cache.size());
+
+        for (long i = 0; i < 100_000; i++) {
+            assertEquals(-i, cache.getLong(i * 31));
+        }
+
+        Map<Long, Long> actual = new HashMap<>();
+        for (Map.Entry<Long, Long> entry : cache.entrySet()) {
+            actual.put(entry.getKey(), entry.getValue());
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void outgrownTablesShouldBeReleased() {
+        cache.putLong(1, 1);
+        Iterator<Map.Entry<Long, Long>> iterator = cache.entrySet().iterator();
+
+        for (long i = 2; i < 1000; i++) {
+            cache.putLong(i, i);
+        }
+
+        File[] files = new File("/tmp").listFiles();
+        int tables = 0;
+        for (File file : files) {
+            if (file.getName().startsWith("cache-offheap.")) {
+                tables++;
+            }
+        }
+        assertEquals(1, tables);
+
+        try {
+            iterator.next();
+            fail();
+        } catch (ConcurrentModificationException e) {
+            //ok, the table being iterated has been unmapped
+        }
+    }
+
+    @Test
+    public void shouldClear() {
+        for (long i = 0; i < 1000; i++) {
+            cache.putLong(i, i);
+        }
+
+        cache.clear();
+
+        assertTrue(cache.isEmpty());
+        assertFalse(cache.containsLong(5));
+        assertFalse(cache.entrySet().iterator().hasNext());
+
+        cache.putLong(5, 6);
+        assertEquals(6, cache.getLong(5));
+    }
+
+    @Test
+    public void shouldPutIfAbsent() {
+        assertNull(cache.putIfAbsent(1L, 2L));
+        assertEquals(2L, (long) cache.putIfAbsent(1L, 3L));
+        assertEquals(2, cache.getLong(1));
+    }
+
+    @Test
+    public void shouldComputeEachAbsentKeyOnlyOnce() throws InterruptedException {
+        final AtomicLong computed = new AtomicLong();
+        final Function<Long, Long> function = new Function<Long, Long>() {
+            @Override
+            public Long apply(Long key) {
+                return computed.incrementAndGet();
+            }
+        };
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (long key = 0; key < 10_000; key++) {
+                        assertNotNull(cache.computeIfAbsent(key, function));
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(10_000, computed.get());
+        assertEquals(10_000, cache.size());
+    }
+
+    @Test
+    public void concurrentReadsShouldSeeValuesWhileOtherThreadsWriteAndGrow() throws InterruptedException {
+        final AtomicLong failures = new AtomicLong();
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final long offset = i * 100_000L;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (long key = offset; key < offset + 20_000; key++) {
+                        cache.putLong(key, key * 2);
+                        if (cache.getLong(key) != key * 2 || cache.getLong(offset + (key * 7919) % (key - offset + 1)) == LongCache.NO_VALUE) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, failures.get());
+        assertEquals(80_000, cache.size());
+        for (long key = 0; key < 20_000; key++) {
+            assertEquals((300_000 + key) * 2, cache.getLong(300_000 + key));
+        }
+    }
+}
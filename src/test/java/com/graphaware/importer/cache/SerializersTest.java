@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import org.junit.Test;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.Serializer;
+
+import java.io.IOException;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.cache.Serializers} and {@link com.graphaware.importer.cache.SerializerRegistry}.
+ */
+public class SerializersTest {
+
+    private enum Role {
+        ADMIN, USER
+    }
+
+    @Test
+    public void shouldRoundTripValues() throws IOException {
+        assertArrayEquals(new String[]{"Developer", null, "", "Žluťoučký"}, roundTrip(Serializers.STRING_ARRAY, new String[]{"Developer", null, "", "Žluťoučký"}));
+        assertArrayEquals(new Object[]{1L, 2, 3.0, true, "four", null}, roundTrip(Serializers.TUPLE, new Object[]{1L, 2, 3.0, true, "four", null}));
+        assertEquals(Role.USER, roundTrip(Serializers.forEnum(Role.class), Role.USER));
+    }
+
+    @Test
+    public void shouldHashArraysByContent() {
+        assertTrue(Serializers.TUPLE.equals(new Object[]{1L, "a"}, new Object[]{1L, "a"}));
+        assertEquals(Serializers.TUPLE.hashCode(new Object[]{1L, "a"}, 7), Serializers.TUPLE.hashCode(new Object[]{1L, "a"}, 7));
+        assertTrue(Serializers.STRING_ARRAY.equals(new String[]{"a"}, new String[]{"a"}));
+    }
+
+    @Test
+    public void shouldFindSerializerForExactType() {
+        SerializerRegistry registry = new SerializerRegistry();
+
+        assertSame(Serializers.STRING_ARRAY, registry.find(String[].class));
+        assertSame(Serializers.TUPLE, registry.find(Object[].class));
+        assertNull(registry.find(Long[].class));
+        assertNull(registry.find(java.sql.Timestamp.class));
+        assertNotNull(registry.find(Role.class));
+        assertNull(registry.find(StringBuilder.class));
+
+        registry.register(java.sql.Timestamp.class, new Serializer<java.sql.Timestamp>() {
+            @Override
+            public void serialize(DataOutput2 out, java.sql.Timestamp value) throws IOException {
+                out.writeLong(value.getTime());
+            }
+
+            @Override
+            public java.sql.Timestamp deserialize(DataInput2 input, int available) throws IOException {
+                return new java.sql.Timestamp(input.readLong());
+            }
+        });
+
+        assertNotNull(registry.find(java.sql.Timestamp.class));
+        assertSame(Serializer.DATE, registry.find(Date.class));
+        assertSame(Serializer.LONG_ARRAY, registry.find(long[].class));
+        assertSame(Serializer.INT_ARRAY, registry.find(int[].class));
+        assertSame(Serializer.DOUBLE_ARRAY, registry.find(double[].class));
+    }
+
+    private <T> T roundTrip(Serializer<T> serializer, T value) throws IOException {
+        DataOutput2 out = new DataOutput2();
+        serializer.serialize(out, value);
+        byte[] bytes = out.copyBytes();
+        return serializer.deserialize(new DataInput2.ByteArray(bytes), bytes.length);
+    }
+}
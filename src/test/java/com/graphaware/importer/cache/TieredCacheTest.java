@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.cache;
+
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.cache.TieredCache}.
+ */
+public class TieredCacheTest {
+
+    @Test
+    public void shouldServeRepeatedLookupsFromHotTier() {
+        TieredCache<String, Long> cache = new TieredCache<>("test", new MapCache<String, Long>(), 1 << 20, new MemoryBudget(1 << 20));
+
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+
+        assertEquals(1L, (long) cache.get("a"));
+        assertEquals(1L, (long) cache.get("a"));
+        assertTrue(cache.containsKey("a"));
+        assertNull(cache.get("c"));
+        assertNull(cache.get(null));
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+
+        cache.put("a", 3L);
+        assertEquals(3L, (long) cache.get("a"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void shouldEnforceGlobalBudget() {
+        MemoryBudget budget = new MemoryBudget(1000);
+        TieredCache<String, Long> cache1 = new TieredCache<>("test1", new MapCache<String, Long>(), 1 << 20, budget);
+        TieredCache<String, Long> cache2 = new TieredCache<>("test2", new MapCache<String, Long>(), 1 << 20, budget);
+
+        for (int i = 0; i < 100; i++) {
+            cache1.put("key" + i, (long) i);
+            cache2.put("key" + i, (long) i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (long) cache1.get("key" + i));
+            assertEquals(i, (long) cache2.get("key" + i));
+            assertFalse(budget.isExceeded());
+        }
+
+        assertTrue(cache1.getEvictions() > 0);
+        assertTrue(cache2.getEvictions() > 0);
+        assertEquals(budget.getUsed(), cache1.getMemoryUsage() + cache2.getMemoryUsage());
+
+        cache1.clear();
+        cache2.clear();
+
+        assertEquals(0, budget.getUsed());
+        assertTrue(cache1.isEmpty());
+    }
+
+    @Test
+    public void exceededGlobalBudgetShouldEvictFromLargestCache() {
+        MemoryBudget budget = new MemoryBudget(1000);
+        TieredCache<Long, Long> cache1 = new TieredCache<>("test1", new MapCache<Long, Long>(), 1 << 20, budget);
+        TieredCache<Long, Long> cache2 = new TieredCache<>("test2", new MapCache<Long, Long>(), 1 << 20, budget);
+
+        for (long i = 0; i < 8; i++) {
+            cache1.put(i, i);
+            cache1.get(i);
+        }
+        assertFalse(budget.isExceeded());
+
+        cache2.put(0L, 0L);
+        cache2.get(0L);
+
+        assertFalse(budget.isExceeded());
+        assertEquals(1, cache1.getEvictions());
+        assertEquals(0, cache2.getEvictions());
+        assertEquals(budget.getUsed(), cache1.getMemoryUsage() + cache2.getMemoryUsage());
+
+        long hits = cache2.getHits();
+        assertEquals(0L, (long) cache2.get(0L));
+        assertEquals(hits + 1, cache2.getHits());
+    }
+
+    @Test
+    public void shouldNotPromoteValueOverwrittenDuringLookup() {
+        final TieredCache<String, Long>[] tiered = new TieredCache[1];
+
+        MapCache<String, Long> cold = new MapCache<String, Long>() {
+            private boolean overwritten;
+
+            @Override
+            public Long get(String key) {
+                Long value = super.get(key);
+                if (!overwritten) {
+                    overwritten = true;
+                    tiered[0].put(key, 2L); //a concurrent write after the cold tier has been read
+                }
+                return value;
+            }
+        };
+
+        tiered[0] = new TieredCache<>("test", cold, 1 << 20, new MemoryBudget(1 << 20));
+        tiered[0].put("a", 1L);
+
+        tiered[0].get("a");
+
+        assertEquals(2L, (long) tiered[0].get("a"));
+        assertEquals(1, tiered[0].getHits());
+    }
+
+    private static class MapCache<K, V> implements Cache<K, V> {
+
+        private final Map<K, V> map = new ConcurrentHashMap<>();
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean containsKey(K key) {
+            return key != null && map.containsKey(key);
+        }
+
+        @Override
+        public V get(K key) {
+            return key == null ? null : map.get(key);
+        }
+
+        @Override
+        public void put(K key, V value) {
+            map.put(key, value);
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            return map.putIfAbsent(key, value);
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> function) {
+            return map.computeIfAbsent(key, function);
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return map.entrySet();
+        }
+    }
+}
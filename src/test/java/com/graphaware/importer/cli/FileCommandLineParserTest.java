@@ -49,6 +49,25 @@ public class FileCommandLineParserTest {
         assertEquals("/tmp/output", context.getOutputDir());
         assertEquals("/tmp/cache", context.getCacheFile());
         assertEquals("neo4j.props", context.getProps());
+        assertEquals(0, context.getMetricsPort());
+        assertEquals(60, context.getMetricsInterval());
+    }
+
+    @Test
+    public void shouldProduceContextWithMetricsOptions() {
+        FileImportConfig context = parser.parseArgs(new String[]{
+                "-g", "/tmp/graph",
+                "-i", "/tmp/input",
+                "-o", "/tmp/output",
+                "-c", "/tmp/cache",
+                "-r", "neo4j.props",
+                "-W", "8090",
+                "-L", "10"
+        });
+
+        assertTrue(context != null);
+        assertEquals(8090, context.getMetricsPort());
+        assertEquals(10, context.getMetricsInterval());
     }
 
     @Test
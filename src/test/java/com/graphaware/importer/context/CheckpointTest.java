@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.context;
+
+import com.graphaware.importer.data.Data;
+import com.graphaware.importer.data.DynamicData;
+import com.graphaware.importer.importer.Importer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.context.Checkpoint}.
+ */
+public class CheckpointTest {
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File("/tmp/import-checkpoint-test.properties");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void finishedImportersShouldBeRememberedWhenResumed() {
+        Checkpoint checkpoint = new Checkpoint(file, false);
+        checkpoint.finished(new TestImporter("A"));
+        checkpoint.shutDownCleanly();
+
+        Checkpoint resumed = new Checkpoint(file, true);
+        assertTrue(resumed.hasFinished(new TestImporter("A")));
+        assertFalse(resumed.hasFinished(new TestImporter("B")));
+    }
+
+    @Test
+    public void startedImportersShouldBeRememberedWhenResumed() {
+        Checkpoint checkpoint = new Checkpoint(file, false);
+        checkpoint.started(new TestImporter("A"));
+        checkpoint.started(new TestImporter("B"));
+        checkpoint.finished(new TestImporter("B"));
+        checkpoint.shutDownCleanly();
+
+        Checkpoint resumed = new Checkpoint(file, true);
+        assertTrue(resumed.hasStarted(new TestImporter("A")));
+        assertFalse(resumed.hasFinished(new TestImporter("A")));
+        assertTrue(resumed.hasStarted(new TestImporter("B")));
+        assertFalse(resumed.hasStarted(new TestImporter("C")));
+
+        assertFalse(new Checkpoint(file, false).hasStarted(new TestImporter("A")));
+    }
+
+    @Test
+    public void finishedImportersShouldBeForgottenWhenNotResumed() {
+        Checkpoint checkpoint = new Checkpoint(file, false);
+        checkpoint.finished(new TestImporter("A"));
+        checkpoint.shutDownCleanly();
+
+        assertFalse(new Checkpoint(file, false).hasFinished(new TestImporter("A")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotResumeWithoutCheckpoint() {
+        new Checkpoint(file, true);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotResumeImportThatHasNotBeenShutDownCleanly() {
+        Checkpoint checkpoint = new Checkpoint(file, false);
+        checkpoint.finished(new TestImporter("A"));
+
+        new Checkpoint(file, true);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotResumeTwiceWithoutCleanShutdown() {
+        new Checkpoint(file, false).shutDownCleanly();
+        new Checkpoint(file, true);
+
+        new Checkpoint(file, true);
+    }
+
+    private static class TestImporter implements Importer {
+
+        private final String name;
+
+        private TestImporter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public Data inputData() {
+            return DynamicData.withName(name);
+        }
+
+        @Override
+        public void prepare(ImportContext importContext) {
+        }
+
+        @Override
+        public void performImport() {
+        }
+
+        @Override
+        public void createIndices() {
+        }
+
+        @Override
+        public State getState() {
+            return State.NOT_STARTED;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.context;
+
+import com.graphaware.importer.cache.Caches;
+import com.graphaware.importer.data.Data;
+import com.graphaware.importer.data.DynamicData;
+import com.graphaware.importer.data.access.DataReader;
+import com.graphaware.importer.importer.Importer;
+import com.graphaware.importer.stats.LoggingStatisticsCollector;
+import com.graphaware.importer.stats.StatisticsCollector;
+import org.junit.Test;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndexProvider;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for default methods of {@link com.graphaware.importer.context.ImportContext}.
+ */
+public class ImportContextTest {
+
+    @Test
+    public void defaultsShouldBeCreatedOncePerContext() {
+        ImportContext first = new MinimalContext();
+        ImportContext second = new MinimalContext();
+
+        assertSame(first.metrics(), first.metrics());
+        assertSame(first.checkpoint(), first.checkpoint());
+        assertNotSame(first.metrics(), second.metrics());
+        assertNotSame(first.checkpoint(), second.checkpoint());
+    }
+
+    @Test
+    public void defaultCheckpointShouldBeKeptInMemory() {
+        ImportContext context = new MinimalContext();
+        Importer importer = new MinimalImporter();
+
+        assertFalse(context.checkpoint().hasStarted(importer));
+        context.checkpoint().started(importer);
+        context.checkpoint().finished(importer);
+        context.checkpoint().shutDownCleanly();
+
+        assertTrue(context.checkpoint().hasStarted(importer));
+        assertTrue(context.checkpoint().hasFinished(importer));
+        assertFalse(new MinimalContext().checkpoint().hasStarted(importer));
+    }
+
+    /**
+     * Context implementing only the abstract methods of {@link ImportContext}.
+     */
+    private static class MinimalContext implements ImportContext {
+
+        @Override
+        public void essentialBootstrap() {
+        }
+
+        @Override
+        public void fullBootstrap() {
+        }
+
+        @Override
+        public void check() {
+        }
+
+        @Override
+        public StatisticsCollector createStatistics(String name) {
+            return new LoggingStatisticsCollector(name);
+        }
+
+        @Override
+        public Caches caches() {
+            return null;
+        }
+
+        @Override
+        public BatchInserter inserter() {
+            return null;
+        }
+
+        @Override
+        public BatchInserterIndexProvider indexProvider() {
+            return null;
+        }
+
+        @Override
+        public DataReader createReader(Data data) {
+            return null;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    private static class MinimalImporter implements Importer {
+
+        @Override
+        public String name() {
+            return "Minimal";
+        }
+
+        @Override
+        public Data inputData() {
+            return DynamicData.withName("Minimal");
+        }
+
+        @Override
+        public void prepare(ImportContext importContext) {
+        }
+
+        @Override
+        public void performImport() {
+        }
+
+        @Override
+        public void createIndices() {
+        }
+
+        @Override
+        public State getState() {
+            return State.NOT_STARTED;
+        }
+    }
+}
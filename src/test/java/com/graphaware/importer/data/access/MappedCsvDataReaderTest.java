@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.data.access;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.data.access.MappedCsvDataReader}.
+ */
+public class MappedCsvDataReaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String NL = System.getProperty("line.separator");
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("mapped", ".csv");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(("id,name,age\r\n" +
+                    "1,Michal,30\n" +
+                    "\n" +
+                    " 2 ,\"Adam, \"\"Ben\"\"\",x\n" +
+                    "-9223372036854775808,\"Multi" + NL + "line\",2147483648\n" +
+                    "9223372036854775808,Žluťoučký kůň,-2147483648\n" +
+                    ",,").getBytes(UTF_8));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void shouldReadRecords() {
+        verify(new MappedCsvDataReader(',', '"', UTF_8));
+    }
+
+    @Test
+    public void shouldReadRecordsAcrossWindows() {
+        verify(new MappedCsvDataReader(',', '"', UTF_8, 64));
+    }
+
+    private void verify(MappedCsvDataReader reader) {
+        reader.initialize();
+        reader.read(file.getAbsolutePath(), "test");
+
+        assertTrue(reader.readRecord());
+        assertEquals(2, reader.getRow());
+        assertEquals(1L, (long) reader.readLong("id"));
+        assertEquals("Michal", reader.readObject("name"));
+        assertEquals(30, (int) reader.readInt("age"));
+        assertEquals("1,Michal,30", reader.getRawRecord());
+
+        assertTrue(reader.readRecord());
+        assertEquals(3, reader.getRow());
+        assertEquals(2L, (long) reader.readLong("id"));
+        assertEquals("Adam, \"Ben\"", reader.readObject("name"));
+        assertNull(reader.readInt("age"));
+
+        assertTrue(reader.readRecord());
+        assertEquals(4, reader.getRow());
+        assertEquals(Long.MIN_VALUE, (long) reader.readLong("id"));
+        assertEquals("Multiline", reader.readObject("name"));
+        assertNull(reader.readInt("age"));
+        assertEquals(2147483648L, (long) reader.readLong("age"));
+
+        assertTrue(reader.readRecord());
+        assertEquals(5, reader.getRow());
+        assertNull(reader.readLong("id"));
+        assertEquals("Žluťoučký kůň", reader.readObject("name"));
+        assertEquals(Integer.MIN_VALUE, (int) reader.readInt("age"));
+
+        assertTrue(reader.readRecord());
+        assertNull(reader.readLong("id"));
+        assertEquals("", reader.readObject("name"));
+        assertNull(reader.readInt("age"));
+
+        assertFalse(reader.readRecord());
+
+        reader.close();
+    }
+}
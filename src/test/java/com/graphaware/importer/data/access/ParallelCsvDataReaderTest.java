@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.data.access;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.data.access.ParallelCsvDataReader}.
+ */
+public class ParallelCsvDataReaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("parallel", ".csv");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("id,name\r\n".getBytes(UTF_8));
+            for (int i = 0; i < 1000; i++) {
+                if (i % 7 == 0) {
+                    out.write(("\n" + i + ",\"Multi\nline, \"\"" + i + "\"\"\"\r\n").getBytes(UTF_8));
+                } else {
+                    out.write((i + ",Name " + i + "\n").getBytes(UTF_8));
+                }
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void shouldReadRecordsInOrder() {
+        Map<Integer, String> expected = readSequentially();
+
+        ParallelCsvDataReader reader = new ParallelCsvDataReader(',', '"', UTF_8, 4, true, 100);
+        reader.initialize();
+        reader.read(file.getAbsolutePath(), "test");
+
+        int previousRow = 0;
+        int count = 0;
+        while (reader.readRecord()) {
+            assertTrue(reader.getRow() > previousRow);
+            assertEquals(expected.get(reader.getRow()), reader.readLong("id") + "|" + reader.readObject("name"));
+            previousRow = reader.getRow();
+            count++;
+        }
+
+        reader.close();
+
+        assertEquals(expected.size(), count);
+    }
+
+    @Test
+    public void shouldReadAllRecordsWithoutOrder() {
+        Map<Integer, String> expected = readSequentially();
+
+        ParallelCsvDataReader reader = new ParallelCsvDataReader(',', '"', UTF_8, 4, false, 100);
+        reader.initialize();
+        reader.read(file.getAbsolutePath(), "test");
+
+        while (reader.readRecord()) {
+            assertEquals(reader.readLong("id") + "|" + reader.readObject("name"), expected.remove(reader.getRow()));
+        }
+
+        reader.close();
+
+        assertTrue(expected.isEmpty());
+    }
+
+    @Test
+    public void closingBeforeEndShouldStopThreadsAndAllowReadingAgain() {
+        final List<Throwable> uncaught = new CopyOnWriteArrayList<>();
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                uncaught.add(e);
+            }
+        });
+
+        try {
+            ParallelCsvDataReader reader = new ParallelCsvDataReader(',', '"', UTF_8, 1, true, 100);
+            reader.initialize();
+
+            for (int i = 0; i < 10; i++) {
+                reader.read(file.getAbsolutePath(), "test");
+                assertTrue(reader.readRecord());
+                reader.close();
+            }
+
+            reader.read(file.getAbsolutePath(), "test");
+            int count = 0;
+            while (reader.readRecord()) {
+                count++;
+            }
+            reader.close();
+
+            assertEquals(1000, count);
+            assertTrue(uncaught.isEmpty());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    private Map<Integer, String> readSequentially() {
+        Map<Integer, String> result = new HashMap<>();
+
+        MappedCsvDataReader reader = new MappedCsvDataReader(',', '"', UTF_8);
+        reader.initialize();
+        reader.read(file.getAbsolutePath(), "test");
+
+        while (reader.readRecord()) {
+            result.put(reader.getRow(), reader.readLong("id") + "|" + reader.readObject("name"));
+        }
+
+        reader.close();
+
+        assertEquals(1000, result.size());
+        return result;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.data.access;
+
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for {@link com.graphaware.importer.data.access.ReadPartitioning}.
+ */
+public class ReadPartitioningTest {
+
+    @Test
+    public void shouldPartitionQueryBySplitPoints() {
+        assertEquals(Arrays.asList(
+                "select * from (select * from person) q_ where q_.ID is null or q_.ID < 100",
+                "select * from (select * from person) q_ where q_.ID >= 100 and q_.ID < 200",
+                "select * from (select * from person) q_ where q_.ID >= 200"
+        ), ReadPartitioning.splitAt("ID", 200, 100).partition("select * from person", null));
+    }
+
+    @Test
+    public void shouldNotPartitionWithoutSplitPoints() {
+        assertEquals(Collections.singletonList("select * from person"), ReadPartitioning.splitAt("ID").partition("select * from person", null));
+    }
+
+    @Test
+    public void shouldPartitionQueryEvenlyBetweenMinAndMax() {
+        MinMaxTemplate template = new MinMaxTemplate(1L, 100L);
+
+        assertEquals(Arrays.asList(
+                "select * from (select * from person) q_ where q_.ID is null or q_.ID < 26",
+                "select * from (select * from person) q_ where q_.ID >= 26 and q_.ID < 51",
+                "select * from (select * from person) q_ where q_.ID >= 51 and q_.ID < 76",
+                "select * from (select * from person) q_ where q_.ID >= 76"
+        ), ReadPartitioning.evenly("ID", 4).partition("select * from person", template));
+
+        assertEquals("select min(q_.ID), max(q_.ID) from (select * from person) q_", template.sql);
+    }
+
+    @Test
+    public void shouldNotProduceEmptyEvenPartitionsForNarrowRanges() {
+        assertEquals(Arrays.asList(
+                "select * from (select * from person) q_ where q_.ID is null or q_.ID < 2",
+                "select * from (select * from person) q_ where q_.ID >= 2"
+        ), ReadPartitioning.evenly("ID", 4).partition("select * from person", new MinMaxTemplate(1L, 2L)));
+    }
+
+    @Test
+    public void shouldNotPartitionEvenlyWithoutValues() {
+        assertEquals(Collections.singletonList("select * from person"), ReadPartitioning.evenly("ID", 4).partition("select * from person", new MinMaxTemplate(null, null)));
+    }
+
+    @Test
+    public void shouldNotPartitionEvenlyIntoSinglePartition() {
+        assertEquals(Collections.singletonList("select * from person"), ReadPartitioning.evenly("ID", 1).partition("select * from person", new MinMaxTemplate(1L, 100L)));
+    }
+
+    /**
+     * {@link JdbcTemplate} answering the min/max query with fixed values.
+     */
+    private static class MinMaxTemplate extends JdbcTemplate {
+
+        private final Long min;
+        private final Long max;
+        private String sql;
+
+        private MinMaxTemplate(Long min, Long max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public <T> T query(String sql, ResultSetExtractor<T> rse) {
+            this.sql = sql;
+
+            ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class}, new InvocationHandler() {
+                private Long last;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    switch (method.getName()) {
+                        case "next":
+                            return true;
+                        case "getLong":
+                            last = (int) args[0] == 1 ? min : max;
+                            return last == null ? 0L : last;
+                        case "wasNull":
+                            return last == null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }
+            });
+
+            try {
+                return rse.extractData(resultSet);
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.graphaware.importer.domain;
 
 import org.junit.Test;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -57,6 +58,40 @@ public class Neo4jPropertyContainerTest {
         assertEquals(2, result.get("testField"));
     }
 
+    @Test
+    public void propertiesShouldBeWrittenIntoProvidedMap() {
+        Map<String, Object> target = new HashMap<>();
+        target.put("stale", "value");
+
+        Map<String, Object> result = new WithFields().getProperties(target);
+
+        assertSame(target, result);
+        assertEquals(2, result.size());
+        assertEquals("test", result.get("stringField"));
+        assertEquals(2, result.get("testField"));
+    }
+
+    @Test
+    public void propertiesShouldBeListedInStableOrder() {
+        PropertyAccessor accessor = PropertyAccessor.forClass(WithMoreFields.class);
+
+        assertSame(accessor, PropertyAccessor.forClass(WithMoreFields.class));
+        assertEquals(4, accessor.size());
+        assertEquals("stringField", accessor.key(0));
+        assertEquals("testField", accessor.key(1));
+        assertEquals("longField", accessor.key(2));
+        assertEquals("anotherField", accessor.key(3));
+        assertEquals(2, accessor.value(new WithMoreFields(), 1));
+    }
+
+    @Test
+    public void staticFieldsShouldBeIgnored() {
+        Map<String, Object> result = new WithStaticField().getProperties();
+
+        assertEquals(1, result.size());
+        assertEquals("test", result.get("stringField"));
+    }
+
     @Test
     public void classWithAnnotationsShouldProducePropertiesMultiThreaded() {
         ExecutorService executor = Executors.newFixedThreadPool(10);
@@ -106,4 +141,19 @@ public class Neo4jPropertyContainerTest {
 
     }
 
+    private class WithMoreFields extends WithFields {
+
+        @Neo4jProperty
+        private double anotherField = 1.5;
+    }
+
+    private static class WithStaticField extends Neo4jPropertyContainer {
+
+        @Neo4jProperty
+        private static String staticField = "static";
+
+        @Neo4jProperty
+        private String stringField = "test";
+    }
+
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.domain;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link PropertyBuffer}.
+ */
+public class PropertyBufferTest {
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+
+    @Test
+    public void primitivesShouldBeReadAsBoxedValues() {
+        PropertyBuffer buffer = new PropertyBuffer()
+                .putLong(ID, 42L)
+                .putInt("age", 30)
+                .putDouble("score", 1.5)
+                .putString(NAME, "Michal")
+                .putLongArray("ids", new long[]{1, 2});
+
+        assertEquals(5, buffer.size());
+        assertEquals(42L, buffer.get(ID));
+        assertEquals(30, buffer.get("age"));
+        assertEquals(1.5, buffer.get("score"));
+        assertEquals("Michal", buffer.get(new String(NAME)));
+        assertArrayEquals(new long[]{1, 2}, (long[]) buffer.get("ids"));
+        assertNull(buffer.get("unknown"));
+    }
+
+    @Test
+    public void puttingExistingKeyShouldReplaceValue() {
+        PropertyBuffer buffer = new PropertyBuffer().putLong(ID, 1).putString(NAME, "Michal");
+
+        buffer.putString(ID, "one");
+
+        assertEquals(2, buffer.size());
+        assertEquals("one", buffer.get(ID));
+    }
+
+    @Test
+    public void nullValueShouldRemoveProperty() {
+        PropertyBuffer buffer = new PropertyBuffer().putLong(ID, 1).putString(NAME, "Michal").putInt("age", 30);
+
+        buffer.putString(NAME, null);
+
+        assertEquals(2, buffer.size());
+        assertFalse(buffer.containsKey(NAME));
+        assertEquals(30, buffer.get("age"));
+    }
+
+    @Test
+    public void bufferShouldGrowAndBeReusable() {
+        PropertyBuffer buffer = new PropertyBuffer(1);
+
+        for (int i = 0; i < 20; i++) {
+            buffer.putInt("key" + i, i);
+        }
+
+        assertEquals(20, buffer.size());
+        assertEquals(19, buffer.get("key19"));
+
+        buffer.clear();
+
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.get("key0"));
+    }
+
+    @Test
+    public void bufferShouldBehaveAsMapInInsertionOrder() {
+        PropertyBuffer buffer = new PropertyBuffer().putLong(ID, 1).putString(NAME, "Michal");
+
+        Iterator<Map.Entry<String, Object>> iterator = buffer.entrySet().iterator();
+        assertEquals(ID, iterator.next().getKey());
+        assertEquals("Michal", iterator.next().getValue());
+        assertFalse(iterator.hasNext());
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put(ID, 1L);
+        expected.put(NAME, "Michal");
+
+        assertEquals(expected, buffer);
+        assertEquals(buffer, expected);
+        assertEquals(expected.hashCode(), buffer.hashCode());
+        assertEquals(expected, new HashMap<>(buffer));
+    }
+
+    @Test
+    public void entriesShouldBeIndependent() {
+        PropertyBuffer buffer = new PropertyBuffer().putLong(ID, 1).putString(NAME, "Michal");
+
+        List<Map.Entry<String, Object>> entries = new ArrayList<>(buffer.entrySet());
+        buffer.clear();
+        buffer.putLong(ID, 2);
+
+        assertEquals(2, entries.size());
+        assertEquals(ID, entries.get(0).getKey());
+        assertEquals(1L, entries.get(0).getValue());
+        assertEquals(NAME, entries.get(1).getKey());
+        assertEquals("Michal", entries.get(1).getValue());
+    }
+
+    @Test
+    public void copyShouldBeIndependent() {
+        PropertyBuffer buffer = new PropertyBuffer().putLong(ID, 1);
+
+        PropertyBuffer copy = buffer.copy();
+        buffer.clear();
+        buffer.putLong(ID, 2);
+
+        assertEquals(1L, copy.get(ID));
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.index;
+
+import com.graphaware.importer.stats.LoggingStatisticsCollector;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.index.IndexHits;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndex;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndexProvider;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link ManagedIndex} and {@link LegacyIndexes}.
+ */
+public class ManagedIndexTest {
+
+    private InMemoryIndex wrapped;
+    private ManagedIndex index;
+
+    @Before
+    public void setUp() {
+        wrapped = new InMemoryIndex();
+        index = new ManagedIndex("names", wrapped, 3, 10);
+    }
+
+    @Test
+    public void writesShouldBeBufferedAndFlushedAtInterval() {
+        index.add(1, Collections.<String, Object>singletonMap("name", "Michal"));
+        index.add(2, Collections.<String, Object>singletonMap("name", "Vince"));
+
+        assertEquals(2, index.getPendingWrites());
+        assertEquals(0, wrapped.flushes);
+
+        index.add(3, Collections.<String, Object>singletonMap("name", "Luanne"));
+
+        assertEquals(0, index.getPendingWrites());
+        assertEquals(1, wrapped.flushes);
+        assertEquals(3, wrapped.flushed.size());
+    }
+
+    @Test
+    public void lookupsShouldSeeBufferedWritesWithoutFlushing() {
+        index.add(1, Collections.<String, Object>singletonMap("name", "Michal"));
+        index.flush();
+        index.add(2, Collections.<String, Object>singletonMap("name", "Michal"));
+
+        assertEquals(Arrays.asList(1L, 2L), ids(index.get("name", "Michal")));
+        assertEquals(1, wrapped.flushes);
+        assertEquals(1, index.getCacheMisses());
+
+        assertEquals(Arrays.asList(1L, 2L), ids(index.get("name", "Michal")));
+        assertEquals(1, index.getCacheHits());
+        assertEquals(1, wrapped.gets);
+    }
+
+    @Test
+    public void writesShouldInvalidateCachedLookups() {
+        assertTrue(ids(index.get("tags", 42)).isEmpty());
+
+        index.add(7, Collections.<String, Object>singletonMap("tags", new long[]{41, 42}));
+
+        assertEquals(Collections.singletonList(7L), ids(index.get("tags", 42L)));
+        assertEquals(Collections.singletonList(7L), ids(index.get("tags", "41")));
+    }
+
+    @Test
+    public void queriesAndReadsAfterUpdatesShouldFlush() {
+        index.add(1, Collections.<String, Object>singletonMap("name", "Michal"));
+        index.query("name:Mich*");
+        assertEquals(1, wrapped.flushes);
+
+        index.updateOrAdd(1, Collections.<String, Object>singletonMap("name", "Michael"));
+        assertEquals(1, wrapped.flushes);
+
+        assertTrue(ids(index.get("name", "Michal")).isEmpty());
+        assertEquals(2, wrapped.flushes);
+        assertEquals(Collections.singletonList(1L), ids(index.get("name", "Michael")));
+    }
+
+    @Test
+    public void readsFromInexactIndexesShouldFlush() {
+        for (Map<String, String> config : Arrays.asList(Collections.singletonMap("type", "fulltext"), Collections.singletonMap("to_lower_case", "true"))) {
+            wrapped = new InMemoryIndex();
+            index = new ManagedIndex("names", wrapped, config, 3, 10);
+
+            index.add(1, Collections.<String, Object>singletonMap("name", "Michal"));
+
+            assertEquals(Collections.singletonList(1L), ids(index.get("name", "Michal")));
+            assertEquals(1, wrapped.flushes);
+            assertEquals(0, index.getPendingWrites());
+
+            assertEquals(Collections.singletonList(1L), ids(index.get("name", "Michal")));
+            assertEquals(0, index.getCacheHits());
+            assertEquals(2, wrapped.gets);
+        }
+    }
+
+    @Test
+    public void readsOfOtherValuesShouldFlush() {
+        index.add(1, Collections.<String, Object>singletonMap("age", new Wrapped(30)));
+        assertEquals(Collections.singletonList(1L), ids(index.get("age", "30")));
+        assertEquals(1, wrapped.flushes);
+
+        index.add(2, Collections.<String, Object>singletonMap("age", 30));
+        assertEquals(Arrays.asList(1L, 2L), ids(index.get("age", new Wrapped(30))));
+        assertEquals(2, wrapped.flushes);
+    }
+
+    @Test
+    public void concurrentWritesShouldAllBeFlushed() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t * 1000;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        index.add(offset + i, Collections.<String, Object>singletonMap("name", "Michal"));
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4000, ids(index.get("name", "Michal")).size());
+        index.flush();
+        assertEquals(0, index.getPendingWrites());
+        assertEquals(4000, wrapped.flushed.size());
+    }
+
+    @Test
+    public void failedFlushShouldFailIndexForGood() {
+        index.add(1, Collections.<String, Object>singletonMap("name", "Michal"));
+        wrapped.failing = true;
+
+        try {
+            index.flush();
+            fail();
+        } catch (IllegalArgumentException e) {
+            //ok
+        }
+
+        wrapped.failing = false;
+
+        try {
+            index.add(2, Collections.<String, Object>singletonMap("name", "Vince"));
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        try {
+            index.get("name", "Michal");
+            fail();
+        } catch (IllegalStateException e) {
+            //ok
+        }
+
+        try {
+            index.flush();
+            fail();
+        } catch (IllegalStateException e) {
+            //ok
+        }
+
+        assertEquals(0, wrapped.flushes);
+    }
+
+    @Test
+    public void indexesShouldBeSharedAndFlushedTogether() {
+        final Map<String, InMemoryIndex> created = new HashMap<>();
+        BatchInserterIndexProvider provider = new BatchInserterIndexProvider() {
+            @Override
+            public BatchInserterIndex nodeIndex(String indexName, Map<String, String> config) {
+                InMemoryIndex result = new InMemoryIndex();
+                created.put(indexName, result);
+                return result;
+            }
+
+            @Override
+            public BatchInserterIndex relationshipIndex(String indexName, Map<String, String> config) {
+                return nodeIndex(indexName, config);
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        };
+
+        LegacyIndexes indexes = new LegacyIndexes(provider, new LoggingStatisticsCollector("test"), 100, 10);
+        Map<String, String> config = Collections.singletonMap("type", "fulltext");
+
+        ManagedIndex first = indexes.nodeIndex("names", config);
+        assertSame(first, indexes.nodeIndex("names", new HashMap<>(config)));
+        assertEquals(1, created.size());
+
+        first.add(1, Collections.<String, Object>singletonMap("name", "Michal"));
+        indexes.flush();
+        assertEquals(1, created.get("names").flushes);
+
+        try {
+            indexes.nodeIndex("names", Collections.singletonMap("type", "exact"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            //ok
+        }
+    }
+
+    private static List<Long> ids(IndexHits<Long> hits) {
+        List<Long> result = new ArrayList<>();
+        for (Long id : hits) {
+            result.add(id);
+        }
+        hits.close();
+        return result;
+    }
+
+    /**
+     * Value that isn't a plain {@link String} or primitive, like <code>ValueContext</code>.
+     */
+    private static class Wrapped {
+
+        private final Object value;
+
+        private Wrapped(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    /**
+     * Index that only reveals entries once they have been flushed, like Lucene.
+     */
+    private static class InMemoryIndex implements BatchInserterIndex {
+
+        private final Map<Long, Map<String, Object>> unflushed = new LinkedHashMap<>();
+        private final Map<Long, Map<String, Object>> flushed = new LinkedHashMap<>();
+        private int flushes;
+        private int gets;
+        private boolean failing;
+
+        @Override
+        public void add(long entityId, Map<String, Object> properties) {
+            unflushed.put(entityId, properties);
+        }
+
+        @Override
+        public void updateOrAdd(long entityId, Map<String, Object> properties) {
+            unflushed.put(entityId, properties);
+        }
+
+        @Override
+        public IndexHits<Long> get(String key, Object value) {
+            gets++;
+            List<Long> result = new ArrayList<>();
+            for (Map.Entry<Long, Map<String, Object>> entry : flushed.entrySet()) {
+                if (String.valueOf(value).equals(String.valueOf(entry.getValue().get(key)))) {
+                    result.add(entry.getKey());
+                }
+            }
+            long[] ids = new long[result.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = result.get(i);
+            }
+            return new LongIndexHits(ids);
+        }
+
+        @Override
+        public IndexHits<Long> query(String key, Object queryOrQueryObject) {
+            return new LongIndexHits(new long[0]);
+        }
+
+        @Override
+        public IndexHits<Long> query(Object queryOrQueryObject) {
+            return new LongIndexHits(new long[0]);
+        }
+
+        @Override
+        public void flush() {
+            if (failing) {
+                throw new IllegalArgumentException("Failing on purpose");
+            }
+
+            flushed.putAll(unflushed);
+            unflushed.clear();
+            flushes++;
+        }
+
+        @Override
+        public void setCacheCapacity(String key, int size) {
+        }
+    }
+}
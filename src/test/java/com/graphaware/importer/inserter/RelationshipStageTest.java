@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.inserter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link RelationshipStage}.
+ */
+public class RelationshipStageTest {
+
+    private static final RelationshipType WORKS_FOR = DynamicRelationshipType.withName("WORKS_FOR");
+    private static final RelationshipType KNOWS = DynamicRelationshipType.withName("KNOWS");
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("stage").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void relationshipsShouldBeInsertedGroupedByDenserNode() {
+        RelationshipStage stage = new RelationshipStage(new File(directory, "test"));
+
+        stage.stage(7, 3, KNOWS, null);
+        for (long person = 20; person > 0; person--) {
+            stage.stage(person, 100, WORKS_FOR, Collections.<String, Object>singletonMap("since", person * 1000));
+        }
+        stage.stage(2, 1, KNOWS, Collections.<String, Object>emptyMap());
+
+        assertEquals(22, stage.size());
+
+        List<Object[]> inserted = insert(stage);
+
+        assertEquals(22, inserted.size());
+        assertEquals(0, directory.listFiles().length);
+
+        //relationships of people with few relationships first, in order of their source
+        assertArrayEquals(new Object[]{2L, 1L, "KNOWS", Collections.emptyMap()}, inserted.get(0));
+        assertArrayEquals(new Object[]{7L, 3L, "KNOWS", Collections.emptyMap()}, inserted.get(1));
+
+        //then all relationships of the company, in their original direction, ordered by the people
+        for (int i = 2; i < 22; i++) {
+            long person = i - 1;
+            assertArrayEquals(new Object[]{person, 100L, "WORKS_FOR", Collections.singletonMap("since", person * 1000)}, inserted.get(i));
+        }
+    }
+
+    @Test
+    public void propertiesShouldSurviveStaging() {
+        RelationshipStage stage = new RelationshipStage(new File(directory, "test"));
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("long", 1L);
+        properties.put("int", 2);
+        properties.put("double", 3.5);
+        properties.put("float", 4.5f);
+        properties.put("short", (short) 5);
+        properties.put("byte", (byte) 6);
+        properties.put("boolean", true);
+        properties.put("char", 'c');
+        properties.put("string", "Žluťoučký kůň");
+        stage.stage(1, 2, KNOWS, properties);
+
+        Map<String, Object> arrays = new HashMap<>();
+        arrays.put("longs", new long[]{1, 2});
+        arrays.put("ints", new int[]{3});
+        arrays.put("doubles", new double[]{4.5});
+        arrays.put("booleans", new boolean[]{true, false});
+        arrays.put("strings", new String[]{"a", ""});
+        stage.stage(3, 4, KNOWS, arrays);
+
+        List<Object[]> inserted = insert(stage);
+
+        assertEquals(properties, new HashMap<>((Map<?, ?>) inserted.get(0)[3]));
+
+        Map<?, ?> read = (Map<?, ?>) inserted.get(1)[3];
+        assertArrayEquals(new long[]{1, 2}, (long[]) read.get("longs"));
+        assertArrayEquals(new int[]{3}, (int[]) read.get("ints"));
+        assertArrayEquals(new double[]{4.5}, (double[]) read.get("doubles"), 0.0);
+        assertTrue(Arrays.equals(new boolean[]{true, false}, (boolean[]) read.get("booleans")));
+        assertArrayEquals(new String[]{"a", ""}, (String[]) read.get("strings"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsupportedPropertiesShouldBeRejected() {
+        RelationshipStage stage = new RelationshipStage(new File(directory, "test"));
+        try {
+            stage.stage(1, 2, KNOWS, Collections.<String, Object>singletonMap("date", new Date()));
+        } finally {
+            stage.discard();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void relationshipsCanNotBeStagedAfterInsertion() {
+        RelationshipStage stage = new RelationshipStage(new File(directory, "test"));
+        insert(stage);
+
+        stage.stage(1, 2, KNOWS, null);
+    }
+
+    @Test
+    public void failedRelationshipsShouldBeSkipped() {
+        RelationshipStage stage = new RelationshipStage(new File(directory, "test"));
+        stage.stage(1, 2, KNOWS, null);
+        stage.stage(3, 4, KNOWS, null);
+        stage.stage(5, 6, KNOWS, null);
+
+        final List<Long> created = new ArrayList<>();
+        BatchInserter inserter = (BatchInserter) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{BatchInserter.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if ((Long) args[0] == 3) {
+                    throw new IllegalStateException("Node 3 doesn't exist");
+                }
+                created.add((Long) args[0]);
+                return 0L;
+            }
+        });
+
+        final List<String> failures = new ArrayList<>();
+        long inserted = stage.insert(inserter, new RelationshipStage.FailureHandler() {
+            @Override
+            public void failed(long source, long target, RelationshipType type, RuntimeException e) {
+                failures.add(source + "-" + target + ": " + e.getMessage());
+            }
+        });
+
+        assertEquals(2, inserted);
+        assertEquals(Arrays.asList(1L, 5L), created);
+        assertEquals(Collections.singletonList("3-4: Node 3 doesn't exist"), failures);
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void discardShouldDeleteFiles() {
+        RelationshipStage stage = new RelationshipStage(new File(directory, "test"));
+        stage.stage(1, 2, KNOWS, Collections.<String, Object>singletonMap("since", 1L));
+
+        stage.discard();
+
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    /**
+     * @return inserted relationships as [source, target, type name, copy of properties].
+     */
+    private List<Object[]> insert(RelationshipStage stage) {
+        final List<Object[]> inserted = new ArrayList<>();
+
+        BatchInserter inserter = (BatchInserter) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{BatchInserter.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (!"createRelationship".equals(method.getName())) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                inserted.add(new Object[]{args[0], args[1], ((RelationshipType) args[2]).name(), new HashMap<>((Map<?, ?>) args[3])});
+                return 0L;
+            }
+        });
+
+        stage.insert(inserter);
+
+        return inserted;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.inserter;
+
+import org.junit.Test;
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.DynamicRelationshipType;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.schema.ConstraintCreator;
+import org.neo4j.graphdb.schema.IndexCreator;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.inserter.SingleWriterBatchInserter}.
+ */
+public class SingleWriterBatchInserterTest {
+
+    @Test
+    public void shouldCreateNodesFromManyThreadsOnSingleWriter() throws InterruptedException {
+        final RecordingInserter recording = new RecordingInserter();
+        recording.nodes.add(0L);
+        recording.nodes.add(1L);
+        recording.nodes.add(2L);
+
+        final SingleWriterBatchInserter inserter = new SingleWriterBatchInserter(recording.proxy(), 64, 16);
+
+        final Set<Long> ids = Collections.synchronizedSet(new HashSet<Long>());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        long id = inserter.createNode(Collections.<String, Object>emptyMap());
+                        ids.add(id);
+                        inserter.createRelationship(id, 0, DynamicRelationshipType.withName("TEST"), Collections.<String, Object>emptyMap());
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(4000, ids.size());
+        assertFalse(ids.contains(2L));
+        assertTrue(ids.contains(3L));
+        assertTrue(inserter.nodeExists(4002));
+        assertFalse(inserter.nodeExists(4003));
+
+        long reserved = inserter.reserveNodeIds(10);
+        assertEquals(4003, reserved);
+        inserter.createNode(reserved + 9, Collections.<String, Object>emptyMap());
+        assertEquals(4013, inserter.createNode(Collections.<String, Object>emptyMap()));
+
+        inserter.shutdown();
+
+        assertEquals(4005, recording.nodes.size());
+        assertEquals(4000, recording.relationships);
+        assertEquals(1, recording.writerThreads.size());
+        assertTrue(recording.shutdown);
+    }
+
+    @Test
+    public void shouldFailFastAfterFailedWrite() {
+        RecordingInserter recording = new RecordingInserter();
+        SingleWriterBatchInserter inserter = new SingleWriterBatchInserter(recording.proxy(), 64, 16);
+
+        long id = inserter.createNode(Collections.<String, Object>emptyMap());
+        assertEquals(1, inserter.createRelationship(id, id, DynamicRelationshipType.withName("TEST"), Collections.<String, Object>emptyMap()));
+
+        inserter.setNodeProperty(0, "fail", true);
+
+        try {
+            inserter.flush();
+            fail();
+        } catch (InserterFailedException e) {
+            assertEquals("Failing on purpose", e.getCause().getMessage());
+        }
+
+        assertEquals(1, inserter.failedOperations());
+
+        try {
+            inserter.createNode(Collections.<String, Object>emptyMap());
+            fail();
+        } catch (InserterFailedException e) {
+            //ok
+        }
+
+        inserter.shutdown();
+        inserter.shutdown();
+
+        assertEquals(1, recording.nodes.size());
+        assertTrue(recording.shutdown);
+    }
+
+    @Test
+    public void shutdownShouldReportUnnoticedFailure() {
+        RecordingInserter recording = new RecordingInserter();
+        SingleWriterBatchInserter inserter = new SingleWriterBatchInserter(recording.proxy(), 64, 16);
+
+        inserter.setNodeProperty(0, "fail", true);
+
+        try {
+            inserter.shutdown();
+            fail();
+        } catch (InserterFailedException e) {
+            //ok
+        }
+
+        assertTrue(recording.shutdown);
+    }
+
+    @Test
+    public void operationsRacingShutdownShouldBeAppliedOrRejected() throws InterruptedException {
+        final RecordingInserter recording = new RecordingInserter();
+        final SingleWriterBatchInserter inserter = new SingleWriterBatchInserter(recording.proxy(), 64, 16);
+
+        final AtomicInteger created = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            inserter.createNode(Collections.<String, Object>emptyMap());
+                            created.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        //shut down
+                    }
+                }
+            });
+        }
+
+        Thread.sleep(50);
+        inserter.shutdown();
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertEquals(created.get(), recording.nodes.size());
+        assertTrue(recording.shutdown);
+    }
+
+    @Test
+    public void shouldCreateSchemaOnWriterThread() {
+        RecordingInserter recording = new RecordingInserter();
+        SingleWriterBatchInserter inserter = new SingleWriterBatchInserter(recording.proxy(), 64, 16);
+
+        inserter.createNode(Collections.<String, Object>emptyMap());
+        inserter.createDeferredSchemaIndex(DynamicLabel.label("Person")).on("name").create();
+        inserter.createDeferredConstraint(DynamicLabel.label("Company")).assertPropertyIsUnique("name").create();
+
+        assertEquals(Arrays.asList("index:Person:name", "constraint:Company:name"), recording.schema);
+        assertEquals(1, recording.writerThreads.size());
+        assertFalse(recording.writerThreads.contains(Thread.currentThread()));
+
+        inserter.shutdown();
+    }
+
+    private static class RecordingInserter implements InvocationHandler {
+
+        private final Set<Long> nodes = new HashSet<>();
+        private final Set<Thread> writerThreads = new HashSet<>();
+        private final List<String> schema = new ArrayList<>();
+        private int relationships;
+        private boolean shutdown;
+
+        private BatchInserter proxy() {
+            return (BatchInserter) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{BatchInserter.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "nodeExists":
+                    return nodes.contains((Long) args[0]);
+                case "createNode":
+                    assertEquals(Map.class, method.getParameterTypes()[1]);
+                    assertTrue(nodes.add((Long) args[0]));
+                    writerThreads.add(Thread.currentThread());
+                    assertEquals(0, ((Label[]) args[2]).length);
+                    return null;
+                case "createRelationship":
+                    relationships++;
+                    writerThreads.add(Thread.currentThread());
+                    return (long) relationships;
+                case "createDeferredSchemaIndex":
+                    writerThreads.add(Thread.currentThread());
+                    return schemaCreator(IndexCreator.class, "index:" + ((Label) args[0]).name());
+                case "createDeferredConstraint":
+                    writerThreads.add(Thread.currentThread());
+                    return schemaCreator(ConstraintCreator.class, "constraint:" + ((Label) args[0]).name());
+                case "setNodeProperty":
+                    throw new IllegalArgumentException("Failing on purpose");
+                case "shutdown":
+                    shutdown = true;
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        }
+
+        private Object schemaCreator(final Class<?> type, final String description) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{type}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if ("create".equals(method.getName())) {
+                        schema.add(description);
+                        return null;
+                    }
+                    return schemaCreator(type, description + ":" + args[0]);
+                }
+            });
+        }
+    }
+}
@@ -15,16 +15,30 @@
 
 package com.graphaware.importer.integration;
 
+import com.graphaware.importer.BatchImporter;
+import com.graphaware.importer.integration.inserter.FailingAfterInsertFriendsImporter;
+import com.graphaware.importer.integration.inserter.FailingOnceFriendsImporter;
 import com.graphaware.test.unit.GraphUnit;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.DynamicLabel;
 import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.schema.ConstraintDefinition;
 import org.springframework.core.io.ClassPathResource;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 /**
@@ -32,24 +46,44 @@ import static org.junit.Assert.fail;
  */
 public class BatchImporterIntegrationTest {
 
-    @Test
-    public void testImport() throws IOException, InterruptedException {
-        TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private static final String PEOPLE_AND_LOCATIONS = "CREATE " +
+            "(p1:Person {id: 1, name: 'Michal Bachman', age:30})," +
+            "(p2:Person {id: 2, name: 'Adam George', age:29})," +
+            "(l1:Location {id: 1, name: 'London'})," +
+            "(l2:Location {id: 2, name: 'Watnall'})," +
+            "(l3:Location {id: 3, name: 'Prague'})," +
+            "(p1)-[:LIVES_IN]->(l1)," +
+            "(p2)-[:LIVES_IN]->(l2)";
+
+    private static final String PEOPLE_LOCATIONS_AND_FRIENDS = PEOPLE_AND_LOCATIONS + "," +
+            "(p1)-[:FRIEND_OF {since:1281654000000}]->(p2)";
+
+    private TemporaryFolder temporaryFolder;
+    private String tmpFolder;
+    private String[] args;
+
+    @Before
+    public void setUp() throws IOException {
+        temporaryFolder = new TemporaryFolder();
         temporaryFolder.create();
-        String tmpFolder = temporaryFolder.getRoot().getAbsolutePath();
+        tmpFolder = temporaryFolder.getRoot().getAbsolutePath();
 
         String cp = new ClassPathResource("people.csv").getFile().getAbsolutePath();
         String path = cp.substring(0, cp.length() - "people.csv".length());
 
-        try {
-            TestBatchImporter.main(new String[]{"-g", tmpFolder + "/graph.db", "-i", path, "-o", tmpFolder, "-r", "neo4j.properties", "-c", tmpFolder + "/cache"});
-        } catch (Throwable t) {
-            fail();
-        }
+        args = new String[]{"-g", tmpFolder + "/graph.db", "-i", path, "-o", tmpFolder, "-r", "neo4j.properties", "-c", tmpFolder + "/cache"};
+    }
+
+    @After
+    public void tearDown() {
+        temporaryFolder.delete();
+    }
 
-        GraphDatabaseService database = new GraphDatabaseFactory().newEmbeddedDatabase(new File(tmpFolder + "/graph.db"));
+    @Test
+    public void testImport() {
+        importSuccessfully(new TestBatchImporter());
 
-        GraphUnit.assertSameGraph(database, "CREATE " +
+        assertGraph("CREATE " +
                 "(p1:Person {id: 1, name: 'Michal Bachman', role: 'MD at GraphAware', age:30})," +
                 "(p2:Person {id: 2, name: 'Adam George', role: 'Consultant at GraphAware', age:29})," +
                 "(l1:Location {id: 1, name: 'London'})," +
@@ -65,40 +99,121 @@ public class BatchImporterIntegrationTest {
                 "(p2)-[:WORKS_FOR {role: 'Developer'}]->(c1)," +
                 "(p2)-[:WORKS_FOR {role: 'Consultant'}]->(c2)"
         );
+    }
 
-        database.shutdown();
-        temporaryFolder.delete();
+    @Test
+    public void testImport2() {
+        importSuccessfully(new TestBatchImporter2());
+
+        assertGraph(PEOPLE_LOCATIONS_AND_FRIENDS);
     }
 
     @Test
-    public void testImport2() throws IOException, InterruptedException {
-        TemporaryFolder temporaryFolder = new TemporaryFolder();
-        temporaryFolder.create();
-        String tmpFolder = temporaryFolder.getRoot().getAbsolutePath();
+    public void testParallelImport() {
+        importSuccessfully(new TestParallelBatchImporter());
 
-        String cp = new ClassPathResource("people.csv").getFile().getAbsolutePath();
-        String path = cp.substring(0, cp.length() - "people.csv".length());
+        assertGraph(PEOPLE_LOCATIONS_AND_FRIENDS);
+    }
 
+    @Test
+    public void testRelationshipImport() {
+        importSuccessfully(new TestRelationshipBatchImporter());
+
+        assertGraph(PEOPLE_LOCATIONS_AND_FRIENDS);
+    }
+
+    @Test
+    public void testStagedRelationshipImport() {
+        importSuccessfully(new TestRelationshipBatchImporter(true));
+
+        for (String file : temporaryFolder.getRoot().list()) {
+            assertFalse(file.startsWith("staged-"));
+        }
+
+        assertGraph(PEOPLE_LOCATIONS_AND_FRIENDS);
+    }
+
+    @Test
+    public void testUniqueConstraintImport() {
+        importSuccessfully(new TestUniqueConstraintBatchImporter());
+
+        assertGraph(PEOPLE_AND_LOCATIONS + "," +
+                "(c1:Company {name: 'K+N'})," +
+                "(c2:Company {name: 'GraphAware'})," +
+                "(p1)-[:WORKS_FOR {role: 'Developer'}]->(c1)," +
+                "(p1)-[:WORKS_FOR {role: 'MD'}]->(c2)," +
+                "(p2)-[:WORKS_FOR {role: 'Developer'}]->(c1)," +
+                "(p2)-[:WORKS_FOR {role: 'Consultant'}]->(c2)"
+        );
+
+        GraphDatabaseService database = openDatabase();
+
+        try (Transaction tx = database.beginTx()) {
+            Set<String> constrained = new HashSet<>();
+            for (ConstraintDefinition constraint : database.schema().getConstraints(DynamicLabel.label("Company"))) {
+                for (String property : constraint.getPropertyKeys()) {
+                    constrained.add(property);
+                }
+            }
+            assertEquals(Collections.singleton("name"), constrained);
+            tx.success();
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    @Test
+    public void testPropertyBufferImport() {
+        importSuccessfully(new TestBufferedBatchImporter());
+
+        assertGraph(PEOPLE_LOCATIONS_AND_FRIENDS);
+    }
+
+    @Test
+    public void testResumeFailedImport() {
+        new TestResumableBatchImporter(new FailingOnceFriendsImporter(true)).run(args);
+
+        assertGraph(PEOPLE_AND_LOCATIONS);
+
+        new TestResumableBatchImporter(new FailingOnceFriendsImporter(false)).run(resumeArgs());
+
+        assertGraph(PEOPLE_LOCATIONS_AND_FRIENDS);
+    }
+
+    @Test
+    public void importThatFailedAfterInsertingShouldNotBeResumed() {
+        new TestResumableBatchImporter(new FailingAfterInsertFriendsImporter(true)).run(args);
+
+        new TestResumableBatchImporter(new FailingAfterInsertFriendsImporter(false)).run(resumeArgs());
+
+        assertGraph(PEOPLE_LOCATIONS_AND_FRIENDS);
+    }
+
+    private void importSuccessfully(BatchImporter<?> importer) {
         try {
-            TestBatchImporter2.main(new String[]{"-g", tmpFolder + "/graph.db", "-i", path, "-o", tmpFolder, "-r", "neo4j.properties", "-c", tmpFolder + "/cache"});
+            importer.run(args);
         } catch (Throwable t) {
             fail();
         }
+    }
 
-        GraphDatabaseService database = new GraphDatabaseFactory().newEmbeddedDatabase(new File(tmpFolder + "/graph.db"));
+    private String[] resumeArgs() {
+        String[] result = Arrays.copyOf(args, args.length + 1);
+        result[args.length] = "-R";
+        return result;
+    }
 
-        GraphUnit.assertSameGraph(database, "CREATE " +
-                "(p1:Person {id: 1, name: 'Michal Bachman', age:30})," +
-                "(p2:Person {id: 2, name: 'Adam George', age:29})," +
-                "(l1:Location {id: 1, name: 'London'})," +
-                "(l2:Location {id: 2, name: 'Watnall'})," +
-                "(l3:Location {id: 3, name: 'Prague'})," +
-                "(p1)-[:LIVES_IN]->(l1)," +
-                "(p2)-[:LIVES_IN]->(l2)," +
-                "(p1)-[:FRIEND_OF {since:1281654000000}]->(p2)"
-        );
+    private GraphDatabaseService openDatabase() {
+        return new GraphDatabaseFactory().newEmbeddedDatabase(new File(tmpFolder + "/graph.db"));
+    }
 
-        database.shutdown();
-        temporaryFolder.delete();
+    private void assertGraph(String cypher) {
+        GraphDatabaseService database = openDatabase();
+
+        try {
+            GraphUnit.assertSameGraph(database, cypher);
+        } finally {
+            database.shutdown();
+        }
     }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.integration.inserter;
+
+/**
+ * {@link FriendsImporter} that can be made to fail after inserting all relationships, to simulate an import that failed
+ * part-way.
+ */
+public class FailingAfterInsertFriendsImporter extends FriendsImporter {
+
+    private final boolean fail;
+
+    public FailingAfterInsertFriendsImporter(boolean fail) {
+        this.fail = fail;
+    }
+
+    @Override
+    protected void shutdown() {
+        if (fail) {
+            throw new IllegalStateException("Failing on purpose");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.integration.inserter;
+
+import com.graphaware.importer.cache.Cache;
+import com.graphaware.importer.cache.InjectCache;
+import com.graphaware.importer.data.Data;
+import com.graphaware.importer.data.DynamicData;
+import com.graphaware.importer.data.access.TabularDataReader;
+import com.graphaware.importer.domain.DirectedRelationship;
+import com.graphaware.importer.importer.RelationshipImporter;
+import org.neo4j.graphdb.RelationshipType;
+
+import static org.neo4j.graphdb.DynamicRelationshipType.withName;
+
+public class RelationshipFriendsImporter extends RelationshipImporter<DirectedRelationship, TabularDataReader> {
+
+    private static final RelationshipType FRIEND_OF = withName("FRIEND_OF");
+
+    @InjectCache(name = "people")
+    private Cache<Long, Long> personCache;
+
+    private final boolean staged;
+
+    public RelationshipFriendsImporter() {
+        this(false);
+    }
+
+    public RelationshipFriendsImporter(boolean staged) {
+        this.staged = staged;
+    }
+
+    @Override
+    public Data inputData() {
+        return DynamicData.withName("friends");
+    }
+
+    @Override
+    protected Cache<Long, Long> sourceCache() {
+        return personCache;
+    }
+
+    @Override
+    protected RelationshipType relationshipType(DirectedRelationship relationship) {
+        return FRIEND_OF;
+    }
+
+    @Override
+    protected boolean stageRelationships() {
+        return staged;
+    }
+
+    @Override
+    public DirectedRelationship produceObject(TabularDataReader record) {
+        DirectedRelationship result = new DirectedRelationship();
+
+        result.setSourceKey(record.readLong("id1"));
+        result.setTargetKey(record.readLong("id2"));
+        result.setProperty("since", record.readDate("since"));
+
+        return result;
+    }
+}
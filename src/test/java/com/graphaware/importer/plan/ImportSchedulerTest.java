@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.plan;
+
+import com.graphaware.importer.context.ImportContext;
+import com.graphaware.importer.data.Data;
+import com.graphaware.importer.data.DynamicData;
+import com.graphaware.importer.importer.Importer;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.plan.ImportScheduler}.
+ */
+public class ImportSchedulerTest {
+
+    private final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void shouldRunImportersAfterTheirDependencies() {
+        TestImporter a = new TestImporter("A");
+        TestImporter b = new TestImporter("B");
+        TestImporter c = new TestImporter("C");
+        TestImporter d = new TestImporter("D");
+
+        TestPlan plan = new TestPlan();
+        plan.add(a);
+        plan.add(b);
+        plan.add(c, a, b);
+        plan.add(d, c);
+
+        new ImportScheduler(plan, 2).execute();
+
+        assertEquals(4, finished.size());
+        assertTrue(finished.indexOf("C") > finished.indexOf("A"));
+        assertTrue(finished.indexOf("C") > finished.indexOf("B"));
+        assertEquals("D", finished.get(3));
+    }
+
+    @Test
+    public void shouldStartImportersOnLongestChainFirst() {
+        TestImporter a = new TestImporter("A");
+        TestImporter b = new TestImporter("B");
+        TestImporter c = new TestImporter("C");
+
+        TestPlan plan = new TestPlan();
+        plan.add(a);
+        plan.add(b);
+        plan.add(c, b);
+
+        new ImportScheduler(plan, 1).execute();
+
+        assertEquals("B", finished.get(0));
+    }
+
+    @Test
+    public void shouldTakeCostIntoAccount() {
+        final TestImporter a = new TestImporter("A");
+        TestImporter b = new TestImporter("B");
+        TestImporter c = new TestImporter("C");
+
+        TestPlan plan = new TestPlan();
+        plan.add(a);
+        plan.add(b);
+        plan.add(c, b);
+
+        final Map<String, Long> recorded = new HashMap<>();
+
+        new ImportScheduler(plan, 1, new CostEstimator() {
+            @Override
+            public long estimate(Importer importer) {
+                return importer == a ? 10 : 1;
+            }
+
+            @Override
+            public void record(Importer importer, long durationMillis) {
+                recorded.put(importer.name(), durationMillis);
+            }
+        }).execute();
+
+        assertEquals(Arrays.asList("A", "B", "C"), finished);
+        assertEquals(3, recorded.size());
+    }
+
+    @Test
+    public void shouldNotStartDependentsOfFailedImporter() {
+        TestImporter a = new TestImporter("A");
+        TestImporter b = new TestImporter("B") {
+            @Override
+            protected void doImport() {
+                throw new IllegalStateException("Failing on purpose");
+            }
+        };
+        TestImporter c = new TestImporter("C");
+
+        TestPlan plan = new TestPlan();
+        plan.add(a);
+        plan.add(b, a);
+        plan.add(c, b);
+
+        try {
+            new ImportScheduler(plan, 2).execute();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("Failing on purpose", e.getMessage());
+        }
+
+        assertEquals(Collections.singletonList("A"), finished);
+        assertEquals(Importer.State.NOT_STARTED, c.getState());
+    }
+
+    @Test
+    public void shouldRunImportersOfPlanWithoutDependenciesInOrder() {
+        final List<Importer> importers = Arrays.<Importer>asList(new TestImporter("A"), new TestImporter("B"), new TestImporter("C"));
+
+        ExecutionPlan plan = new ExecutionPlan() {
+            @Override
+            public List<Importer> getOrderedImporters() {
+                return importers;
+            }
+
+            @Override
+            public void clearCaches() {
+            }
+        };
+
+        assertEquals(new HashSet<>(importers.subList(0, 2)), plan.getDependencies(importers.get(2)));
+        assertTrue(plan.canRun(importers.get(0)));
+        assertFalse(plan.canRun(importers.get(1)));
+
+        new ImportScheduler(plan, 4).execute();
+
+        assertEquals(Arrays.asList("A", "B", "C"), finished);
+        assertTrue(plan.allFinished());
+    }
+
+    private class TestImporter implements Importer {
+
+        private final String name;
+        private volatile State state = State.NOT_STARTED;
+
+        private TestImporter(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public Data inputData() {
+            return DynamicData.withName(name);
+        }
+
+        @Override
+        public void prepare(ImportContext importContext) {
+        }
+
+        @Override
+        public void performImport() {
+            state = State.RUNNING;
+            try {
+                doImport();
+            } finally {
+                state = State.FINISHED;
+            }
+        }
+
+        protected void doImport() {
+            finished.add(name);
+        }
+
+        @Override
+        public void createIndices() {
+        }
+
+        @Override
+        public State getState() {
+            return state;
+        }
+    }
+
+    private static class TestPlan implements ExecutionPlan {
+
+        private final List<Importer> importers = new ArrayList<>();
+        private final Map<Importer, Set<Importer>> dependencies = new HashMap<>();
+
+        private void add(Importer importer, Importer... dependencies) {
+            importers.add(importer);
+            this.dependencies.put(importer, new HashSet<>(Arrays.asList(dependencies)));
+        }
+
+        @Override
+        public List<Importer> getOrderedImporters() {
+            return importers;
+        }
+
+        @Override
+        public Set<Importer> getDependencies(Importer importer) {
+            return dependencies.get(importer);
+        }
+
+        @Override
+        public void clearCaches() {
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.schema;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.schema.ConstraintDefinition;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchInserters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.schema.SchemaBuilder}.
+ */
+public class SchemaBuilderTest {
+
+    private static final Label PERSON = DynamicLabel.label("Person");
+    private static final Label COMPANY = DynamicLabel.label("Company");
+
+    private TemporaryFolder temporaryFolder;
+    private File storeDir;
+    private GraphDatabaseService database;
+
+    @Before
+    public void setUp() throws IOException {
+        temporaryFolder = new TemporaryFolder();
+        temporaryFolder.create();
+        storeDir = new File(temporaryFolder.getRoot(), "graph.db");
+
+        BatchInserter inserter = BatchInserters.inserter(storeDir, Collections.<String, String>emptyMap());
+        for (int i = 0; i < 1000; i++) {
+            inserter.createNode(properties("name", "Person " + i, "age", i % 100), PERSON);
+            inserter.createNode(properties("name", "Company " + i), COMPANY);
+        }
+        inserter.shutdown();
+    }
+
+    @After
+    public void tearDown() {
+        if (database != null) {
+            database.shutdown();
+        }
+        temporaryFolder.delete();
+    }
+
+    @Test
+    public void declaredIndexesAndConstraintsShouldBeOnline() {
+        SchemaBuilder builder = builder();
+        builder.index(PERSON, "name");
+        builder.index(PERSON, "age");
+        builder.index(COMPANY, "name");
+        builder.uniqueConstraint(COMPANY, "name");
+
+        builder.build();
+
+        database = new GraphDatabaseFactory().newEmbeddedDatabase(storeDir);
+
+        try (Transaction tx = database.beginTx()) {
+            Schema schema = database.schema();
+
+            assertEquals(3, count(schema.getIndexes()));
+            for (IndexDefinition index : schema.getIndexes()) {
+                assertEquals(Schema.IndexState.ONLINE, schema.getIndexState(index));
+            }
+
+            assertEquals(set("name", "age"), properties(schema.getIndexes(PERSON)));
+            assertEquals(set("name"), properties(schema.getIndexes(COMPANY)));
+            assertTrue(schema.getIndexes(COMPANY).iterator().next().isConstraintIndex());
+
+            Set<String> constrained = new HashSet<>();
+            for (ConstraintDefinition constraint : schema.getConstraints(COMPANY)) {
+                for (String property : constraint.getPropertyKeys()) {
+                    constrained.add(property);
+                }
+            }
+            assertEquals(set("name"), constrained);
+
+            assertNotNull(database.findNode(PERSON, "name", "Person 500"));
+            assertNotNull(database.findNode(COMPANY, "name", "Company 500"));
+
+            tx.success();
+        }
+    }
+
+    @Test
+    public void existingIndexesAndConstraintsShouldBeSkipped() {
+        SchemaBuilder builder = builder();
+        builder.index(PERSON, "name");
+        builder.uniqueConstraint(COMPANY, "name");
+
+        builder.build();
+        builder.build();
+
+        database = new GraphDatabaseFactory().newEmbeddedDatabase(storeDir);
+
+        try (Transaction tx = database.beginTx()) {
+            assertEquals(2, count(database.schema().getIndexes()));
+            tx.success();
+        }
+    }
+
+    private SchemaBuilder builder() {
+        return new SchemaBuilder(storeDir, new HashMap<String, String>());
+    }
+
+    private static Map<String, Object> properties(Object... keysAndValues) {
+        Map<String, Object> result = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            result.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return result;
+    }
+
+    private static Set<String> properties(Iterable<IndexDefinition> indexes) {
+        Set<String> result = new HashSet<>();
+        for (IndexDefinition index : indexes) {
+            for (String property : index.getPropertyKeys()) {
+                result.add(property);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> set(String... values) {
+        Set<String> result = new HashSet<>();
+        Collections.addAll(result, values);
+        return result;
+    }
+
+    private static int count(Iterable<?> iterable) {
+        int result = 0;
+        for (Object ignored : iterable) {
+            result++;
+        }
+        return result;
+    }
+}
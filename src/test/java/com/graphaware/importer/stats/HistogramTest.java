@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.stats.Histogram}.
+ */
+public class HistogramTest {
+
+    @Test
+    public void emptyHistogramShouldReportZeros() {
+        Histogram histogram = new Histogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    public void bucketsShouldBeContiguousAndPrecise() {
+        int previous = -1;
+        for (long value = 0; value < 1_000_000; value++) {
+            int bucket = Histogram.bucket(value);
+            assertTrue(bucket == previous || bucket == previous + 1);
+            assertTrue(Histogram.highestEquivalentValue(bucket) >= value);
+            assertTrue(Histogram.highestEquivalentValue(bucket) <= value + value / 32);
+            previous = bucket;
+        }
+
+        assertEquals(Long.MAX_VALUE, Histogram.highestEquivalentValue(Histogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentilesShouldBeWithinPrecision() {
+        Histogram histogram = new Histogram();
+
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(50_000_000, histogram.getPercentile(50), 50_000_000 / 32);
+        assertEquals(99_000_000, histogram.getPercentile(99), 99_000_000 / 32);
+        assertEquals(100_000_000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void concurrentRecordingShouldNotLoseValues() throws InterruptedException {
+        final Histogram histogram = new Histogram();
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random();
+                    for (int j = 0; j < 100_000; j++) {
+                        histogram.record(random.nextInt(1_000_000));
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, histogram.getCount());
+        assertTrue(histogram.getMax() < 1_000_000);
+    }
+}
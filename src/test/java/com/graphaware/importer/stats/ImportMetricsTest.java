@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.stats.ImportMetrics}.
+ */
+public class ImportMetricsTest {
+
+    @Test
+    public void metricsShouldIncludeAllStatistics() {
+        ImportMetrics metrics = new ImportMetrics(0, 60);
+
+        StatisticsCollector collector = new LoggingStatisticsCollector("Person");
+        collector.counter(ImportMetrics.IMPORT_STATS, ImportMetrics.PROCESSED).add(10);
+        collector.gauge(ImportMetrics.IMPORT_STATS, "Queue Depth", new Gauge() {
+            @Override
+            public long get() {
+                return 5;
+            }
+        });
+        collector.timer("produceObject").record(3_000_000);
+        metrics.register("Person", collector);
+
+        Map<String, Long> result = metrics.getMetrics();
+
+        assertEquals(10L, (long) result.get("Person/Import Statistics/Processed"));
+        assertEquals(5L, (long) result.get("Person/Import Statistics/Queue Depth"));
+        assertEquals(1L, (long) result.get("Person/Timing/produceObject (count)"));
+        assertEquals(3L, (long) result.get("Person/Timing/produceObject (ms)"));
+    }
+
+    @Test
+    public void summaryShouldOnlyIncludeImportersThatProgressed() {
+        ImportMetrics metrics = new ImportMetrics(0, 60);
+
+        StatisticsCollector person = new LoggingStatisticsCollector("Person");
+        Counter processed = person.counter(ImportMetrics.IMPORT_STATS, ImportMetrics.PROCESSED);
+        metrics.register("Person", person);
+
+        StatisticsCollector jvm = new LoggingStatisticsCollector("JVM");
+        jvm.gauge("Memory", "Heap Used (MB)", new Gauge() {
+            @Override
+            public long get() {
+                return 42;
+            }
+        });
+        metrics.register("JVM", jvm);
+
+        processed.add(100);
+        String summary = metrics.summarize();
+        assertTrue(summary.contains("Person: 100 rows"));
+        assertTrue(summary.contains("JVM: Heap Used (MB) 42"));
+        assertEquals(summary, metrics.getSummary());
+
+        summary = metrics.summarize();
+        assertFalse(summary.contains("Person"));
+        assertTrue(summary.contains("JVM"));
+    }
+}
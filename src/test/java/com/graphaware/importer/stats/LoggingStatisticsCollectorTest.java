@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@link com.graphaware.importer.stats.LoggingStatisticsCollector}.
+ */
+public class LoggingStatisticsCollectorTest {
+
+    private final LoggingStatisticsCollector collector = new LoggingStatisticsCollector("test");
+
+    @Test
+    public void counterShouldBeSharedWithLookups() {
+        Counter counter = collector.counter("category", "name");
+
+        counter.increment();
+        collector.incrementsStats("category", "name");
+        collector.incrementsStats("category", "name", 3);
+
+        assertEquals(5, counter.get());
+        assertSame(counter, collector.counter("category", "name"));
+
+        collector.setStats("category", "name", 2);
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void gaugesShouldNotAffectCountersWithTheSameName() {
+        collector.incrementsStats("category", "name");
+        collector.gauge("category", "name", new Gauge() {
+            @Override
+            public long get() {
+                return 42;
+            }
+        });
+
+        collector.incrementsStats("category", "name");
+        collector.counter("category", "name").increment();
+
+        assertEquals(3, collector.counter("category", "name").get());
+        assertEquals(42L, (long) collector.getStats().get("category").get("name"));
+    }
+
+    @Test
+    public void countersShouldNotOverflowInt() {
+        Counter counter = collector.counter("category", "name");
+
+        counter.add(Integer.MAX_VALUE);
+        counter.increment();
+
+        assertEquals(Integer.MAX_VALUE + 1L, counter.get());
+    }
+
+    @Test
+    public void concurrentIncrementsShouldNotBeLost() throws InterruptedException {
+        final Counter counter = collector.counter("category", "name");
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100_000; j++) {
+                        counter.increment();
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400_000, counter.get());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013-2016 GraphAware
+ *
+ * This file is part of the GraphAware Framework.
+ *
+ * GraphAware Framework is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License,
+ * or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU General Public License for more details. You should have received a copy of the
+ * GNU General Public License along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.graphaware.importer.stats;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for the default methods of {@link com.graphaware.importer.stats.StatisticsCollector}.
+ */
+public class StatisticsCollectorTest {
+
+    private final MinimalCollector collector = new MinimalCollector();
+
+    @Test
+    public void defaultMethodsShouldDelegateToMinimalCollector() {
+        collector.incrementsStats("category", "name", 3);
+        collector.incrementsStats("category", "name", 2L);
+        collector.counter("category", "name").increment();
+
+        assertEquals(6, collector.counter("category", "name").get());
+
+        collector.setStats("category", "name", 10L);
+        assertEquals(10, collector.counter("category", "name").get());
+
+        assertEquals(0, collector.counter("category", "other").get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeNumbersShouldNotBeAddedThroughMinimalCollector() {
+        collector.counter("category", "name").add(-1);
+    }
+
+    /**
+     * Collector implementing only the methods every collector has always had to, plus reporting.
+     */
+    private static class MinimalCollector implements StatisticsCollector {
+
+        private final Map<String, Map<String, Long>> stats = new HashMap<>();
+
+        @Override
+        public void startTiming() {
+        }
+
+        @Override
+        public void printTiming() {
+        }
+
+        @Override
+        public void incrementsStats(String category, String name) {
+            Long value = category(category).get(name);
+            category(category).put(name, value == null ? 1 : value + 1);
+        }
+
+        @Override
+        public void setStats(String category, String name, int number) {
+            category(category).put(name, (long) number);
+        }
+
+        @Override
+        public Map<String, Map<String, Long>> getStats() {
+            return Collections.unmodifiableMap(stats);
+        }
+
+        @Override
+        public void printStats() {
+        }
+
+        private Map<String, Long> category(String category) {
+            if (!stats.containsKey(category)) {
+                stats.put(category, new HashMap<String, Long>());
+            }
+            return stats.get(category);
+        }
+    }
+}